@@ -0,0 +1,30 @@
+package ball_engine;
+
+/**
+ * A simulation of bouncing balls that advances one time-step at a time, and
+ * exposes the state of every ball.
+ *
+ * @version 1.0
+ */
+public interface BallEngine {
+	/** Advance all the balls by one time-step. */
+	void step();
+
+	/** Return the number of balls. */
+	int getBallCount();
+
+	/** Return the x-position of the center of ball i. */
+	float getBallX(int i);
+
+	/** Return the y-position of the center of ball i. */
+	float getBallY(int i);
+
+	/** Return the radius of ball i. */
+	float getBallRadius(int i);
+
+	/** Return the speed of ball i per time-step in x. */
+	float getSpeedX(int i);
+
+	/** Return the speed of ball i per time-step in y. */
+	float getSpeedY(int i);
+}
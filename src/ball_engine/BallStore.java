@@ -0,0 +1,64 @@
+package ball_engine;
+
+/**
+ * Storage for the state of a large population of balls, one column per field,
+ * so that the engine kernels can run over it without a Ball object per ball.
+ * Also holds the cells of the engine's grid, which grow with the population.
+ *
+ * Implementations keep the columns on the Java heap or off it, behind the same
+ * accessors, so that the same engine runs on either.
+ *
+ * @version 1.0
+ */
+public interface BallStore {
+	// Float fields
+	int X = 0; // Center x
+	int Y = 1; // Center y
+	int SPEED_X = 2; // Speed per step in x
+	int SPEED_Y = 3; // Speed per step in y
+	int RADIUS = 4;
+	int IMPACT_TIME = 5; // Time of the earliest collision in this step
+	int NEW_SPEED_X = 6; // Speed after that collision
+	int NEW_SPEED_Y = 7;
+	int TIME = 8; // Time within the step the ball has been moved to
+	int FLOAT_FIELDS = 9;
+	// Int fields
+	int PARTNER = 0; // Ball hit in the earliest collision, or -1 for a wall
+	int NEXT_IN_CELL = 1; // Next ball in the same cell, or -1 for none
+	int CELL = 2; // Cell the ball was sorted into
+	int DIRTY = 3; // Why the earliest collision must be found again, or 0 if it need not
+	int ACTIVE = 4; // Not per ball: the balls still colliding within the step, packed
+	int INT_FIELDS = 5;
+	// Cell fields
+	int CELL_HEAD = 0; // First ball in the cell, or -1 for none
+	int CELL_COUNT = 1; // Number of balls in the cell, also for the coarser levels
+	int CELL_IMPACT = 2; // Earliest collision time of the balls in the cell, as float bits
+	int CELL_FIELDS = 3;
+
+	/** Return the number of balls stored. */
+	int getCapacity();
+
+	/** Return the given float field of the given ball. */
+	float getFloat(int field, int ball);
+
+	/** Set the given float field of the given ball. */
+	void setFloat(int field, int ball, float value);
+
+	/** Return the given int field of the given ball. */
+	int getInt(int field, int ball);
+
+	/** Set the given int field of the given ball. */
+	void setInt(int field, int ball, int value);
+
+	/**
+	 * Make room for at least the given number of cells. The cells hold arbitrary
+	 * values until set.
+	 */
+	void ensureCells(int numberOfCells);
+
+	/** Return the given int field of the given cell. */
+	int getCellInt(int field, int cell);
+
+	/** Set the given int field of the given cell. */
+	void setCellInt(int field, int cell, int value);
+}
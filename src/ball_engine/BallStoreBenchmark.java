@@ -0,0 +1,136 @@
+package ball_engine;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/**
+ * Compare the grid engine on heap and on direct storage: the step throughput,
+ * the garbage collections while stepping next to an application that allocates,
+ * and the pause of a full collection with the population alive.
+ *
+ * Usage: java ball_engine.BallStoreBenchmark [balls] [steps] [heap|direct]
+ *
+ * Both stores run by default, from the same start, and must end in the same
+ * state. For 50 million balls, give it about 2 GB of heap for the heap store
+ * and as much -XX:MaxDirectMemorySize for the direct one, or run one store at a
+ * time.
+ *
+ * @version 1.0
+ */
+public class BallStoreBenchmark {
+	private static final int DEFAULT_BALLS = 1000000;
+	private static final int DEFAULT_STEPS = 20;
+	private static final int WARM_UP_STEPS = 3;
+	private static final float RADIUS = 2;
+	private static final float SPACING = 4 * RADIUS; // Between lattice points
+	private static final float MAX_SPEED = 3;
+	// The application around the engine: allocates this much per time-step, in
+	// small blocks, and keeps the latest RETAINED_BLOCKS of them alive.
+	private static final int CHURN_BYTES_PER_STEP = 32 << 20;
+	private static final int BLOCK_BYTES = 1 << 10;
+	private static final int RETAINED_BLOCKS = 64 << 10;
+
+	public static void main(String[] args) {
+		int numberOfBalls = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_BALLS;
+		int steps = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_STEPS;
+		String only = (args.length > 2) ? args[2] : null;
+
+		double heapChecksum = 0, directChecksum = 0;
+		if (only == null || only.equals("heap")) {
+			heapChecksum = run("heap", new HeapBallStore(numberOfBalls), steps);
+		}
+		if (only == null || only.equals("direct")) {
+			directChecksum = run("direct", new DirectBallStore(numberOfBalls), steps);
+		}
+		if (only == null && heapChecksum != directChecksum) {
+			System.out.println("FAIL: the stores ended in different states");
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Run the benchmark on the given store and print the results.
+	 *
+	 * @return a checksum of the final positions.
+	 */
+	private static double run(String name, BallStore store, int steps) {
+		GridBallEngine engine = populate(store);
+		for (int s = 0; s < WARM_UP_STEPS; s++) {
+			engine.step();
+		}
+
+		byte[][] retained = new byte[RETAINED_BLOCKS][];
+		int nextBlock = 0;
+		long collections = -collectionCount();
+		long collectionMillis = -collectionMillis();
+		long stepNanos = 0;
+		for (int s = 0; s < steps; s++) {
+			long start = System.nanoTime();
+			engine.step();
+			stepNanos += System.nanoTime() - start;
+			for (int b = 0; b < CHURN_BYTES_PER_STEP / BLOCK_BYTES; b++) {
+				retained[nextBlock] = new byte[BLOCK_BYTES];
+				nextBlock = (nextBlock + 1) % RETAINED_BLOCKS;
+			}
+		}
+		collections += collectionCount();
+		collectionMillis += collectionMillis();
+		retained = null;
+
+		long fullStart = System.nanoTime();
+		System.gc();
+		double fullMillis = (System.nanoTime() - fullStart) / 1e6;
+
+		Runtime runtime = Runtime.getRuntime();
+		System.out.printf("%-6s %d balls: %.1f ms per step, %.2f M ball-steps/s, %d collisions, %d overlaps%n", name,
+				engine.getBallCount(), stepNanos / 1e6 / steps,
+				(double) engine.getBallCount() * steps / (stepNanos / 1e3), engine.getCollisionCount(),
+				engine.getPenetrationCount());
+		System.out.printf("%-6s GC while stepping: %d collections, %d ms; full GC: %.1f ms; heap used %d MB%n", name,
+				collections, collectionMillis, fullMillis, (runtime.totalMemory() - runtime.freeMemory()) >> 20);
+
+		double checksum = 0;
+		for (int i = 0; i < engine.getBallCount(); i++) {
+			checksum += engine.getBallX(i) + engine.getBallY(i);
+		}
+		return checksum;
+	}
+
+	/**
+	 * Set up a square box with a ball at each point of a lattice, shifted a
+	 * little at random, moving at a random speed. The same every time.
+	 */
+	private static GridBallEngine populate(BallStore store) {
+		int numberOfBalls = store.getCapacity();
+		int side = (int) Math.ceil(Math.sqrt(numberOfBalls));
+		GridBallEngine engine = new GridBallEngine(store, 0, 0, side * SPACING, side * SPACING);
+		Random random = new Random(1);
+		for (int i = 0; i < numberOfBalls; i++) {
+			float x = (i % side + 0.5f) * SPACING + (random.nextFloat() - 0.5f) * RADIUS;
+			float y = (i / side + 0.5f) * SPACING + (random.nextFloat() - 0.5f) * RADIUS;
+			double angle = random.nextDouble() * 2 * Math.PI;
+			float speed = random.nextFloat() * MAX_SPEED;
+			engine.setBall(i, x, y, RADIUS, (float) (speed * Math.cos(angle)), (float) (speed * Math.sin(angle)));
+		}
+		return engine;
+	}
+
+	/** Return the number of collections so far, over all the collectors. */
+	private static long collectionCount() {
+		long count = 0;
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			count += Math.max(0, collector.getCollectionCount());
+		}
+		return count;
+	}
+
+	/** Return the time spent collecting so far, over all the collectors. */
+	private static long collectionMillis() {
+		long millis = 0;
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			millis += Math.max(0, collector.getCollectionTime());
+		}
+		return millis;
+	}
+}
@@ -0,0 +1,95 @@
+package ball_engine;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Ball storage in direct buffers, off the Java heap. The garbage collector
+ * neither scans nor moves them, and they do not count against the heap size,
+ * so very large populations leave the heap small. They count against
+ * -XX:MaxDirectMemorySize instead, and are freed once the store is collected.
+ *
+ * That costs throughput: every access goes through the buffer's index and
+ * memory checks rather than a plain array load, and the engine steps about half
+ * as fast as on a HeapBallStore, as BallStoreBenchmark shows. Prefer it only
+ * where the collections and the heap size matter more than the time per step,
+ * as for a very large population next to an application that allocates.
+ *
+ * @version 1.0
+ */
+public class DirectBallStore implements BallStore {
+	private int capacity;
+	private FloatBuffer[] floats = new FloatBuffer[FLOAT_FIELDS];
+	private IntBuffer[] ints = new IntBuffer[INT_FIELDS];
+	private IntBuffer[] cellInts = new IntBuffer[CELL_FIELDS];
+
+	/**
+	 * Constructor.
+	 *
+	 * @param capacity
+	 *            : number of balls, up to 2^29 so that a column fits in a buffer.
+	 */
+	public DirectBallStore(int capacity) {
+		assert (capacity >= 0) && (capacity <= Integer.MAX_VALUE / 4) : "Capacity out of range!";
+		this.capacity = capacity;
+		for (int f = 0; f < FLOAT_FIELDS; f++) {
+			floats[f] = allocate(capacity).asFloatBuffer();
+		}
+		for (int f = 0; f < INT_FIELDS; f++) {
+			ints[f] = allocate(capacity).asIntBuffer();
+		}
+		ensureCells(0);
+	}
+
+	/** Helper method to allocate a direct buffer of the given number of 4-byte values. */
+	private static ByteBuffer allocate(int values) {
+		return ByteBuffer.allocateDirect(4 * values).order(ByteOrder.nativeOrder());
+	}
+
+	@Override
+	public int getCapacity() {
+		return capacity;
+	}
+
+	@Override
+	public float getFloat(int field, int ball) {
+		return floats[field].get(ball);
+	}
+
+	@Override
+	public void setFloat(int field, int ball, float value) {
+		floats[field].put(ball, value);
+	}
+
+	@Override
+	public int getInt(int field, int ball) {
+		return ints[field].get(ball);
+	}
+
+	@Override
+	public void setInt(int field, int ball, int value) {
+		ints[field].put(ball, value);
+	}
+
+	@Override
+	public void ensureCells(int numberOfCells) {
+		assert (numberOfCells <= Integer.MAX_VALUE / 4) : "Too many cells!";
+		if (cellInts[0] == null || cellInts[0].capacity() < numberOfCells) {
+			for (int f = 0; f < CELL_FIELDS; f++) {
+				cellInts[f] = allocate(numberOfCells).asIntBuffer();
+			}
+		}
+	}
+
+	@Override
+	public int getCellInt(int field, int cell) {
+		return cellInts[field].get(cell);
+	}
+
+	@Override
+	public void setCellInt(int field, int cell, int value) {
+		cellInts[field].put(cell, value);
+	}
+}
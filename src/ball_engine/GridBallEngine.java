@@ -0,0 +1,598 @@
+package ball_engine;
+
+import collisionphysics.CollisionPhysics;
+import collisionphysics.CollisionResponse;
+import collisionphysics.PenetrationResponse;
+
+/**
+ * An engine for very large populations of elastic balls in a rectangular box,
+ * whose kernels read and write the ball state in a BallStore.
+ *
+ * Finding the earliest collision among all the balls, as the screen saver
+ * does, would cut every time-step into as many sub-steps as there are
+ * collisions. Instead, each ball keeps its own clock within the time-step, and
+ * the time-step makes passes over the earliest collision of each ball. A ball
+ * takes its collision when it is a wall, or when the other ball takes the same
+ * collision, and when no ball nearby has an earlier one, so that no other
+ * ball can change course and get in the way first. The balls that took a
+ * collision, and those whose partner took another, find their earliest
+ * collision again from their own clock before the next pass. The earliest
+ * collision of all is always taken, so every pass makes progress. Once no
+ * collision is left, or after a bounded number of passes, every ball coasts to
+ * the end of the time-step, and any overlaps left are separated.
+ *
+ * The balls are sorted into a uniform grid of cells, as wide as two balls plus
+ * the distance two balls can close within one time-step, so that each ball
+ * only checks the balls in its own and the 8 neighboring cells. A collision
+ * can speed a light ball up beyond the fastest ball the cells were sized for,
+ * so the balls are sorted again, into wider cells, when that happens. A sparse
+ * population in a large box is given wider cells still, so that there are never
+ * many more cells than balls, and only the cells that held a ball are cleared
+ * before sorting again.
+ *
+ * @version 1.0
+ */
+public class GridBallEngine implements BallEngine {
+	private static final int WALL = -1; // Partner of a collision with the box
+	private static final int NONE = -1; // End of the balls in a cell
+	private static final int MAX_LEVELS = 32; // Enough for any grid
+	private static final int MAX_CELLS = Integer.MAX_VALUE / 4; // Cells of 4 bytes that fit in one buffer
+	// Cells per ball that a sparse population is given at most. Wider cells hold
+	// more balls to check, and more collisions back until a later pass.
+	private static final int CELLS_PER_BALL = 16;
+	private static final int MAX_PASSES = 64; // Passes over the collisions within a time-step
+	// Reasons for a ball to find its earliest collision again, in DIRTY
+	private static final int CLEAN = 0; // It need not
+	private static final int COURSE_CHANGED = 1; // It took a collision
+	private static final int PARTNER_CHANGED = 2; // The partner of its collision took another one
+	private static final int NO_IMPACT = Float.floatToIntBits(Float.MAX_VALUE); // CELL_IMPACT of a calm cell
+	BallStore store;
+	private int numberOfBalls;
+	float minX, minY, maxX, maxY; // Box's bounds
+	// Grid of cells, covering the box
+	float cellSize;
+	int columns, rows;
+	float maxRadius; // Radius of the largest ball
+	private float maxSpeed; // Speed of the fastest ball, as the sum of its components
+	private boolean outgrown; // Whether a ball became faster than the cells allow
+	private int activeCount; // Balls in the ACTIVE field
+	// The grid is also counted at coarser levels, each with cells twice as wide
+	// as the one before, down to a single cell. The counts of level l are at
+	// levelOffset[l] in the CELL_COUNT field, levelColumns[l] per row.
+	int numberOfLevels;
+	int[] levelOffset = new int[MAX_LEVELS];
+	int[] levelColumns = new int[MAX_LEVELS];
+	int[] levelRows = new int[MAX_LEVELS];
+	// The cells that hold a ball, level by level: those of level l are
+	// occupiedCells[occupiedStart[l]] up to, but not including,
+	// occupiedCells[occupiedStart[l + 1]]. Every other cell is empty.
+	private int[] occupiedCells = new int[0];
+	private int[] occupiedStart = new int[MAX_LEVELS + 1];
+	private int clearedCells; // Cells known to be empty but for the occupied ones
+	private long stepCount; // Time-steps executed
+	private long collisionCount; // Collisions taken
+	private long penetrationCount; // Overlaps separated
+
+	/**
+	 * Constructor. The balls start at the origin, at rest: call setBall() for
+	 * each.
+	 *
+	 * @param store
+	 *            : storage for the balls, one per ball of its capacity.
+	 * @param minX
+	 *            : left edge of the box.
+	 * @param minY
+	 *            : top edge of the box.
+	 * @param maxX
+	 *            : right edge of the box.
+	 * @param maxY
+	 *            : bottom edge of the box.
+	 */
+	public GridBallEngine(BallStore store, float minX, float minY, float maxX, float maxY) {
+		assert (minX < maxX) && (minY < maxY) : "Malformed box!";
+		this.store = store;
+		this.numberOfBalls = store.getCapacity();
+		this.minX = minX;
+		this.minY = minY;
+		this.maxX = maxX;
+		this.maxY = maxY;
+	}
+
+	/**
+	 * Place ball i.
+	 *
+	 * @param i
+	 *            : index of the ball.
+	 * @param x
+	 *            : x-position of its center.
+	 * @param y
+	 *            : y-position of its center.
+	 * @param radius
+	 *            : its radius.
+	 * @param speedX
+	 *            : its speed per time-step in x.
+	 * @param speedY
+	 *            : its speed per time-step in y.
+	 */
+	public void setBall(int i, float x, float y, float radius, float speedX, float speedY) {
+		assert (radius >= 0) : "Negative radius!";
+		store.setFloat(BallStore.X, i, x);
+		store.setFloat(BallStore.Y, i, y);
+		store.setFloat(BallStore.RADIUS, i, radius);
+		store.setFloat(BallStore.SPEED_X, i, speedX);
+		store.setFloat(BallStore.SPEED_Y, i, speedY);
+	}
+
+	@Override
+	public void step() {
+		buildGrid();
+		for (int i = 0; i < numberOfBalls; i++) {
+			store.setFloat(BallStore.TIME, i, 0);
+			store.setInt(BallStore.DIRTY, i, COURSE_CHANGED);
+			store.setInt(BallStore.ACTIVE, i, i);
+		}
+		activeCount = numberOfBalls;
+		for (int pass = 0; pass < MAX_PASSES; pass++) {
+			detectCollisions();
+			if (!takeCollisions()) {
+				break;
+			}
+			if (outgrown) {
+				buildGrid();
+			}
+		}
+		moveBalls();
+		resolvePenetrations();
+		stepCount++;
+	}
+
+	/**
+	 * Sort the balls into the cells of the grid, sized for the fastest and the
+	 * largest ball, as a list per cell threaded through NEXT_IN_CELL. Then count
+	 * the balls per cell at every level, for drawing them from afar. Within a
+	 * time-step, each ball is sorted by where its own clock has moved it to. Only
+	 * the cells that hold a ball are visited, so the cost grows with the number of
+	 * balls rather than with the size of the box.
+	 *
+	 * @throws IllegalStateException
+	 *             if the box needs more cells than a store can hold.
+	 */
+	private void buildGrid() {
+		// Empty the cells of the last sort.
+		for (int k = 0; k < occupiedStart[numberOfLevels]; k++) {
+			store.setCellInt(BallStore.CELL_HEAD, occupiedCells[k], NONE);
+			store.setCellInt(BallStore.CELL_COUNT, occupiedCells[k], 0);
+		}
+
+		maxSpeed = 0;
+		maxRadius = 0;
+		outgrown = false;
+		for (int i = 0; i < numberOfBalls; i++) {
+			maxRadius = Math.max(maxRadius, store.getFloat(BallStore.RADIUS, i));
+			// The sum of the components bounds the speed, without a square root.
+			maxSpeed = Math.max(maxSpeed,
+					Math.abs(store.getFloat(BallStore.SPEED_X, i)) + Math.abs(store.getFloat(BallStore.SPEED_Y, i)));
+		}
+		// At most about CELLS_PER_BALL cells per ball in a sparse population.
+		float shareOfBox = (float) Math.sqrt((double) (maxX - minX) * (maxY - minY)
+				/ ((double) CELLS_PER_BALL * Math.max(numberOfBalls, 1)));
+		cellSize = Math.max(Math.max(2 * maxRadius + 2 * maxSpeed, shareOfBox), 1);
+		long columnCount = Math.min((long) ((maxX - minX) / cellSize), Integer.MAX_VALUE) + 1;
+		long rowCount = Math.min((long) ((maxY - minY) / cellSize), Integer.MAX_VALUE) + 1;
+
+		// Lay out the levels one after the other.
+		long numberOfCells = 0;
+		long levelColumnCount = columnCount;
+		long levelRowCount = rowCount;
+		for (numberOfLevels = 1;; numberOfLevels++) {
+			int level = numberOfLevels - 1;
+			levelOffset[level] = (int) numberOfCells;
+			numberOfCells += levelColumnCount * levelRowCount;
+			if (numberOfCells > MAX_CELLS) {
+				throw new IllegalStateException("A grid of " + columnCount + " by " + rowCount + " cells of "
+						+ cellSize + " is too large for the store, at most " + MAX_CELLS + " cells with the levels");
+			}
+			levelColumns[level] = (int) levelColumnCount;
+			levelRows[level] = (int) levelRowCount;
+			if (levelColumnCount == 1 && levelRowCount == 1) {
+				break;
+			}
+			levelColumnCount = (levelColumnCount + 1) / 2;
+			levelRowCount = (levelRowCount + 1) / 2;
+		}
+		columns = levelColumns[0];
+		rows = levelRows[0];
+		store.ensureCells((int) numberOfCells);
+		if (numberOfCells > clearedCells) {
+			// Cells the store may just have allocated, not yet emptied.
+			for (int cell = 0; cell < numberOfCells; cell++) {
+				store.setCellInt(BallStore.CELL_HEAD, cell, NONE);
+				store.setCellInt(BallStore.CELL_COUNT, cell, 0);
+			}
+			clearedCells = (int) numberOfCells;
+		}
+		// A level has at most one occupied cell per ball.
+		long occupiedLimit = Math.min(numberOfCells, (long) numberOfBalls * numberOfLevels);
+		if (occupiedCells.length < occupiedLimit) {
+			occupiedCells = new int[(int) occupiedLimit];
+		}
+
+		int numberOccupied = 0;
+		for (int i = 0; i < numberOfBalls; i++) {
+			int cell = row(store.getFloat(BallStore.Y, i)) * columns + column(store.getFloat(BallStore.X, i));
+			store.setInt(BallStore.CELL, i, cell);
+			store.setInt(BallStore.NEXT_IN_CELL, i, store.getCellInt(BallStore.CELL_HEAD, cell));
+			store.setCellInt(BallStore.CELL_HEAD, cell, i);
+			int count = store.getCellInt(BallStore.CELL_COUNT, cell);
+			if (count == 0) {
+				occupiedCells[numberOccupied++] = cell;
+			}
+			store.setCellInt(BallStore.CELL_COUNT, cell, count + 1);
+		}
+		occupiedStart[1] = numberOccupied;
+		// Add the count of each occupied cell to the cell covering it one level up.
+		for (int level = 1; level < numberOfLevels; level++) {
+			int finer = level - 1;
+			for (int k = occupiedStart[finer]; k < occupiedStart[level]; k++) {
+				int finerCell = occupiedCells[k];
+				int index = finerCell - levelOffset[finer];
+				int row = index / levelColumns[finer] / 2;
+				int column = index % levelColumns[finer] / 2;
+				int cell = levelOffset[level] + row * levelColumns[level] + column;
+				int count = store.getCellInt(BallStore.CELL_COUNT, cell);
+				if (count == 0) {
+					occupiedCells[numberOccupied++] = cell;
+				}
+				store.setCellInt(BallStore.CELL_COUNT, cell, count + store.getCellInt(BallStore.CELL_COUNT, finerCell));
+			}
+			occupiedStart[level + 1] = numberOccupied;
+		}
+	}
+
+	/** Helper method to return the column of x, clamped to the grid. */
+	int column(float x) {
+		return Math.max(0, Math.min(columns - 1, (int) ((x - minX) / cellSize)));
+	}
+
+	/** Helper method to return the row of y, clamped to the grid. */
+	int row(float y) {
+		return Math.max(0, Math.min(rows - 1, (int) ((y - minY) / cellSize)));
+	}
+
+	// Working copies of the collision physics, held by this engine rather than
+	// looked up per call.
+	private CollisionPhysics.Workspace workspace = new CollisionPhysics.Workspace();
+
+	// Working copies for computing responses in detectCollisions(),
+	// to avoid repeatedly allocating objects.
+	private CollisionResponse thisResponse = new CollisionResponse();
+	private CollisionResponse anotherResponse = new CollisionResponse();
+
+	/**
+	 * Find the earliest collision of each dirty ball within the rest of the
+	 * time-step, with the box or with a ball in its own or a neighboring cell, and
+	 * store its time, the new speed and the partner. Two balls are checked from
+	 * the later of their clocks, each moved there along its course. Each pair of
+	 * balls is checked once, for both. A ball given its first collision joins the
+	 * active balls.
+	 */
+	private void detectCollisions() {
+		int dirtyCount = activeCount; // Only active balls are dirty
+		for (int k = 0; k < dirtyCount; k++) {
+			int i = store.getInt(BallStore.ACTIVE, k);
+			if (store.getInt(BallStore.DIRTY, i) == CLEAN) {
+				continue;
+			}
+			float time = store.getFloat(BallStore.TIME, i);
+			thisResponse.reset();
+			if (time < 1) {
+				CollisionPhysics.pointIntersectsRectangleOuter(store.getFloat(BallStore.X, i),
+						store.getFloat(BallStore.Y, i), store.getFloat(BallStore.SPEED_X, i),
+						store.getFloat(BallStore.SPEED_Y, i), store.getFloat(BallStore.RADIUS, i), minX, minY, maxX,
+						maxY, CollisionPhysics.ELASTIC, CollisionPhysics.FRICTIONLESS, 1 - time, thisResponse,
+						workspace);
+			}
+			setImpact(i, time + thisResponse.t, thisResponse, WALL);
+		}
+
+		for (int k = 0; k < dirtyCount; k++) {
+			int i = store.getInt(BallStore.ACTIVE, k);
+			if (store.getInt(BallStore.DIRTY, i) == CLEAN) {
+				continue;
+			}
+			float x = store.getFloat(BallStore.X, i);
+			float y = store.getFloat(BallStore.Y, i);
+			float speedX = store.getFloat(BallStore.SPEED_X, i);
+			float speedY = store.getFloat(BallStore.SPEED_Y, i);
+			float radius = store.getFloat(BallStore.RADIUS, i);
+			float time = store.getFloat(BallStore.TIME, i);
+			// The ball's own cell, rather than where it has moved since, is the one
+			// the cells allow for.
+			int cell = store.getInt(BallStore.CELL, i);
+			int column = cell % columns;
+			int row = cell / columns;
+			for (int r = Math.max(0, row - 1); r <= Math.min(rows - 1, row + 1); r++) {
+				for (int c = Math.max(0, column - 1); c <= Math.min(columns - 1, column + 1); c++) {
+					for (int j = store.getCellInt(BallStore.CELL_HEAD, r * columns + c); j != NONE; j = store.getInt(
+							BallStore.NEXT_IN_CELL, j)) {
+						// A pair of dirty balls is checked from the lower one only.
+						if (j == i || (j < i && store.getInt(BallStore.DIRTY, j) != CLEAN)) {
+							continue;
+						}
+						float anotherTime = store.getFloat(BallStore.TIME, j);
+						float start = Math.max(time, anotherTime);
+						// Only a collision earlier than one of the two found so far matters.
+						float timeLimit = Math.min(1, Math.max(store.getFloat(BallStore.IMPACT_TIME, i),
+								store.getFloat(BallStore.IMPACT_TIME, j))) - start;
+						if (timeLimit <= 0) {
+							continue;
+						}
+						float anotherSpeedX = store.getFloat(BallStore.SPEED_X, j);
+						float anotherSpeedY = store.getFloat(BallStore.SPEED_Y, j);
+						float anotherRadius = store.getFloat(BallStore.RADIUS, j);
+						float startX = x + speedX * (start - time);
+						float startY = y + speedY * (start - time);
+						float anotherStartX = store.getFloat(BallStore.X, j)
+								+ anotherSpeedX * (start - anotherTime);
+						float anotherStartY = store.getFloat(BallStore.Y, j)
+								+ anotherSpeedY * (start - anotherTime);
+						// Skip the balls too far to close the gap within the time left.
+						float reach = radius + anotherRadius
+								+ (Math.abs(anotherSpeedX - speedX) + Math.abs(anotherSpeedY - speedY)) * timeLimit;
+						float offsetX = anotherStartX - startX;
+						float offsetY = anotherStartY - startY;
+						if (offsetX * offsetX + offsetY * offsetY > reach * reach) {
+							continue;
+						}
+						CollisionPhysics.pointIntersectsMovingPoint(startX, startY, speedX, speedY, radius,
+								anotherStartX, anotherStartY, anotherSpeedX, anotherSpeedY, anotherRadius,
+								CollisionPhysics.ELASTIC, CollisionPhysics.FRICTIONLESS, timeLimit, thisResponse,
+								anotherResponse, workspace);
+						if (start + thisResponse.t < store.getFloat(BallStore.IMPACT_TIME, i)) {
+							setImpact(i, start + thisResponse.t, thisResponse, j);
+						}
+						float anotherImpactTime = store.getFloat(BallStore.IMPACT_TIME, j);
+						if (start + anotherResponse.t < anotherImpactTime) {
+							if (anotherImpactTime > 1 && store.getInt(BallStore.DIRTY, j) == CLEAN) {
+								store.setInt(BallStore.ACTIVE, activeCount++, j);
+							}
+							setImpact(j, start + anotherResponse.t, anotherResponse, i);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/** Helper method to store the given collision as the earliest of ball i. */
+	private void setImpact(int i, float impactTime, CollisionResponse response, int partner) {
+		store.setFloat(BallStore.IMPACT_TIME, i, impactTime);
+		store.setFloat(BallStore.NEW_SPEED_X, i, response.newSpeedX);
+		store.setFloat(BallStore.NEW_SPEED_Y, i, response.newSpeedY);
+		store.setInt(BallStore.PARTNER, i, partner);
+	}
+
+	/**
+	 * Take every collision that is a wall, or that both balls have as their
+	 * earliest, and that no ball nearby can get in the way of: move its balls to
+	 * it and give them their new speeds. Mark the balls that took a collision, and
+	 * those whose partner took another, to find their earliest collision again.
+	 *
+	 * @return whether any collision was taken.
+	 */
+	private boolean takeCollisions() {
+		// Note the earliest collision per cell, by where the balls have moved to,
+		// clearing the cells around each ball first.
+		for (int k = 0; k < activeCount; k++) {
+			int i = store.getInt(BallStore.ACTIVE, k);
+			if (store.getFloat(BallStore.IMPACT_TIME, i) > 1) {
+				continue;
+			}
+			int column = column(store.getFloat(BallStore.X, i));
+			int row = row(store.getFloat(BallStore.Y, i));
+			for (int r = Math.max(0, row - 1); r <= Math.min(rows - 1, row + 1); r++) {
+				for (int c = Math.max(0, column - 1); c <= Math.min(columns - 1, column + 1); c++) {
+					store.setCellInt(BallStore.CELL_IMPACT, r * columns + c, NO_IMPACT);
+				}
+			}
+		}
+		for (int k = 0; k < activeCount; k++) {
+			int i = store.getInt(BallStore.ACTIVE, k);
+			float impactTime = store.getFloat(BallStore.IMPACT_TIME, i);
+			if (impactTime > 1) {
+				continue;
+			}
+			// Non-negative floats order as their bits do.
+			int cell = row(store.getFloat(BallStore.Y, i)) * columns + column(store.getFloat(BallStore.X, i));
+			store.setCellInt(BallStore.CELL_IMPACT, cell,
+					Math.min(store.getCellInt(BallStore.CELL_IMPACT, cell), Float.floatToIntBits(impactTime)));
+		}
+
+		// Choose the collisions before moving any ball, as moving changes the cells.
+		for (int k = 0; k < activeCount; k++) {
+			int i = store.getInt(BallStore.ACTIVE, k);
+			boolean takes = false;
+			if (store.getFloat(BallStore.IMPACT_TIME, i) <= 1 && isEarliestNearby(i)) {
+				int partner = store.getInt(BallStore.PARTNER, i);
+				takes = (partner == WALL)
+						|| (store.getInt(BallStore.PARTNER, partner) == i && isEarliestNearby(partner));
+			}
+			store.setInt(BallStore.DIRTY, i, takes ? COURSE_CHANGED : CLEAN);
+		}
+
+		// Keep only the balls that took a collision or still have one.
+		boolean taken = false;
+		int stillActive = 0;
+		for (int k = 0; k < activeCount; k++) {
+			int i = store.getInt(BallStore.ACTIVE, k);
+			float impactTime = store.getFloat(BallStore.IMPACT_TIME, i);
+			if (store.getInt(BallStore.DIRTY, i) == COURSE_CHANGED) {
+				// Back off a little before the impact, as the screen saver does.
+				float speedX = store.getFloat(BallStore.SPEED_X, i);
+				float speedY = store.getFloat(BallStore.SPEED_Y, i);
+				float newSpeedX = store.getFloat(BallStore.NEW_SPEED_X, i);
+				float newSpeedY = store.getFloat(BallStore.NEW_SPEED_Y, i);
+				thisResponse.t = impactTime - store.getFloat(BallStore.TIME, i);
+				store.setFloat(BallStore.X, i, thisResponse.getNewX(store.getFloat(BallStore.X, i), speedX));
+				store.setFloat(BallStore.Y, i, thisResponse.getNewY(store.getFloat(BallStore.Y, i), speedY));
+				store.setFloat(BallStore.SPEED_X, i, newSpeedX);
+				store.setFloat(BallStore.SPEED_Y, i, newSpeedY);
+				store.setFloat(BallStore.TIME, i, impactTime);
+				outgrown |= (Math.abs(newSpeedX) + Math.abs(newSpeedY) > maxSpeed);
+				collisionCount++;
+				taken = true;
+			} else if (impactTime <= 1) {
+				int partner = store.getInt(BallStore.PARTNER, i);
+				if (partner != WALL && store.getInt(BallStore.DIRTY, partner) == COURSE_CHANGED) {
+					store.setInt(BallStore.DIRTY, i, PARTNER_CHANGED);
+				}
+			}
+			if (store.getInt(BallStore.DIRTY, i) != CLEAN || impactTime <= 1) {
+				store.setInt(BallStore.ACTIVE, stillActive++, i);
+			}
+		}
+		activeCount = stillActive;
+		return taken;
+	}
+
+	/**
+	 * Helper method to tell whether no ball in the cells around ball i has a
+	 * collision earlier than its own.
+	 */
+	private boolean isEarliestNearby(int i) {
+		int impactBits = Float.floatToIntBits(store.getFloat(BallStore.IMPACT_TIME, i));
+		int column = column(store.getFloat(BallStore.X, i));
+		int row = row(store.getFloat(BallStore.Y, i));
+		for (int r = Math.max(0, row - 1); r <= Math.min(rows - 1, row + 1); r++) {
+			for (int c = Math.max(0, column - 1); c <= Math.min(columns - 1, column + 1); c++) {
+				if (store.getCellInt(BallStore.CELL_IMPACT, r * columns + c) < impactBits) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/** Move every ball from its own clock to the end of the time-step. */
+	private void moveBalls() {
+		for (int i = 0; i < numberOfBalls; i++) {
+			float timeLeft = 1 - store.getFloat(BallStore.TIME, i);
+			float x = store.getFloat(BallStore.X, i) + store.getFloat(BallStore.SPEED_X, i) * timeLeft;
+			float y = store.getFloat(BallStore.Y, i) + store.getFloat(BallStore.SPEED_Y, i) * timeLeft;
+			store.setFloat(BallStore.X, i, x);
+			store.setFloat(BallStore.Y, i, y);
+		}
+	}
+
+	// Working copies for computing responses in resolvePenetrations(),
+	// to avoid repeatedly allocating objects.
+	private PenetrationResponse thisPenetration = new PenetrationResponse();
+	private PenetrationResponse anotherPenetration = new PenetrationResponse();
+
+	/**
+	 * Separate the overlapping balls, then push them back inside the box. The
+	 * grid the balls were last sorted into still finds the overlaps, as the cells
+	 * allow for the balls moving.
+	 */
+	private void resolvePenetrations() {
+		for (int i = 0; i < numberOfBalls; i++) {
+			int column = column(store.getFloat(BallStore.X, i));
+			int row = row(store.getFloat(BallStore.Y, i));
+			for (int r = Math.max(0, row - 1); r <= Math.min(rows - 1, row + 1); r++) {
+				for (int c = Math.max(0, column - 1); c <= Math.min(columns - 1, column + 1); c++) {
+					for (int j = store.getCellInt(BallStore.CELL_HEAD, r * columns + c); j != NONE; j = store.getInt(
+							BallStore.NEXT_IN_CELL, j)) {
+						if (j > i && separate(i, j)) {
+							penetrationCount++;
+						}
+					}
+				}
+			}
+		}
+		for (int i = 0; i < numberOfBalls; i++) {
+			CollisionPhysics.pointPenetratesRectangleOuter(store.getFloat(BallStore.X, i),
+					store.getFloat(BallStore.Y, i), store.getFloat(BallStore.SPEED_X, i),
+					store.getFloat(BallStore.SPEED_Y, i), store.getFloat(BallStore.RADIUS, i), minX, minY, maxX, maxY,
+					thisPenetration);
+			if (thisPenetration.isPenetrating()) {
+				apply(i, thisPenetration);
+				penetrationCount++;
+			}
+		}
+	}
+
+	/** Helper method to separate balls i and j if they overlap. */
+	private boolean separate(int i, int j) {
+		float offsetX = store.getFloat(BallStore.X, j) - store.getFloat(BallStore.X, i);
+		float offsetY = store.getFloat(BallStore.Y, j) - store.getFloat(BallStore.Y, i);
+		float reach = store.getFloat(BallStore.RADIUS, i) + store.getFloat(BallStore.RADIUS, j);
+		if (offsetX * offsetX + offsetY * offsetY >= reach * reach) {
+			return false; // Apart, without the full check
+		}
+		CollisionPhysics.pointPenetratesMovingPoint(store.getFloat(BallStore.X, i), store.getFloat(BallStore.Y, i),
+				store.getFloat(BallStore.SPEED_X, i), store.getFloat(BallStore.SPEED_Y, i),
+				store.getFloat(BallStore.RADIUS, i), store.getFloat(BallStore.X, j), store.getFloat(BallStore.Y, j),
+				store.getFloat(BallStore.SPEED_X, j), store.getFloat(BallStore.SPEED_Y, j),
+				store.getFloat(BallStore.RADIUS, j), CollisionPhysics.ELASTIC, CollisionPhysics.FRICTIONLESS,
+				thisPenetration, anotherPenetration, workspace);
+		if (!thisPenetration.isPenetrating()) {
+			return false;
+		}
+		apply(i, thisPenetration);
+		apply(j, anotherPenetration);
+		return true;
+	}
+
+	/** Helper method to apply a penetration response to ball i. */
+	private void apply(int i, PenetrationResponse response) {
+		store.setFloat(BallStore.X, i, response.newX);
+		store.setFloat(BallStore.Y, i, response.newY);
+		store.setFloat(BallStore.SPEED_X, i, response.newSpeedX);
+		store.setFloat(BallStore.SPEED_Y, i, response.newSpeedY);
+	}
+
+	@Override
+	public int getBallCount() {
+		return numberOfBalls;
+	}
+
+	@Override
+	public float getBallX(int i) {
+		return store.getFloat(BallStore.X, i);
+	}
+
+	@Override
+	public float getBallY(int i) {
+		return store.getFloat(BallStore.Y, i);
+	}
+
+	@Override
+	public float getBallRadius(int i) {
+		return store.getFloat(BallStore.RADIUS, i);
+	}
+
+	@Override
+	public float getSpeedX(int i) {
+		return store.getFloat(BallStore.SPEED_X, i);
+	}
+
+	@Override
+	public float getSpeedY(int i) {
+		return store.getFloat(BallStore.SPEED_Y, i);
+	}
+
+	/** Return the number of time-steps executed so far. */
+	public long getStepCount() {
+		return stepCount;
+	}
+
+	/** Return the number of collisions taken so far. */
+	public long getCollisionCount() {
+		return collisionCount;
+	}
+
+	/** Return the number of overlaps separated so far. */
+	public long getPenetrationCount() {
+		return penetrationCount;
+	}
+}
@@ -0,0 +1,67 @@
+package ball_engine;
+
+/**
+ * Ball storage in primitive arrays on the Java heap.
+ *
+ * @version 1.0
+ */
+public class HeapBallStore implements BallStore {
+	private int capacity;
+	private float[][] floats;
+	private int[][] ints;
+	private int[][] cellInts = new int[CELL_FIELDS][0];
+
+	/**
+	 * Constructor.
+	 *
+	 * @param capacity
+	 *            : number of balls.
+	 */
+	public HeapBallStore(int capacity) {
+		this.capacity = capacity;
+		floats = new float[FLOAT_FIELDS][capacity];
+		ints = new int[INT_FIELDS][capacity];
+	}
+
+	@Override
+	public int getCapacity() {
+		return capacity;
+	}
+
+	@Override
+	public float getFloat(int field, int ball) {
+		return floats[field][ball];
+	}
+
+	@Override
+	public void setFloat(int field, int ball, float value) {
+		floats[field][ball] = value;
+	}
+
+	@Override
+	public int getInt(int field, int ball) {
+		return ints[field][ball];
+	}
+
+	@Override
+	public void setInt(int field, int ball, int value) {
+		ints[field][ball] = value;
+	}
+
+	@Override
+	public void ensureCells(int numberOfCells) {
+		if (cellInts[0].length < numberOfCells) {
+			cellInts = new int[CELL_FIELDS][numberOfCells];
+		}
+	}
+
+	@Override
+	public int getCellInt(int field, int cell) {
+		return cellInts[field][cell];
+	}
+
+	@Override
+	public void setCellInt(int field, int cell, int value) {
+		cellInts[field][cell] = value;
+	}
+}
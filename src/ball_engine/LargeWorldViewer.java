@@ -0,0 +1,178 @@
+package ball_engine;
+
+import java.util.Random;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.MouseAdapter;
+import org.eclipse.swt.events.MouseEvent;
+import org.eclipse.swt.events.MouseMoveListener;
+import org.eclipse.swt.events.MouseWheelListener;
+import org.eclipse.swt.events.PaintEvent;
+import org.eclipse.swt.events.PaintListener;
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.Rectangle;
+import org.eclipse.swt.layout.FillLayout;
+import org.eclipse.swt.widgets.Canvas;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Shell;
+
+/**
+ * A window onto a large world of balls run by the grid engine. Drag to pan,
+ * scroll to zoom. Prints the step and the paint times once a second.
+ *
+ * Usage: java ball_engine.LargeWorldViewer [balls] [heap|direct]
+ *
+ * @version 1.0
+ */
+public class LargeWorldViewer {
+	private static final int DEFAULT_BALLS = 40000;
+	private static final int TIMER_INTERVAL = 10;
+	private static final float RADIUS = 2;
+	private static final float SPACING = 4 * RADIUS; // Between lattice points
+	private static final float MAX_SPEED = 3;
+	private static final float ZOOM_STEP = 1.25f; // Per notch of the wheel
+	private GridBallEngine engine;
+	private LevelOfDetailRenderer renderer;
+	private float worldSize; // Side of the square box
+	private Canvas canvas;
+	private int canvasWidth, canvasHeight;
+	private Image image;
+	private GC gcImage;
+	private boolean viewSet; // Whether the view was fitted to the canvas yet
+	private Color background;
+	private boolean dragging;
+	private int dragX, dragY; // Last mouse position while dragging
+	private long frameCount, stepNanos, paintNanos;
+
+	public static void main(String[] args) {
+		int numberOfBalls = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_BALLS;
+		boolean heap = args.length > 1 && args[1].equals("heap");
+		BallStore store = heap ? new HeapBallStore(numberOfBalls) : new DirectBallStore(numberOfBalls);
+		new LargeWorldViewer(store).open();
+	}
+
+	/**
+	 * Constructor. Fills the store with balls on a lattice in a square box.
+	 *
+	 * @param store
+	 *            : storage for the balls.
+	 */
+	public LargeWorldViewer(BallStore store) {
+		int numberOfBalls = store.getCapacity();
+		int side = (int) Math.ceil(Math.sqrt(numberOfBalls));
+		worldSize = side * SPACING;
+		engine = new GridBallEngine(store, 0, 0, worldSize, worldSize);
+		Random random = new Random(1);
+		for (int i = 0; i < numberOfBalls; i++) {
+			double angle = random.nextDouble() * 2 * Math.PI;
+			float speed = random.nextFloat() * MAX_SPEED;
+			engine.setBall(i, (i % side + 0.5f) * SPACING, (i / side + 0.5f) * SPACING, RADIUS,
+					(float) (speed * Math.cos(angle)), (float) (speed * Math.sin(angle)));
+		}
+		engine.step(); // Sort the balls into the grid before the first paint
+	}
+
+	/**
+	 * Create the UI components and run the event loop until the window is
+	 * closed.
+	 */
+	public void open() {
+		final Display display = new Display();
+		final Shell shell = new Shell(display);
+		shell.setText("Large world");
+		shell.setLayout(new FillLayout());
+		canvas = new Canvas(shell, SWT.NO_BACKGROUND);
+		renderer = new LevelOfDetailRenderer(display, engine, new int[] { 255, 255, 255 }, new int[] { 255, 0, 0 });
+		background = display.getSystemColor(SWT.COLOR_WHITE);
+
+		canvas.addPaintListener(new PaintListener() {
+			public void paintControl(PaintEvent event) {
+				long start = System.nanoTime();
+				Rectangle bounds = canvas.getClientArea();
+				if (!viewSet && bounds.width > 0 && bounds.height > 0) {
+					// Fit the whole world to start with, once the canvas has a size
+					renderer.setView(0, 0, Math.min(bounds.width, bounds.height) / worldSize);
+					viewSet = true;
+				}
+				if (image == null || bounds.width != canvasWidth || bounds.height != canvasHeight) {
+					// Create the image to fill the canvas, only when its size changes
+					if (image != null) {
+						gcImage.dispose();
+						image.dispose();
+					}
+					canvasWidth = Math.max(1, bounds.width);
+					canvasHeight = Math.max(1, bounds.height);
+					image = new Image(display, canvasWidth, canvasHeight);
+					gcImage = new GC(image);
+				}
+				gcImage.setBackground(background);
+				gcImage.fillRectangle(0, 0, canvasWidth, canvasHeight);
+				renderer.draw(gcImage, canvasWidth, canvasHeight);
+				event.gc.drawImage(image, 0, 0);
+				paintNanos += System.nanoTime() - start;
+			}
+		});
+		canvas.addMouseListener(new MouseAdapter() {
+			@Override
+			public void mouseDown(MouseEvent event) {
+				dragging = true;
+				dragX = event.x;
+				dragY = event.y;
+			}
+
+			@Override
+			public void mouseUp(MouseEvent event) {
+				dragging = false;
+			}
+		});
+		canvas.addMouseMoveListener(new MouseMoveListener() {
+			public void mouseMove(MouseEvent event) {
+				if (dragging) {
+					renderer.pan(event.x - dragX, event.y - dragY);
+					dragX = event.x;
+					dragY = event.y;
+				}
+			}
+		});
+		canvas.addMouseWheelListener(new MouseWheelListener() {
+			public void mouseScrolled(MouseEvent event) {
+				renderer.zoom((event.count > 0) ? ZOOM_STEP : 1 / ZOOM_STEP, event.x, event.y);
+			}
+		});
+
+		shell.open();
+		Runnable runnable = new Runnable() {
+			public void run() {
+				long start = System.nanoTime();
+				engine.step();
+				stepNanos += System.nanoTime() - start;
+				canvas.redraw();
+				if (++frameCount % 30 == 0) {
+					System.out.printf("step %.1f ms, paint %.1f ms, scale %.3g px/unit, %d cells, %d balls, "
+							+ "%d density pixels%n", stepNanos / 30e6, paintNanos / 30e6, renderer.getScale(),
+							renderer.getCellsVisited(), renderer.getBallsDrawn(), renderer.getDensityPixels());
+					stepNanos = 0;
+					paintNanos = 0;
+				}
+				display.timerExec(TIMER_INTERVAL, this);
+			}
+		};
+		display.timerExec(TIMER_INTERVAL, runnable);
+
+		// run the event loop as long as the window is open
+		while (!shell.isDisposed()) {
+			if (!display.readAndDispatch()) {
+				display.sleep();
+			}
+		}
+		display.timerExec(-1, runnable);
+		if (image != null) {
+			gcImage.dispose();
+			image.dispose();
+		}
+		renderer.dispose();
+		display.dispose();
+	}
+}
@@ -0,0 +1,257 @@
+package ball_engine;
+
+import java.util.Arrays;
+
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.Device;
+import org.eclipse.swt.graphics.GC;
+
+/**
+ * Draws the balls of a grid engine through a pannable, zoomable view, at a cost
+ * that grows with the size of the view on screen rather than with the number
+ * of balls.
+ *
+ * Close up, only the cells of the engine's grid that overlap the view are
+ * visited, and their balls are drawn as ovals. A ball smaller than a pixel
+ * instead adds the share of the pixel it covers to a density pixel. From afar,
+ * when even the largest ball is smaller than a pixel, the balls are not visited
+ * at all: each pixel takes its density from the ball count of the finest level
+ * of the grid whose cells are at least a pixel wide.
+ *
+ * The density pixels are drawn in shades from the background to the ball
+ * color, a row of equal shades at a time.
+ *
+ * @version 1.0
+ */
+public class LevelOfDetailRenderer {
+	private static final float SUBPIXEL_RADIUS = 0.5f; // Smaller balls on screen become density
+	private static final int SHADES = 16; // Shades of the density pixels
+	private static final float MIN_SCALE = 1e-6f, MAX_SCALE = 1e3f;
+	private GridBallEngine engine;
+	// View: world position of the top-left pixel, and pixels per world unit
+	private float viewX, viewY;
+	private float scale = 1;
+	private Color[] shades = new Color[SHADES]; // From background to ball color
+	private float[] coverage = new float[0]; // Share of each pixel covered by balls
+	private int[] pixelColumns = new int[0]; // Column of the cell under each pixel of a row
+	// Statistics of the last frame
+	private int cellsVisited, ballsDrawn, densityPixels;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param device
+	 *            : device to create the colors on. Call dispose() to free them.
+	 * @param engine
+	 *            : the engine to draw.
+	 * @param background
+	 *            : red, green and blue of the background.
+	 * @param foreground
+	 *            : red, green and blue of the balls.
+	 */
+	public LevelOfDetailRenderer(Device device, GridBallEngine engine, int[] background, int[] foreground) {
+		this.engine = engine;
+		for (int s = 0; s < SHADES; s++) {
+			shades[s] = new Color(device, blend(background[0], foreground[0], s),
+					blend(background[1], foreground[1], s), blend(background[2], foreground[2], s));
+		}
+	}
+
+	/** Helper method to blend a color component for shade s. */
+	private static int blend(int from, int to, int s) {
+		return from + (to - from) * s / (SHADES - 1);
+	}
+
+	/** Free the colors. */
+	public void dispose() {
+		for (int s = 0; s < SHADES; s++) {
+			shades[s].dispose();
+		}
+	}
+
+	/**
+	 * Set the view.
+	 *
+	 * @param x
+	 *            : world x-position of the left edge of the view.
+	 * @param y
+	 *            : world y-position of the top edge of the view.
+	 * @param scale
+	 *            : pixels per world unit.
+	 */
+	public void setView(float x, float y, float scale) {
+		viewX = x;
+		viewY = y;
+		this.scale = Math.max(MIN_SCALE, Math.min(MAX_SCALE, scale));
+	}
+
+	/** Move the view by the given number of pixels. */
+	public void pan(int pixelsX, int pixelsY) {
+		viewX -= pixelsX / scale;
+		viewY -= pixelsY / scale;
+	}
+
+	/** Zoom the view by the given factor, keeping the given pixel in place. */
+	public void zoom(float factor, int pixelX, int pixelY) {
+		float worldX = viewX + pixelX / scale;
+		float worldY = viewY + pixelY / scale;
+		scale = Math.max(MIN_SCALE, Math.min(MAX_SCALE, scale * factor));
+		viewX = worldX - pixelX / scale;
+		viewY = worldY - pixelY / scale;
+	}
+
+	/**
+	 * Draw the balls in view, over whatever was drawn before.
+	 *
+	 * @param g
+	 *            : graphic context to draw on.
+	 * @param width
+	 *            : width of the view in pixels.
+	 * @param height
+	 *            : height of the view in pixels.
+	 */
+	public void draw(GC g, int width, int height) {
+		if (coverage.length < width * height) {
+			coverage = new float[width * height];
+		} else {
+			Arrays.fill(coverage, 0, width * height, 0);
+		}
+		cellsVisited = 0;
+		ballsDrawn = 0;
+		if (engine.maxRadius * scale < SUBPIXEL_RADIUS) {
+			countFromCells(width, height);
+		} else {
+			drawVisibleBalls(g, width, height);
+		}
+		drawDensity(g, width, height);
+	}
+
+	/**
+	 * Helper method to draw the balls in the cells that overlap the view, and add
+	 * the ones smaller than a pixel to the density pixels. The cells are widened
+	 * by one all around, as the balls have moved since they were sorted.
+	 */
+	private void drawVisibleBalls(GC g, int width, int height) {
+		g.setBackground(shades[SHADES - 1]);
+		int column1 = engine.column(viewX - engine.cellSize);
+		int column2 = engine.column(viewX + width / scale + engine.cellSize);
+		int row1 = engine.row(viewY - engine.cellSize);
+		int row2 = engine.row(viewY + height / scale + engine.cellSize);
+		BallStore store = engine.store;
+		for (int row = row1; row <= row2; row++) {
+			for (int column = column1; column <= column2; column++) {
+				cellsVisited++;
+				for (int i = store.getCellInt(BallStore.CELL_HEAD, row * engine.columns + column); i >= 0; i = store
+						.getInt(BallStore.NEXT_IN_CELL, i)) {
+					float x = (store.getFloat(BallStore.X, i) - viewX) * scale;
+					float y = (store.getFloat(BallStore.Y, i) - viewY) * scale;
+					float radius = store.getFloat(BallStore.RADIUS, i) * scale;
+					if (x + radius < 0 || x - radius >= width || y + radius < 0 || y - radius >= height) {
+						continue; // Out of view
+					}
+					if (radius >= SUBPIXEL_RADIUS) {
+						g.fillOval((int) (x - radius), (int) (y - radius), (int) (2 * radius), (int) (2 * radius));
+						ballsDrawn++;
+					} else if (x >= 0 && x < width && y >= 0 && y < height) {
+						coverage[(int) y * width + (int) x] += (float) Math.PI * radius * radius;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Helper method to set the density of each pixel from the ball count of the
+	 * cell under its center, at the finest level whose cells are at least a pixel
+	 * wide, taking all balls as large as the largest.
+	 */
+	private void countFromCells(int width, int height) {
+		int level = 0;
+		float levelCellSize = engine.cellSize;
+		while (level < engine.numberOfLevels - 1 && levelCellSize * scale < 1) {
+			level++;
+			levelCellSize *= 2;
+		}
+		int offset = engine.levelOffset[level];
+		int levelColumns = engine.levelColumns[level];
+		int levelRows = engine.levelRows[level];
+		float ballArea = (float) Math.PI * engine.maxRadius * engine.maxRadius;
+		float coveragePerBall = ballArea / (levelCellSize * levelCellSize);
+		BallStore store = engine.store;
+		// The columns are the same for every row, so find them once.
+		if (pixelColumns.length < width) {
+			pixelColumns = new int[width];
+		}
+		for (int pixelX = 0; pixelX < width; pixelX++) {
+			int column = (int) Math.floor((viewX + (pixelX + 0.5f) / scale - engine.minX) / levelCellSize);
+			pixelColumns[pixelX] = (column < levelColumns) ? column : -1;
+		}
+		for (int pixelY = 0; pixelY < height; pixelY++) {
+			int row = (int) Math.floor((viewY + (pixelY + 0.5f) / scale - engine.minY) / levelCellSize);
+			if (row < 0 || row >= levelRows) {
+				continue;
+			}
+			for (int pixelX = 0; pixelX < width; pixelX++) {
+				int column = pixelColumns[pixelX];
+				if (column < 0) {
+					continue;
+				}
+				int count = store.getCellInt(BallStore.CELL_COUNT, offset + row * levelColumns + column);
+				coverage[pixelY * width + pixelX] = count * coveragePerBall;
+			}
+		}
+		cellsVisited = width * height;
+	}
+
+	/**
+	 * Helper method to draw the density pixels, each run of pixels of the same
+	 * shade in a row at once. Any ball at all gets at least the lightest shade.
+	 */
+	private void drawDensity(GC g, int width, int height) {
+		densityPixels = 0;
+		for (int y = 0; y < height; y++) {
+			int x = 0;
+			while (x < width) {
+				int shade = shade(coverage[y * width + x]);
+				int end = x + 1;
+				while (end < width && shade(coverage[y * width + end]) == shade) {
+					end++;
+				}
+				if (shade > 0) {
+					g.setBackground(shades[shade]);
+					g.fillRectangle(x, y, end - x, 1);
+					densityPixels += end - x;
+				}
+				x = end;
+			}
+		}
+	}
+
+	/** Helper method to return the shade for the given coverage of a pixel. */
+	private static int shade(float coverage) {
+		if (coverage <= 0) {
+			return 0;
+		}
+		return Math.max(1, Math.min(SHADES - 1, Math.round(coverage * (SHADES - 1))));
+	}
+
+	/** Return the cells visited for the last frame: grid cells or pixels. */
+	public int getCellsVisited() {
+		return cellsVisited;
+	}
+
+	/** Return the number of balls drawn as ovals in the last frame. */
+	public int getBallsDrawn() {
+		return ballsDrawn;
+	}
+
+	/** Return the number of density pixels drawn in the last frame. */
+	public int getDensityPixels() {
+		return densityPixels;
+	}
+
+	/** Return the pixels per world unit. */
+	public float getScale() {
+		return scale;
+	}
+}
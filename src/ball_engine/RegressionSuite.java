@@ -0,0 +1,494 @@
+package ball_engine;
+
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.Random;
+
+import screen_saver.PolygonContainer;
+import screen_saver.ScreenSaverWorld;
+
+/**
+ * Check the engines on seeded scenarios, against the laws the physics must keep
+ * and against their time budgets. The screen saver, which finds the earliest
+ * collision among all the balls over and over, is the reference. Every engine
+ * starts from the same state as the screen saver, and the grid engine runs as
+ * it does in the large worlds.
+ *
+ * Over the first time-steps, every engine must follow the trajectories of the
+ * reference: after each time-step, every ball must be where it is in the
+ * reference, within the tolerance, and every few time-steps where its golden
+ * position says. The golden positions are those of the reference, recorded in
+ * regression-golden.properties next to this class, so that a change to the
+ * reference itself fails too, rather than carrying the engines along with it.
+ *
+ * Later on, the engines may take collisions in a different order, so their
+ * trajectories part ways, and are no longer compared. Instead, after every
+ * time-step of every engine:
+ * <ul>
+ * <li>the total kinetic energy must be that of the start, as the balls are
+ * elastic;</li>
+ * <li>in the open scenario, while no ball comes near the walls, the total
+ * momentum must be that of the start too;</li>
+ * <li>every ball must be inside the box;</li>
+ * <li>no two balls may overlap.</li>
+ * </ul>
+ *
+ * The time per step of each engine on each scenario, the median over blocks of
+ * steps, is then checked against its budget, read from
+ * regression-budgets.properties next to this class, or from the given file. The
+ * screen saver has a budget in microseconds per step. Each other engine is
+ * divided by the time of the screen saver on the same scenario, in the same run,
+ * and the ratio must be within its budget, so that it holds on any machine. The
+ * budgets are set by hand from what each engine is meant to achieve, not from
+ * what it measured. The times are taken after warming up on all the scenarios
+ * until the compiler has settled, a few times over, and the best counts. An
+ * engine without a budget is only timed.
+ *
+ * So an engine that is faster but goes wrong, or right but slower, fails. Exits
+ * with status 1 if any check failed, so that a build can run it.
+ *
+ * Usage: java ball_engine.RegressionSuite [-budgets file] [-golden file] [-record file]
+ *
+ * -record records the golden positions of the reference in the given file, to
+ * replace regression-golden.properties when the reference is meant to change.
+ *
+ * @version 1.0
+ */
+public class RegressionSuite {
+	private static final String BUDGETS = "regression-budgets.properties";
+	private static final String GOLDEN = "regression-golden.properties";
+	// The scenarios: the screen saver's own balls in its own box, then balls
+	// placed at random, without overlap, with radii from 60 to 100 % of the given
+	// one and speeds from 30 to 100 % of the given one. The open scenario starts
+	// the balls in the middle of a box too large for them to reach its walls soon.
+	private static final String[] SCENARIOS = { "default", "few", "crowd", "fast", "many", "open" };
+	private static final int[] BALLS = { 0, 20, 60, 15, 200, 40 };
+	private static final float[] RADII = { 0, 15, 8, 10, 5, 8 };
+	private static final float[] SPEEDS = { 0, 4, 4, 15, 3, 1 };
+	private static final float[] BOX_SIZES = { 0, 0, 0, 0, 0, 4000 }; // Square box, or the screen saver's
+	private static final float[] START_SIZES = { 0, 0, 0, 0, 0, 400 }; // Square the balls start in
+	private static final float SCREEN_WIDTH = 639, SCREEN_HEIGHT = 479; // The screen saver's box
+	private static final long SEED = 42;
+	private static final String[] ENGINES = { "reference", "grid-heap", "grid-direct" };
+	private static final int STEPS = 1000; // Time-steps checked per scenario
+	private static final int GOLDEN_STEPS = 25; // Time-steps the engines must follow the reference for
+	private static final int GOLDEN_INTERVAL = 5; // Time-steps between golden positions
+	private static final int BLOCK_STEPS = 50; // Time-steps per timed block
+	private static final int TIMED_RUNS = 3; // Runs timed per scenario, the best counts
+	private static final int MAX_WARM_UP_ROUNDS = 8; // Rounds over all the scenarios before timing
+	private static final long SETTLED_COMPILE_MILLIS = 100; // Compilation in a round once the compiler has settled
+	// Tolerances
+	private static final double ENERGY_TOLERANCE = 1e-3; // Relative to the start
+	private static final double MOMENTUM_TOLERANCE = 1e-3; // Relative to the sum of the magnitudes at the start
+	private static final float POSITION_TOLERANCE = 0.1f; // Overlap with a wall or a ball, or offset from the reference
+
+	public static void main(String[] args) throws IOException {
+		String budgetsFile = null, goldenFile = null, recordFile = null;
+		for (int a = 0; a < args.length; a++) {
+			if (args[a].equals("-budgets") && a + 1 < args.length) {
+				budgetsFile = args[++a];
+			} else if (args[a].equals("-golden") && a + 1 < args.length) {
+				goldenFile = args[++a];
+			} else if (args[a].equals("-record") && a + 1 < args.length) {
+				recordFile = args[++a];
+			} else {
+				System.err.println(
+						"Usage: java ball_engine.RegressionSuite [-budgets file] [-golden file] [-record file]");
+				System.exit(2);
+			}
+		}
+		if (recordFile != null) {
+			recordGolden(recordFile);
+			return;
+		}
+		Properties budgets = loadProperties(budgetsFile, BUDGETS);
+		Properties golden = loadProperties(goldenFile, GOLDEN);
+
+		// Warm up on all the scenarios first, so that the compiler is done with the
+		// engines before any of them is timed. It can lag rounds behind, on one
+		// processor, so go on until a round leaves it next to nothing to compile.
+		CompilationMXBean compiler = ManagementFactory.getCompilationMXBean();
+		boolean timesCompiler = (compiler != null) && compiler.isCompilationTimeMonitoringSupported();
+		long compileMillis = 0;
+		for (int round = 0; round < MAX_WARM_UP_ROUNDS; round++) {
+			for (int s = 0; s < SCENARIOS.length; s++) {
+				run(s, false, null, null);
+			}
+			long totalMillis = timesCompiler ? compiler.getTotalCompilationTime() : 0;
+			if (round > 0 && totalMillis - compileMillis < SETTLED_COMPILE_MILLIS) {
+				break;
+			}
+			compileMillis = totalMillis;
+		}
+		int failures = 0;
+		for (int s = 0; s < SCENARIOS.length; s++) {
+			double[] micros = new double[ENGINES.length];
+			Arrays.fill(micros, Double.MAX_VALUE);
+			failures += run(s, true, micros, golden);
+			for (int r = 1; r < TIMED_RUNS; r++) {
+				run(s, false, micros, null);
+			}
+			String referenceKey = SCENARIOS[s] + "." + ENGINES[0];
+			String referenceBudget = budgets.getProperty(referenceKey);
+			if (referenceBudget == null) {
+				System.out.printf("WARN %s: %.1f us per step, no budget%n", referenceKey, micros[0]);
+			} else if (micros[0] > Double.parseDouble(referenceBudget)) {
+				System.out.printf("FAIL %s: %.1f us per step, over the budget of %s us%n", referenceKey, micros[0],
+						referenceBudget);
+				failures++;
+			} else {
+				System.out.printf("PASS %s: %.1f us per step, budget %s us%n", referenceKey, micros[0],
+						referenceBudget);
+			}
+			for (int e = 1; e < ENGINES.length; e++) {
+				String key = SCENARIOS[s] + "." + ENGINES[e];
+				double ratio = micros[e] / micros[0];
+				String budget = budgets.getProperty(key);
+				if (budget == null) {
+					System.out.printf("WARN %s: %.1f us per step, %.2f times the reference, no budget%n", key,
+							micros[e], ratio);
+				} else if (ratio > Double.parseDouble(budget)) {
+					System.out.printf("FAIL %s: %.1f us per step, %.2f times the reference, over the budget of %s%n",
+							key, micros[e], ratio, budget);
+					failures++;
+				} else {
+					System.out.printf("PASS %s: %.1f us per step, %.2f times the reference, budget %s%n", key,
+							micros[e], ratio, budget);
+				}
+			}
+		}
+
+		if (failures > 0) {
+			System.out.println(failures + " check(s) failed");
+			System.exit(1);
+		}
+	}
+
+	/** Helper method to read the given file, or else the given resource from the class path. */
+	private static Properties loadProperties(String file, String resource) throws IOException {
+		Properties properties = new Properties();
+		InputStream in = (file != null) ? new FileInputStream(file)
+				: RegressionSuite.class.getResourceAsStream(resource);
+		if (in == null) {
+			System.out.println("WARN no " + resource + " on the class path");
+			return properties;
+		}
+		try {
+			properties.load(in);
+		} finally {
+			in.close();
+		}
+		return properties;
+	}
+
+	/**
+	 * Helper method to record the positions of the reference every
+	 * GOLDEN_INTERVAL time-steps up to GOLDEN_STEPS, in every scenario, in the
+	 * given file. Each position is on a line of its own, so that a change shows
+	 * which balls moved.
+	 */
+	private static void recordGolden(String file) throws IOException {
+		PrintWriter out = new PrintWriter(new FileWriter(file));
+		try {
+			out.println("# Golden positions of ball_engine.RegressionSuite: the x- and y-position of each ball");
+			out.println("# of the reference, the screen saver, after the given time-step of each scenario.");
+			out.println("# Recorded with -record <file>, only when the reference is meant to change.");
+			for (int s = 0; s < SCENARIOS.length; s++) {
+				BallEngine reference = createReference(s);
+				for (int step = 1; step <= GOLDEN_STEPS; step++) {
+					reference.step();
+					if (step % GOLDEN_INTERVAL != 0) {
+						continue;
+					}
+					out.print(SCENARIOS[s] + "." + step + " =");
+					for (int i = 0; i < reference.getBallCount(); i++) {
+						out.print(" \\\n\t" + reference.getBallX(i) + " " + reference.getBallY(i));
+					}
+					out.println();
+				}
+			}
+		} finally {
+			out.close();
+		}
+		System.out.println("Recorded the golden positions in " + file);
+	}
+
+	/**
+	 * Run scenario s on every engine side by side, and check each after every
+	 * time-step if asked to. Print the result for each engine.
+	 *
+	 * @param s
+	 *            : index of the scenario.
+	 * @param check
+	 *            : whether to check the engines.
+	 * @param micros
+	 *            : if not null, the median time per step of each engine, in
+	 *            microseconds, is returned in it if lower than the time there.
+	 * @param golden
+	 *            : golden positions to check the engines against, if checking.
+	 * @return the number of engines that went wrong.
+	 */
+	private static int run(int s, boolean check, double[] micros, Properties golden) {
+		BallEngine[] engines = new BallEngine[ENGINES.length];
+		engines[0] = createReference(s);
+		for (int e = 1; e < ENGINES.length; e++) {
+			engines[e] = createCandidate(s, ENGINES[e], engines[0]);
+		}
+		float boxWidth = (BOX_SIZES[s] > 0) ? BOX_SIZES[s] : SCREEN_WIDTH;
+		float boxHeight = (BOX_SIZES[s] > 0) ? BOX_SIZES[s] : SCREEN_HEIGHT;
+		double startEnergy = energy(engines[0]);
+		double[] startMomentum = new double[3];
+		momentum(engines[0], startMomentum);
+		double[] momentum = new double[3];
+		int numberOfBlocks = STEPS / BLOCK_STEPS;
+		long[][] blockNanos = new long[ENGINES.length][numberOfBlocks];
+		String[] failure = new String[ENGINES.length];
+		int[] failureStep = new int[ENGINES.length];
+		int[] momentumSteps = new int[ENGINES.length]; // Time-steps before a ball neared a wall
+		float[] referencePositions = new float[2 * engines[0].getBallCount()];
+		boolean hasGolden = true;
+
+		for (int step = 1; step <= numberOfBlocks * BLOCK_STEPS; step++) {
+			for (int e = 0; e < ENGINES.length; e++) {
+				long start = System.nanoTime();
+				engines[e].step();
+				blockNanos[e][(step - 1) / BLOCK_STEPS] += System.nanoTime() - start;
+			}
+			if (!check) {
+				continue;
+			}
+			float[] goldenPositions = null;
+			if (step <= GOLDEN_STEPS) {
+				for (int i = 0; i < engines[0].getBallCount(); i++) {
+					referencePositions[2 * i] = engines[0].getBallX(i);
+					referencePositions[2 * i + 1] = engines[0].getBallY(i);
+				}
+				if (step % GOLDEN_INTERVAL == 0) {
+					goldenPositions = parsePositions(golden.getProperty(SCENARIOS[s] + "." + step));
+					hasGolden &= (goldenPositions != null);
+				}
+			}
+			for (int e = 0; e < ENGINES.length; e++) {
+				if (failure[e] != null) {
+					continue;
+				}
+				BallEngine engine = engines[e];
+				if (step <= GOLDEN_STEPS && e > 0) {
+					failure[e] = checkCourse(engine, referencePositions, "the reference");
+				}
+				if (failure[e] == null && goldenPositions != null) {
+					failure[e] = checkCourse(engine, goldenPositions, "the golden position");
+				}
+				double energyError = Math.abs(energy(engine) - startEnergy) / startEnergy;
+				if (failure[e] == null && !(energyError <= ENERGY_TOLERANCE)) {
+					failure[e] = "energy is " + energyError + " off";
+				}
+				if (failure[e] == null && BOX_SIZES[s] > 0 && momentumSteps[e] == step - 1
+						&& !nearWall(engine, boxWidth, boxHeight)) {
+					momentum(engine, momentum);
+					double momentumError = Math.hypot(momentum[0] - startMomentum[0],
+							momentum[1] - startMomentum[1]) / startMomentum[2];
+					if (!(momentumError <= MOMENTUM_TOLERANCE)) {
+						failure[e] = "momentum is " + momentumError + " off";
+					}
+					momentumSteps[e] = step;
+				}
+				if (failure[e] == null) {
+					failure[e] = checkPositions(engine, boxWidth, boxHeight);
+				}
+				if (failure[e] != null) {
+					failureStep[e] = step;
+				}
+			}
+		}
+		for (int e = 0; micros != null && e < ENGINES.length; e++) {
+			Arrays.sort(blockNanos[e]);
+			micros[e] = Math.min(micros[e], blockNanos[e][numberOfBlocks / 2] / 1e3 / BLOCK_STEPS);
+		}
+		if (!check) {
+			return 0;
+		}
+
+		if (!hasGolden) {
+			System.out.println("WARN " + SCENARIOS[s] + ": no golden positions, the reference is not checked");
+		}
+		int failures = 0;
+		for (int e = 0; e < ENGINES.length; e++) {
+			String name = SCENARIOS[s] + "." + ENGINES[e];
+			if (failure[e] != null) {
+				System.out.println("FAIL " + name + ": at time-step " + failureStep[e] + ", " + failure[e]);
+				failures++;
+			} else {
+				System.out.println("PASS " + name + ": " + engines[e].getBallCount() + " balls, " + STEPS
+						+ " time-steps within the tolerances, on course over " + GOLDEN_STEPS
+						+ ((BOX_SIZES[s] > 0) ? ", momentum over " + momentumSteps[e] : ""));
+			}
+		}
+		return failures;
+	}
+
+	/** Helper method to set up the screen saver for scenario s. */
+	private static BallEngine createReference(int s) {
+		if (BALLS[s] == 0) {
+			return new ScreenSaverEngine(new ScreenSaverWorld());
+		}
+		ScreenSaverWorld reference = new ScreenSaverWorld(BALLS[s]);
+		float boxSize = BOX_SIZES[s];
+		if (boxSize > 0) {
+			reference.setContainer(new PolygonContainer(boxSize / 8, 0, 0, boxSize, 0, boxSize, boxSize, 0, boxSize));
+		}
+		// The balls start in a square in the middle of the box, or fill it.
+		float startX = (boxSize > 0) ? (boxSize - START_SIZES[s]) / 2 : 0;
+		float startY = startX;
+		float startWidth = (boxSize > 0) ? START_SIZES[s] : SCREEN_WIDTH;
+		float startHeight = (boxSize > 0) ? START_SIZES[s] : SCREEN_HEIGHT;
+
+		Random random = new Random(SEED);
+		float[] x = new float[BALLS[s]], y = new float[BALLS[s]], radius = new float[BALLS[s]];
+		for (int i = 0; i < BALLS[s]; i++) {
+			radius[i] = RADII[s] * (0.6f + 0.4f * random.nextFloat());
+			boolean overlaps;
+			do {
+				x[i] = startX + radius[i] + random.nextFloat() * (startWidth - 2 * radius[i]);
+				y[i] = startY + radius[i] + random.nextFloat() * (startHeight - 2 * radius[i]);
+				overlaps = false;
+				for (int j = 0; j < i && !overlaps; j++) {
+					float distanceX = x[i] - x[j];
+					float distanceY = y[i] - y[j];
+					float gap = radius[i] + radius[j] + 2;
+					overlaps = distanceX * distanceX + distanceY * distanceY < gap * gap;
+				}
+			} while (overlaps);
+			double angle = random.nextDouble() * 2 * Math.PI;
+			float speed = SPEEDS[s] * (0.3f + 0.7f * random.nextFloat());
+			reference.setBall(i, x[i], y[i], radius[i], (float) (speed * Math.cos(angle)),
+					(float) (speed * Math.sin(angle)));
+		}
+		return new ScreenSaverEngine(reference);
+	}
+
+	/** Helper method to set up the named grid engine for scenario s, in the same state as the reference. */
+	private static BallEngine createCandidate(int s, String name, BallEngine reference) {
+		int numberOfBalls = reference.getBallCount();
+		BallStore store = name.equals("grid-heap") ? new HeapBallStore(numberOfBalls)
+				: new DirectBallStore(numberOfBalls);
+		float boxWidth = (BOX_SIZES[s] > 0) ? BOX_SIZES[s] : SCREEN_WIDTH;
+		float boxHeight = (BOX_SIZES[s] > 0) ? BOX_SIZES[s] : SCREEN_HEIGHT;
+		GridBallEngine engine = new GridBallEngine(store, 0, 0, boxWidth, boxHeight);
+		for (int i = 0; i < numberOfBalls; i++) {
+			engine.setBall(i, reference.getBallX(i), reference.getBallY(i), reference.getBallRadius(i),
+					reference.getSpeedX(i), reference.getSpeedY(i));
+		}
+		return engine;
+	}
+
+	/** Helper method to return the total kinetic energy, with the mass as the cube of the radius. */
+	private static double energy(BallEngine engine) {
+		double energy = 0;
+		for (int i = 0; i < engine.getBallCount(); i++) {
+			double radius = engine.getBallRadius(i);
+			double speedX = engine.getSpeedX(i);
+			double speedY = engine.getSpeedY(i);
+			energy += 0.5 * radius * radius * radius * (speedX * speedX + speedY * speedY);
+		}
+		return energy;
+	}
+
+	/**
+	 * Helper method to store the total momentum in x and y in the given array,
+	 * then the sum of the magnitudes of the momenta of the balls.
+	 */
+	private static void momentum(BallEngine engine, double[] momentum) {
+		momentum[0] = 0;
+		momentum[1] = 0;
+		momentum[2] = 0;
+		for (int i = 0; i < engine.getBallCount(); i++) {
+			double radius = engine.getBallRadius(i);
+			double mass = radius * radius * radius;
+			momentum[0] += mass * engine.getSpeedX(i);
+			momentum[1] += mass * engine.getSpeedY(i);
+			momentum[2] += mass * Math.hypot(engine.getSpeedX(i), engine.getSpeedY(i));
+		}
+	}
+
+	/** Helper method to return true if a ball may reach a wall of the box within the next time-step. */
+	private static boolean nearWall(BallEngine engine, float boxWidth, float boxHeight) {
+		for (int i = 0; i < engine.getBallCount(); i++) {
+			float reach = engine.getBallRadius(i) + Math.abs(engine.getSpeedX(i)) + Math.abs(engine.getSpeedY(i));
+			if (engine.getBallX(i) < reach || engine.getBallX(i) > boxWidth - reach || engine.getBallY(i) < reach
+					|| engine.getBallY(i) > boxHeight - reach) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Helper method to check that every ball is inside the box, and that no two
+	 * balls overlap, within the tolerance.
+	 *
+	 * @return a description of the first problem found, or null if none.
+	 */
+	private static String checkPositions(BallEngine engine, float boxWidth, float boxHeight) {
+		int numberOfBalls = engine.getBallCount();
+		for (int i = 0; i < numberOfBalls; i++) {
+			float x = engine.getBallX(i);
+			float y = engine.getBallY(i);
+			float radius = engine.getBallRadius(i) - POSITION_TOLERANCE;
+			if (!(x >= radius && x <= boxWidth - radius && y >= radius && y <= boxHeight - radius)) {
+				return "ball " + i + " at (" + x + ", " + y + ") is out of the box";
+			}
+			for (int j = i + 1; j < numberOfBalls; j++) {
+				float distanceX = engine.getBallX(j) - x;
+				float distanceY = engine.getBallY(j) - y;
+				float reach = radius + engine.getBallRadius(j);
+				if (distanceX * distanceX + distanceY * distanceY < reach * reach) {
+					float overlap = engine.getBallRadius(i) + engine.getBallRadius(j)
+							- (float) Math.sqrt(distanceX * distanceX + distanceY * distanceY);
+					return "balls " + i + " and " + j + " overlap by " + overlap;
+				}
+			}
+		}
+		return null;
+	}
+
+	/** Helper method to return the positions listed in the given golden value, x and y in turn, or null if none. */
+	private static float[] parsePositions(String value) {
+		if (value == null) {
+			return null;
+		}
+		String[] numbers = value.trim().split("\\s+");
+		float[] positions = new float[numbers.length];
+		for (int n = 0; n < numbers.length; n++) {
+			positions[n] = Float.parseFloat(numbers[n]);
+		}
+		return positions;
+	}
+
+	/**
+	 * Helper method to check that every ball is at the given position, x and y in
+	 * turn, within the tolerance.
+	 *
+	 * @return a description of the first ball off course, or null if none.
+	 */
+	private static String checkCourse(BallEngine engine, float[] positions, String what) {
+		if (positions.length != 2 * engine.getBallCount()) {
+			return "there are " + positions.length / 2 + " balls in " + what;
+		}
+		for (int i = 0; i < engine.getBallCount(); i++) {
+			double offset = Math.hypot(engine.getBallX(i) - positions[2 * i],
+					engine.getBallY(i) - positions[2 * i + 1]);
+			if (!(offset <= POSITION_TOLERANCE)) {
+				return "ball " + i + " is " + offset + " off " + what;
+			}
+		}
+		return null;
+	}
+}
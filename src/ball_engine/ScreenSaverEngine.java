@@ -0,0 +1,59 @@
+package ball_engine;
+
+import screen_saver.ScreenSaverWorld;
+
+/**
+ * The screen saver seen as a BallEngine, so that the other engines can be run
+ * side by side with it. Its time-step finds the earliest collision among all
+ * the balls, over and over, which makes it the reference for their physics.
+ *
+ * @version 1.0
+ */
+class ScreenSaverEngine implements BallEngine {
+	private ScreenSaverWorld screenSaver;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param screenSaver
+	 *            : the screen saver to step.
+	 */
+	ScreenSaverEngine(ScreenSaverWorld screenSaver) {
+		this.screenSaver = screenSaver;
+	}
+
+	@Override
+	public void step() {
+		screenSaver.screenSaverUpdate();
+	}
+
+	@Override
+	public int getBallCount() {
+		return screenSaver.getBallCount();
+	}
+
+	@Override
+	public float getBallX(int i) {
+		return screenSaver.getBallX(i);
+	}
+
+	@Override
+	public float getBallY(int i) {
+		return screenSaver.getBallY(i);
+	}
+
+	@Override
+	public float getBallRadius(int i) {
+		return screenSaver.getBallRadius(i);
+	}
+
+	@Override
+	public float getSpeedX(int i) {
+		return screenSaver.getSpeedX(i);
+	}
+
+	@Override
+	public float getSpeedY(int i) {
+		return screenSaver.getSpeedY(i);
+	}
+}
@@ -0,0 +1,78 @@
+package collisionphysics;
+
+/**
+ * A capsule collider: a line segment swept by a radius. A capsule whose two
+ * ends coincide is a circle.
+ *
+ * @version 1.0
+ */
+public class Capsule extends ConvexShape {
+	private float x1, y1, x2, y2; // Ends of the core segment, around the origin
+
+	/**
+	 * Constructor.
+	 *
+	 * @param x1
+	 *            : x-position of the first end, relative to the origin.
+	 * @param y1
+	 *            : y-position of the first end, relative to the origin.
+	 * @param x2
+	 *            : x-position of the second end, relative to the origin.
+	 * @param y2
+	 *            : y-position of the second end, relative to the origin.
+	 * @param radius
+	 *            : radius around the segment.
+	 */
+	public Capsule(float x1, float y1, float x2, float y2, float radius) {
+		set(x1, y1, x2, y2, radius);
+	}
+
+	/** Set or reset the shape of the capsule. */
+	void set(float x1, float y1, float x2, float y2, float radius) {
+		assert (radius >= 0) : "Negative radius!";
+		this.x1 = x1;
+		this.y1 = y1;
+		this.x2 = x2;
+		this.y2 = y2;
+		this.radius = radius;
+		this.boundingRadius = (float) Math.max(Math.sqrt(x1 * x1 + y1 * y1), Math.sqrt(x2 * x2 + y2 * y2)) + radius;
+		double length = Math.sqrt((x2 - x1) * (x2 - x1) + (y2 - y1) * (y2 - y1));
+		this.mass = massOfArea(2 * radius * length + Math.PI * radius * radius);
+	}
+
+	@Override
+	int support(double directionX, double directionY) {
+		return (x1 * directionX + y1 * directionY >= x2 * directionX + y2 * directionY) ? 0 : 1;
+	}
+
+	@Override
+	float coreX(int vertex) {
+		return (vertex == 0) ? x1 : x2;
+	}
+
+	@Override
+	float coreY(int vertex) {
+		return (vertex == 0) ? y1 : y2;
+	}
+
+	/** Return the x-position of the first end, relative to the origin. */
+	public float getX1() {
+		return x1;
+	}
+
+	/** Return the y-position of the first end, relative to the origin. */
+	public float getY1() {
+		return y1;
+	}
+
+	/** Return the x-position of the second end, relative to the origin. */
+	public float getX2() {
+		return x2;
+	}
+
+	/** Return the y-position of the second end, relative to the origin. */
+	public float getY2() {
+		return y2;
+	}
+
+}
@@ -18,9 +18,56 @@ package collisionphysics;
  */
 public class CollisionPhysics {
 
-	// Working copy for computing response in intersect(DesktopScreen box),
-	// to avoid repeatedly allocating objects.
-	private static CollisionResponse tempResponse = new CollisionResponse();
+	/** Restitution of a perfectly elastic impact, which keeps all the speed. */
+	public static final float ELASTIC = 1.0f;
+	/** Friction of a perfectly smooth impact, which keeps the tangential speed. */
+	public static final float FRICTIONLESS = 0.0f;
+
+	/**
+	 * Working copies, to avoid repeatedly allocating objects. Each world holds
+	 * one and passes it to the methods that take it, so that independent worlds
+	 * can be stepped on several threads at once. A workspace must not be used by
+	 * two threads at the same time.
+	 */
+	public static class Workspace {
+		// For computing response in intersect(DesktopScreen box)
+		CollisionResponse tempResponse = new CollisionResponse();
+		// For computing the bounce in pointPenetratesMovingPoint()
+		CollisionResponse p1Bounce = new CollisionResponse();
+		CollisionResponse p2Bounce = new CollisionResponse();
+		// For solving polynomials in earliestEntry(). Row k holds the
+		// coefficients (lowest order first) and the roots of the k-th derivative.
+		double[][] polyCoeffs = new double[5][5];
+		double[][] polyRoots = new double[5][4];
+		// A point (with radius) as a shape, for the point versus shape methods
+		Capsule pointShape = new Capsule(0, 0, 0, 0, 0);
+		// Set by shapeTimeOfImpact(): false if it ran out of iterations before the
+		// shapes touched, so that the returned time is only a safe checkpoint.
+		boolean contactReached;
+		// The GJK simplex. It holds up to 3 points of the Minkowski difference
+		// s1 - s2, newest last.
+		double[] simplexX = new double[3];
+		double[] simplexY = new double[3];
+		int simplexSize;
+		// Contact normal found by the last gjkDistance(w), from s1 towards s2
+		double contactNormalX, contactNormalY;
+		// Closest point of the simplex to the origin, found by reduceSimplex(w)
+		double gjkClosestX, gjkClosestY;
+		// For rotate(w)
+		double[] rotateResult = new double[2];
+
+		/** Constructor. */
+		public Workspace() {
+		}
+	}
+
+	// Working copies of each thread, for the methods called without a workspace
+	private static final ThreadLocal<Workspace> workspace = new ThreadLocal<Workspace>() {
+		@Override
+		protected Workspace initialValue() {
+			return new Workspace();
+		}
+	};
 
 	/**
 	 * Detect collision for a moving point bouncing inside a rectangular container,
@@ -56,11 +103,97 @@ public class CollisionPhysics {
 	public static void pointIntersectsRectangleOuter(float pointX, float pointY, float speedX, float speedY,
 			float radius, float rectX1, float rectY1, float rectX2, float rectY2, float timeLimit,
 			CollisionResponse response) {
+		pointIntersectsRectangleOuter(pointX, pointY, speedX, speedY, radius, rectX1, rectY1, rectX2, rectY2, ELASTIC,
+				FRICTIONLESS, timeLimit, response);
+	}
+
+	/**
+	 * Detect collision for a moving point bouncing inside a rectangular container,
+	 * within the given timeLimit, losing speed to restitution and friction on
+	 * impact. The result is passed back in the given CollisionResponse object.
+	 * 
+	 * @param pointX
+	 *            : x-position of the center of the point.
+	 * @param pointY
+	 *            : y-position of the center of the point.
+	 * @param speedX
+	 *            : speed in x-direction.
+	 * @param speedY
+	 *            : speed in y-direction.
+	 * @param radius
+	 *            : radius of the point.
+	 * @param rectX1
+	 *            : top-left corner x of the rectangle
+	 * @param rectY1
+	 *            : top-left corner y of the rectangle
+	 * @param rectX2
+	 *            : bottom-right corner x of the rectangle
+	 * @param rectY2
+	 *            : bottom-right corner y of the rectangle
+	 * @param restitution
+	 *            : fraction of the normal speed kept after impact, in [0, 1] range.
+	 * @param friction
+	 *            : coefficient of friction against the tangential speed.
+	 * @param timeLimit
+	 *            : max time to detect collision, in (0, 1] range.
+	 * @param response
+	 *            : If collision is detected, update the collision time and
+	 *            response. Otherwise, set collision time to infinity.
+	 */
+	public static void pointIntersectsRectangleOuter(float pointX, float pointY, float speedX, float speedY,
+			float radius, float rectX1, float rectY1, float rectX2, float rectY2, float restitution, float friction,
+			float timeLimit, CollisionResponse response) {
+		pointIntersectsRectangleOuter(pointX, pointY, speedX, speedY, radius, rectX1, rectY1, rectX2, rectY2,
+				restitution, friction, timeLimit, response, workspace.get());
+	}
 
+	/**
+	 * Detect collision for a moving point bouncing inside a rectangular container,
+	 * within the given timeLimit, losing speed to restitution and friction on
+	 * impact. The result is passed back in the given CollisionResponse object.
+	 * 
+	 * @param pointX
+	 *            : x-position of the center of the point.
+	 * @param pointY
+	 *            : y-position of the center of the point.
+	 * @param speedX
+	 *            : speed in x-direction.
+	 * @param speedY
+	 *            : speed in y-direction.
+	 * @param radius
+	 *            : radius of the point.
+	 * @param rectX1
+	 *            : top-left corner x of the rectangle
+	 * @param rectY1
+	 *            : top-left corner y of the rectangle
+	 * @param rectX2
+	 *            : bottom-right corner x of the rectangle
+	 * @param rectY2
+	 *            : bottom-right corner y of the rectangle
+	 * @param restitution
+	 *            : fraction of the normal speed kept after impact, in [0, 1] range.
+	 * @param friction
+	 *            : coefficient of friction against the tangential speed.
+	 * @param timeLimit
+	 *            : max time to detect collision, in (0, 1] range.
+	 * @param response
+	 *            : If collision is detected, update the collision time and
+	 *            response. Otherwise, set collision time to infinity.
+	 * @param w
+	 *            : working copies of the caller, used instead of those of the
+	 *            calling thread.
+	 */
+	public static void pointIntersectsRectangleOuter(float pointX, float pointY, float speedX, float speedY,
+			float radius, float rectX1, float rectY1, float rectX2, float rectY2, float restitution, float friction,
+			float timeLimit, CollisionResponse response, Workspace w) {
 		// Assumptions:
 		assert (rectX1 < rectX2) && (rectY1 < rectY2) : "Malformed rectangle!";
-		assert (pointX >= rectX1 + radius) && (pointX <= rectX2 - radius) && (pointY >= rectY1 + radius)
-				&& (pointY <= rectY2 - radius) : "Point (with radius) is outside the rectangular container!";
+		// A contact within the penetration tolerance is left alone, so allow it.
+		assert (pointX >= rectX1 + radius - PENETRATION_TOLERANCE)
+				&& (pointX <= rectX2 - radius + PENETRATION_TOLERANCE)
+				&& (pointY >= rectY1 + radius - PENETRATION_TOLERANCE)
+				&& (pointY <= rectY2 - radius + PENETRATION_TOLERANCE)
+				: "Point (with radius) is outside the rectangular container!";
 		assert (radius >= 0) : "Negative radius!";
 		assert (timeLimit > 0) : "Non-positive time";
 
@@ -70,24 +203,28 @@ public class CollisionPhysics {
 		// Need to look for the earliest collision, if any.
 
 		// Right border
-		pointIntersectsLineVertical(pointX, pointY, speedX, speedY, radius, rectX2, timeLimit, tempResponse);
-		if (tempResponse.t < response.t) {
-			response.copy(tempResponse); // Copy into resultant response
+		pointIntersectsLineVertical(pointX, pointY, speedX, speedY, radius, rectX2, restitution, friction, timeLimit,
+				w.tempResponse);
+		if (w.tempResponse.t < response.t) {
+			response.copy(w.tempResponse); // Copy into resultant response
 		}
 		// Left border
-		pointIntersectsLineVertical(pointX, pointY, speedX, speedY, radius, rectX1, timeLimit, tempResponse);
-		if (tempResponse.t < response.t) {
-			response.copy(tempResponse); // Copy into resultant response
+		pointIntersectsLineVertical(pointX, pointY, speedX, speedY, radius, rectX1, restitution, friction, timeLimit,
+				w.tempResponse);
+		if (w.tempResponse.t < response.t) {
+			response.copy(w.tempResponse); // Copy into resultant response
 		}
 		// Top border
-		pointIntersectsLineHorizontal(pointX, pointY, speedX, speedY, radius, rectY1, timeLimit, tempResponse);
-		if (tempResponse.t < response.t) {
-			response.copy(tempResponse); // Copy into resultant response
+		pointIntersectsLineHorizontal(pointX, pointY, speedX, speedY, radius, rectY1, restitution, friction, timeLimit,
+				w.tempResponse);
+		if (w.tempResponse.t < response.t) {
+			response.copy(w.tempResponse); // Copy into resultant response
 		}
 		// Bottom border
-		pointIntersectsLineHorizontal(pointX, pointY, speedX, speedY, radius, rectY2, timeLimit, tempResponse);
-		if (tempResponse.t < response.t) {
-			response.copy(tempResponse); // Copy into resultant response
+		pointIntersectsLineHorizontal(pointX, pointY, speedX, speedY, radius, rectY2, restitution, friction, timeLimit,
+				w.tempResponse);
+		if (w.tempResponse.t < response.t) {
+			response.copy(w.tempResponse); // Copy into resultant response
 		}
 	}
 
@@ -118,6 +255,39 @@ public class CollisionPhysics {
 	 */
 	public static void pointIntersectsLineVertical(float pointX, float pointY, float speedX, float speedY, float radius,
 			float lineX, float timeLimit, CollisionResponse response) {
+		pointIntersectsLineVertical(pointX, pointY, speedX, speedY, radius, lineX, ELASTIC, FRICTIONLESS, timeLimit,
+				response);
+	}
+
+	/**
+	 * Detect collision for a moving point hitting a vertical line, within the given
+	 * timeLimit, losing speed to restitution and friction on impact. The result is
+	 * passed back in the given CollisionResponse object.
+	 * 
+	 * @param pointX
+	 *            : x-position of the center of the point.
+	 * @param pointY
+	 *            : y-position of the center of the point.
+	 * @param speedX
+	 *            : speed in x-direction.
+	 * @param speedY
+	 *            : speed in y-direction.
+	 * @param radius
+	 *            : radius of the point. Zero for a true point.
+	 * @param lineX
+	 *            : x-value of the vertical line
+	 * @param restitution
+	 *            : fraction of the normal speed kept after impact, in [0, 1] range.
+	 * @param friction
+	 *            : coefficient of friction against the tangential speed.
+	 * @param timeLimit
+	 *            : max time to detect collision, in (0, 1] range.
+	 * @param response
+	 *            : If collision is detected, update the collision time and
+	 *            response. Otherwise, set collision time to infinity.
+	 */
+	public static void pointIntersectsLineVertical(float pointX, float pointY, float speedX, float speedY, float radius,
+			float lineX, float restitution, float friction, float timeLimit, CollisionResponse response) {
 
 		// Assumptions:
 		assert (radius >= 0) : "Negative radius!";
@@ -141,8 +311,8 @@ public class CollisionPhysics {
 		float t = distance / speedX;
 		if (t > 0 && t <= timeLimit) {
 			response.t = t;
-			response.newSpeedX = -speedX; // Reflect horizontally
-			response.newSpeedY = speedY; // No change vertically
+			response.newSpeedX = bounceSpeed(speedX, restitution); // Reflect horizontally
+			response.newSpeedY = slideSpeed(speedY, speedX, restitution, friction); // Slow down vertically
 		}
 	}
 
@@ -173,6 +343,40 @@ public class CollisionPhysics {
 	 */
 	public static void pointIntersectsLineHorizontal(float pointX, float pointY, float speedX, float speedY,
 			float radius, float lineY, float timeLimit, CollisionResponse response) {
+		pointIntersectsLineHorizontal(pointX, pointY, speedX, speedY, radius, lineY, ELASTIC, FRICTIONLESS,
+				timeLimit, response);
+	}
+
+	/**
+	 * Detect collision for a moving point hitting a horizontal line, within the
+	 * given timeLimit, losing speed to restitution and friction on impact. The
+	 * result is passed back in the given CollisionResponse object.
+	 * 
+	 * @param pointX
+	 *            : x-position of the center of the point.
+	 * @param pointY
+	 *            : y-position of the center of the point.
+	 * @param speedX
+	 *            : speed in x-direction.
+	 * @param speedY
+	 *            : speed in y-direction.
+	 * @param radius
+	 *            : radius of the point. Zero for a true point.
+	 * @param lineY
+	 *            : y-value of the horizontal line
+	 * @param restitution
+	 *            : fraction of the normal speed kept after impact, in [0, 1] range.
+	 * @param friction
+	 *            : coefficient of friction against the tangential speed.
+	 * @param timeLimit
+	 *            : max time to detect collision, in (0, 1] range.
+	 * @param response
+	 *            : If collision is detected, update the collision time and
+	 *            response. Otherwise, set collision time to infinity.
+	 */
+	public static void pointIntersectsLineHorizontal(float pointX, float pointY, float speedX, float speedY,
+			float radius, float lineY, float restitution, float friction, float timeLimit,
+			CollisionResponse response) {
 
 		// Assumptions:
 		assert (radius >= 0) : "Negative radius!";
@@ -196,8 +400,8 @@ public class CollisionPhysics {
 		float t = distance / speedY;
 		if (t > 0 && t <= timeLimit) {
 			response.t = t;
-			response.newSpeedY = -speedY; // Reflect vertically
-			response.newSpeedX = speedX; // No change horizontally
+			response.newSpeedY = bounceSpeed(speedY, restitution); // Reflect vertically
+			response.newSpeedX = slideSpeed(speedX, speedY, restitution, friction); // Slow down horizontally
 		}
 	}
 
@@ -240,6 +444,101 @@ public class CollisionPhysics {
 	public static void pointIntersectsMovingPoint(float p1X, float p1Y, float p1SpeedX, float p1SpeedY, float p1Radius,
 			float p2X, float p2Y, float p2SpeedX, float p2SpeedY, float p2Radius, float timeLimit,
 			CollisionResponse p1Response, CollisionResponse p2Response) {
+		pointIntersectsMovingPoint(p1X, p1Y, p1SpeedX, p1SpeedY, p1Radius, p2X, p2Y, p2SpeedX, p2SpeedY, p2Radius,
+				ELASTIC, FRICTIONLESS, timeLimit, p1Response, p2Response);
+	}
+
+	/**
+	 * Detect collision for a moving point hitting another moving point, within the
+	 * given timeLimit, losing speed to restitution and friction on impact. The
+	 * results are passed back in the two given CollisionResponse objects.
+	 * 
+	 * @param p1X
+	 *            : x-position of the center of point p1.
+	 * @param p1Y
+	 *            : y-position of the center of point p1.
+	 * @param p1SpeedX
+	 *            : p1's speed in x-direction.
+	 * @param p1SpeedY
+	 *            : p1's speed in y-direction.
+	 * @param p1Radius
+	 *            : p1's radius.
+	 * @param p2X
+	 *            : x-position of the center of point p2.
+	 * @param p2Y
+	 *            : y-position of the center of point p2.
+	 * @param p2SpeedX
+	 *            : p2's speed in x-direction.
+	 * @param p2SpeedY
+	 *            : p2's speed in y-direction.
+	 * @param p2Radius
+	 *            : p2's radius. Zero for a true point.
+	 * @param restitution
+	 *            : fraction of the relative normal speed kept after impact, in [0, 1] range.
+	 * @param friction
+	 *            : coefficient of friction against the relative tangential
+	 *            speed.
+	 * @param timeLimit
+	 *            : max time to detect collision, in (0, 1] range.
+	 * @param p1Response
+	 *            : If collision is detected, update the collision time and response
+	 *            for p1. Otherwise, set collision time to infinity.
+	 * @param p2Response
+	 *            : If collision is detected, update the collision time and response
+	 *            for p2. Otherwise, set collision time to infinity.
+	 */
+	public static void pointIntersectsMovingPoint(float p1X, float p1Y, float p1SpeedX, float p1SpeedY, float p1Radius,
+			float p2X, float p2Y, float p2SpeedX, float p2SpeedY, float p2Radius, float restitution, float friction,
+			float timeLimit, CollisionResponse p1Response, CollisionResponse p2Response) {
+		pointIntersectsMovingPoint(p1X, p1Y, p1SpeedX, p1SpeedY, p1Radius, p2X, p2Y, p2SpeedX, p2SpeedY, p2Radius,
+				restitution, friction, timeLimit, p1Response, p2Response, workspace.get());
+	}
+
+	/**
+	 * Detect collision for a moving point hitting another moving point, within the
+	 * given timeLimit, losing speed to restitution and friction on impact. The
+	 * results are passed back in the two given CollisionResponse objects.
+	 * 
+	 * @param p1X
+	 *            : x-position of the center of point p1.
+	 * @param p1Y
+	 *            : y-position of the center of point p1.
+	 * @param p1SpeedX
+	 *            : p1's speed in x-direction.
+	 * @param p1SpeedY
+	 *            : p1's speed in y-direction.
+	 * @param p1Radius
+	 *            : p1's radius.
+	 * @param p2X
+	 *            : x-position of the center of point p2.
+	 * @param p2Y
+	 *            : y-position of the center of point p2.
+	 * @param p2SpeedX
+	 *            : p2's speed in x-direction.
+	 * @param p2SpeedY
+	 *            : p2's speed in y-direction.
+	 * @param p2Radius
+	 *            : p2's radius. Zero for a true point.
+	 * @param restitution
+	 *            : fraction of the relative normal speed kept after impact, in [0, 1] range.
+	 * @param friction
+	 *            : coefficient of friction against the relative tangential
+	 *            speed.
+	 * @param timeLimit
+	 *            : max time to detect collision, in (0, 1] range.
+	 * @param p1Response
+	 *            : If collision is detected, update the collision time and response
+	 *            for p1. Otherwise, set collision time to infinity.
+	 * @param p2Response
+	 *            : If collision is detected, update the collision time and response
+	 *            for p2. Otherwise, set collision time to infinity.
+	 * @param w
+	 *            : working copies of the caller, used instead of those of the
+	 *            calling thread.
+	 */
+	public static void pointIntersectsMovingPoint(float p1X, float p1Y, float p1SpeedX, float p1SpeedY, float p1Radius,
+			float p2X, float p2Y, float p2SpeedX, float p2SpeedY, float p2Radius, float restitution, float friction,
+			float timeLimit, CollisionResponse p1Response, CollisionResponse p2Response, Workspace w) {
 
 		// Assumptions:
 		assert (p1Radius >= 0) && (p2Radius >= 0) : "Negative radius!";
@@ -254,8 +553,8 @@ public class CollisionPhysics {
 
 		if (t > 0 && t <= timeLimit) {
 			// Call helper method to compute the responses in the 2 Response objects
-			pointIntersectsMovingPointResponse(p1X, p1Y, p1SpeedX, p1SpeedY, p1Radius, p2X, p2Y, p2SpeedX, p2SpeedY,
-					p2Radius, p1Response, p2Response, t);
+			pointIntersectsMovingPointResponse(w, p1X, p1Y, p1SpeedX, p1SpeedY, p1Radius, p2X, p2Y, p2SpeedX, p2SpeedY,
+					p2Radius, restitution, friction, p1Response, p2Response, t);
 		}
 	}
 
@@ -330,6 +629,8 @@ public class CollisionPhysics {
 	 * for two moving points. Store and return the results in the two given
 	 * CollisionResponse objects.
 	 * 
+	 * @param w
+	 *            : working copies to use.
 	 * @param p1X
 	 *            : x-position of the center of point p1.
 	 * @param p1Y
@@ -350,6 +651,11 @@ public class CollisionPhysics {
 	 *            : p2's speed in y-direction.
 	 * @param p2Radius
 	 *            : p2's radius. Zero for a true point.
+	 * @param restitution
+	 *            : fraction of the relative normal speed kept after impact.
+	 * @param friction
+	 *            : coefficient of friction against the relative tangential
+	 *            speed.
 	 * @param p1Response
 	 *            : To update the collision time and response for p1. Reset time to
 	 *            infinity if error is detected.
@@ -359,9 +665,9 @@ public class CollisionPhysics {
 	 * @param t
 	 *            : the given detected collision time.
 	 */
-	private static void pointIntersectsMovingPointResponse(float p1X, float p1Y, float p1SpeedX, float p1SpeedY,
-			float p1Radius, float p2X, float p2Y, float p2SpeedX, float p2SpeedY, float p2Radius,
-			CollisionResponse p1Response, CollisionResponse p2Response, float t) {
+	private static void pointIntersectsMovingPointResponse(Workspace w, float p1X, float p1Y, float p1SpeedX,
+			float p1SpeedY, float p1Radius, float p2X, float p2Y, float p2SpeedX, float p2SpeedY, float p2Radius,
+			float restitution, float friction, CollisionResponse p1Response, CollisionResponse p2Response, float t) {
 
 		// Update the detected collision time in CollisionResponse.
 		p1Response.t = t;
@@ -377,11 +683,50 @@ public class CollisionPhysics {
 		// Get the direction along the line of collision
 		double lineAngle = Math.atan2(p2ImpactY - p1ImpactY, p2ImpactX - p1ImpactX);
 
+		movingPointImpactResponse(w, lineAngle, p1SpeedX, p1SpeedY, p1Radius, p2SpeedX, p2SpeedY, p2Radius, restitution,
+				friction, p1Response, p2Response);
+	}
+
+	/**
+	 * Helper method to compute the new speeds of two moving points, given the
+	 * direction of the line of collision and their speeds at the point of impact.
+	 * 
+	 * @param w
+	 *            : working copies to use.
+	 * @param lineAngle
+	 *            : direction of the line of collision, from p1 to p2.
+	 * @param p1SpeedX
+	 *            : p1's speed in x-direction at impact.
+	 * @param p1SpeedY
+	 *            : p1's speed in y-direction at impact.
+	 * @param p1Radius
+	 *            : p1's radius.
+	 * @param p2SpeedX
+	 *            : p2's speed in x-direction at impact.
+	 * @param p2SpeedY
+	 *            : p2's speed in y-direction at impact.
+	 * @param p2Radius
+	 *            : p2's radius.
+	 * @param restitution
+	 *            : fraction of the relative normal speed kept after impact.
+	 * @param friction
+	 *            : coefficient of friction against the relative tangential
+	 *            speed.
+	 * @param p1Response
+	 *            : To update the response for p1. Reset time to infinity if the
+	 *            points are not approaching.
+	 * @param p2Response
+	 *            : To update the response for p2. Reset time to infinity if the
+	 *            points are not approaching.
+	 */
+	private static void movingPointImpactResponse(Workspace w, double lineAngle, double p1SpeedX, double p1SpeedY,
+			float p1Radius, double p2SpeedX, double p2SpeedY, float p2Radius, float restitution, float friction,
+			CollisionResponse p1Response, CollisionResponse p2Response) {
 		// Project velocities from (x, y) to (p, n)
-		double[] result = rotate(p1SpeedX, p1SpeedY, lineAngle);
+		double[] result = rotate(w, p1SpeedX, p1SpeedY, lineAngle);
 		double p1SpeedP = result[0];
 		double p1SpeedN = result[1];
-		result = rotate(p2SpeedX, p2SpeedY, lineAngle);
+		result = rotate(w, p2SpeedX, p2SpeedY, lineAngle);
 		double p2SpeedP = result[0];
 		double p2SpeedN = result[1];
 
@@ -399,48 +744,2221 @@ public class CollisionPhysics {
 		// (All objects have the same density.)
 		double p1Mass = p1Radius * p1Radius * p1Radius;
 		double p2Mass = p2Radius * p2Radius * p2Radius;
-		double diffMass = p1Mass - p2Mass;
+		if (p1Mass == 0 && p2Mass == 0) {
+			p1Mass = p2Mass = 1; // Two true points: take them as equally heavy
+		}
 		double sumMass = p1Mass + p2Mass;
 
 		double p1SpeedPAfter, p1SpeedNAfter, p2SpeedPAfter, p2SpeedNAfter;
-		// Along the collision direction P, apply conservation of energy and momentum
-		p1SpeedPAfter = (diffMass * p1SpeedP + 2.0 * p2Mass * p2SpeedP) / sumMass;
-		p2SpeedPAfter = (2.0 * p1Mass * p1SpeedP - diffMass * p2SpeedP) / sumMass;
+		// Along the collision direction P, apply conservation of momentum, keeping
+		// the restitution share of the relative speed (all of it if elastic).
+		p1SpeedPAfter = ((p1Mass - restitution * p2Mass) * p1SpeedP + (1 + restitution) * p2Mass * p2SpeedP)
+				/ sumMass;
+		p2SpeedPAfter = ((1 + restitution) * p1Mass * p1SpeedP + (p2Mass - restitution * p1Mass) * p2SpeedP)
+				/ sumMass;
 
-		// No change in the perpendicular direction N
+		// In the perpendicular direction N, friction opposes the relative sliding,
+		// up to the friction share of the normal impulse, but never reverses it.
 		p1SpeedNAfter = p1SpeedN;
 		p2SpeedNAfter = p2SpeedN;
+		if (friction > 0 && p1Mass > 0 && p2Mass > 0) {
+			double reducedMass = p1Mass * p2Mass / sumMass;
+			double normalImpulse = (1 + restitution) * reducedMass * (p1SpeedP - p2SpeedP);
+			double slideSpeed = p1SpeedN - p2SpeedN;
+			double frictionImpulse = Math.min(friction * normalImpulse, reducedMass * Math.abs(slideSpeed));
+			frictionImpulse = Math.copySign(frictionImpulse, slideSpeed);
+			p1SpeedNAfter -= frictionImpulse / p1Mass;
+			p2SpeedNAfter += frictionImpulse / p2Mass;
+		}
 
 		// Project the velocities back from (p, n) to (x, y)
-		result = rotate(p1SpeedPAfter, p1SpeedNAfter, -lineAngle);
+		result = rotate(w, p1SpeedPAfter, p1SpeedNAfter, -lineAngle);
 		p1Response.newSpeedX = (float) result[0];
 		p1Response.newSpeedY = (float) result[1];
-		result = rotate(p2SpeedPAfter, p2SpeedNAfter, -lineAngle);
+		result = rotate(w, p2SpeedPAfter, p2SpeedNAfter, -lineAngle);
 		p2Response.newSpeedX = (float) result[0];
 		p2Response.newSpeedY = (float) result[1];
 	}
 
 	/**
-	 * Helper method to rotation vector (x, y) by theta, in Graphics coordinates.
-	 * y-axis is inverted. theta measured in counter-clockwise direction. Re-use the
-	 * double[] rotateResult to avoid repeated new operations.
+	 * Detect collision for a moving point with constant acceleration bouncing
+	 * inside a rectangular container, within the given timeLimit. The trajectory
+	 * is a parabola, so the collision time against each border is the root of a
+	 * quadratic equation. The result is passed back in the given CollisionResponse
+	 * object, with the speed at the point of impact reflected.
 	 * 
-	 * @param x
-	 *            : x coordinate of the vector to be rotated.
-	 * @param y
-	 *            : y coordinate of the vector to be rotated, inverted.
-	 * @param theta
-	 *            : rotational angle in radians, counter-clockwise.
-	 * @return An double array of 2 elements x and y, in the rotated coordinates.
+	 * @param pointX
+	 *            : x-position of the center of the point.
+	 * @param pointY
+	 *            : y-position of the center of the point.
+	 * @param speedX
+	 *            : speed in x-direction.
+	 * @param speedY
+	 *            : speed in y-direction.
+	 * @param accelX
+	 *            : acceleration in x-direction.
+	 * @param accelY
+	 *            : acceleration in y-direction.
+	 * @param radius
+	 *            : radius of the point.
+	 * @param rectX1
+	 *            : top-left corner x of the rectangle
+	 * @param rectY1
+	 *            : top-left corner y of the rectangle
+	 * @param rectX2
+	 *            : bottom-right corner x of the rectangle
+	 * @param rectY2
+	 *            : bottom-right corner y of the rectangle
+	 * @param restitution
+	 *            : fraction of the normal speed kept after impact, in [0, 1] range.
+	 * @param friction
+	 *            : coefficient of friction against the tangential speed.
+	 * @param timeLimit
+	 *            : max time to detect collision, in (0, 1] range.
+	 * @param response
+	 *            : If collision is detected, update the collision time and
+	 *            response. Otherwise, set collision time to infinity.
 	 */
-	private static double[] rotateResult = new double[2];
+	public static void acceleratingPointIntersectsRectangleOuter(float pointX, float pointY, float speedX,
+			float speedY, float accelX, float accelY, float radius, float rectX1, float rectY1, float rectX2,
+			float rectY2, float restitution, float friction, float timeLimit, CollisionResponse response) {
+		acceleratingPointIntersectsRectangleOuter(pointX, pointY, speedX, speedY, accelX, accelY, radius, rectX1,
+				rectY1, rectX2, rectY2, restitution, friction, timeLimit, response, workspace.get());
+	}
 
-	private static double[] rotate(double x, double y, double theta) {
+	/**
+	 * Detect collision for a moving point with constant acceleration bouncing
+	 * inside a rectangular container, within the given timeLimit. The trajectory
+	 * is a parabola, so the collision time against each border is the root of a
+	 * quadratic equation. The result is passed back in the given CollisionResponse
+	 * object, with the speed at the point of impact reflected.
+	 * 
+	 * @param pointX
+	 *            : x-position of the center of the point.
+	 * @param pointY
+	 *            : y-position of the center of the point.
+	 * @param speedX
+	 *            : speed in x-direction.
+	 * @param speedY
+	 *            : speed in y-direction.
+	 * @param accelX
+	 *            : acceleration in x-direction.
+	 * @param accelY
+	 *            : acceleration in y-direction.
+	 * @param radius
+	 *            : radius of the point.
+	 * @param rectX1
+	 *            : top-left corner x of the rectangle
+	 * @param rectY1
+	 *            : top-left corner y of the rectangle
+	 * @param rectX2
+	 *            : bottom-right corner x of the rectangle
+	 * @param rectY2
+	 *            : bottom-right corner y of the rectangle
+	 * @param restitution
+	 *            : fraction of the normal speed kept after impact, in [0, 1] range.
+	 * @param friction
+	 *            : coefficient of friction against the tangential speed.
+	 * @param timeLimit
+	 *            : max time to detect collision, in (0, 1] range.
+	 * @param response
+	 *            : If collision is detected, update the collision time and
+	 *            response. Otherwise, set collision time to infinity.
+	 * @param w
+	 *            : working copies of the caller, used instead of those of the
+	 *            calling thread.
+	 */
+	public static void acceleratingPointIntersectsRectangleOuter(float pointX, float pointY, float speedX, float speedY,
+			float accelX, float accelY, float radius, float rectX1, float rectY1, float rectX2, float rectY2,
+			float restitution, float friction, float timeLimit, CollisionResponse response, Workspace w) {
+		// Assumptions:
+		assert (rectX1 < rectX2) && (rectY1 < rectY2) : "Malformed rectangle!";
+		// A contact within the penetration tolerance is left alone, so allow it.
+		assert (pointX >= rectX1 + radius - PENETRATION_TOLERANCE)
+				&& (pointX <= rectX2 - radius + PENETRATION_TOLERANCE)
+				&& (pointY >= rectY1 + radius - PENETRATION_TOLERANCE)
+				&& (pointY <= rectY2 - radius + PENETRATION_TOLERANCE)
+				: "Point (with radius) is outside the rectangular container!";
+		assert (radius >= 0) : "Negative radius!";
+		assert (timeLimit > 0) : "Non-positive time";
+
+		response.reset(); // Reset detected collision time to infinity
+
+		// Right border
+		acceleratingPointIntersectsLineVertical(pointX, pointY, speedX, speedY, accelX, accelY, radius, rectX2,
+				restitution, friction, timeLimit, w.tempResponse, w);
+		if (w.tempResponse.t < response.t) {
+			response.copy(w.tempResponse); // Copy into resultant response
+		}
+		// Left border
+		acceleratingPointIntersectsLineVertical(pointX, pointY, speedX, speedY, accelX, accelY, radius, rectX1,
+				restitution, friction, timeLimit, w.tempResponse, w);
+		if (w.tempResponse.t < response.t) {
+			response.copy(w.tempResponse); // Copy into resultant response
+		}
+		// Top border
+		acceleratingPointIntersectsLineHorizontal(pointX, pointY, speedX, speedY, accelX, accelY, radius, rectY1,
+				restitution, friction, timeLimit, w.tempResponse, w);
+		if (w.tempResponse.t < response.t) {
+			response.copy(w.tempResponse); // Copy into resultant response
+		}
+		// Bottom border
+		acceleratingPointIntersectsLineHorizontal(pointX, pointY, speedX, speedY, accelX, accelY, radius, rectY2,
+				restitution, friction, timeLimit, w.tempResponse, w);
+		if (w.tempResponse.t < response.t) {
+			response.copy(w.tempResponse); // Copy into resultant response
+		}
+	}
+
+	/**
+	 * Detect collision for a moving point with constant acceleration hitting a
+	 * vertical line, within the given timeLimit. The result is passed back in the
+	 * given CollisionResponse object.
+	 * 
+	 * @param pointX
+	 *            : x-position of the center of the point.
+	 * @param pointY
+	 *            : y-position of the center of the point.
+	 * @param speedX
+	 *            : speed in x-direction.
+	 * @param speedY
+	 *            : speed in y-direction.
+	 * @param accelX
+	 *            : acceleration in x-direction.
+	 * @param accelY
+	 *            : acceleration in y-direction.
+	 * @param radius
+	 *            : radius of the point. Zero for a true point.
+	 * @param lineX
+	 *            : x-value of the vertical line
+	 * @param restitution
+	 *            : fraction of the normal speed kept after impact, in [0, 1] range.
+	 * @param friction
+	 *            : coefficient of friction against the tangential speed.
+	 * @param timeLimit
+	 *            : max time to detect collision, in (0, 1] range.
+	 * @param response
+	 *            : If collision is detected, update the collision time and
+	 *            response. Otherwise, set collision time to infinity.
+	 */
+	public static void acceleratingPointIntersectsLineVertical(float pointX, float pointY, float speedX,
+			float speedY, float accelX, float accelY, float radius, float lineX, float restitution, float friction,
+			float timeLimit, CollisionResponse response) {
+		acceleratingPointIntersectsLineVertical(pointX, pointY, speedX, speedY, accelX, accelY, radius, lineX,
+				restitution, friction, timeLimit, response, workspace.get());
+	}
+
+	/**
+	 * Detect collision for a moving point with constant acceleration hitting a
+	 * vertical line, within the given timeLimit. The result is passed back in the
+	 * given CollisionResponse object.
+	 * 
+	 * @param pointX
+	 *            : x-position of the center of the point.
+	 * @param pointY
+	 *            : y-position of the center of the point.
+	 * @param speedX
+	 *            : speed in x-direction.
+	 * @param speedY
+	 *            : speed in y-direction.
+	 * @param accelX
+	 *            : acceleration in x-direction.
+	 * @param accelY
+	 *            : acceleration in y-direction.
+	 * @param radius
+	 *            : radius of the point. Zero for a true point.
+	 * @param lineX
+	 *            : x-value of the vertical line
+	 * @param restitution
+	 *            : fraction of the normal speed kept after impact, in [0, 1] range.
+	 * @param friction
+	 *            : coefficient of friction against the tangential speed.
+	 * @param timeLimit
+	 *            : max time to detect collision, in (0, 1] range.
+	 * @param response
+	 *            : If collision is detected, update the collision time and
+	 *            response. Otherwise, set collision time to infinity.
+	 * @param w
+	 *            : working copies of the caller, used instead of those of the
+	 *            calling thread.
+	 */
+	public static void acceleratingPointIntersectsLineVertical(float pointX, float pointY, float speedX, float speedY,
+			float accelX, float accelY, float radius, float lineX, float restitution, float friction, float timeLimit,
+			CollisionResponse response, Workspace w) {
+
+		// Assumptions:
+		assert (radius >= 0) : "Negative radius!";
+		assert (timeLimit > 0) : "Non-positive time";
+
+		response.reset(); // Reset detected collision time to infinity
+
+		// Gap between the point and the line, offset by radius:
+		// gap(t) = gap - side * (speedX * t + accelX * t^2 / 2)
+		double side = (lineX > pointX) ? 1 : -1;
+		double gap = side * (lineX - pointX) - radius;
+
+		float t = earliestEntry(w, gap, -side * speedX, -side * 0.5 * accelX, 0, 0, timeLimit);
+		if (t <= timeLimit) {
+			response.t = t;
+			float impactSpeedX = speedX + accelX * t;
+			float impactSpeedY = speedY + accelY * t;
+			response.newSpeedX = bounceSpeed(impactSpeedX, restitution); // Reflect horizontally
+			response.newSpeedY = slideSpeed(impactSpeedY, impactSpeedX, restitution, friction);
+		}
+	}
+
+	/**
+	 * Detect collision for a moving point with constant acceleration hitting a
+	 * horizontal line, within the given timeLimit. The result is passed back in
+	 * the given CollisionResponse object.
+	 * 
+	 * @param pointX
+	 *            : x-position of the center of the point.
+	 * @param pointY
+	 *            : y-position of the center of the point.
+	 * @param speedX
+	 *            : speed in x-direction.
+	 * @param speedY
+	 *            : speed in y-direction.
+	 * @param accelX
+	 *            : acceleration in x-direction.
+	 * @param accelY
+	 *            : acceleration in y-direction.
+	 * @param radius
+	 *            : radius of the point. Zero for a true point.
+	 * @param lineY
+	 *            : y-value of the horizontal line
+	 * @param restitution
+	 *            : fraction of the normal speed kept after impact, in [0, 1] range.
+	 * @param friction
+	 *            : coefficient of friction against the tangential speed.
+	 * @param timeLimit
+	 *            : max time to detect collision, in (0, 1] range.
+	 * @param response
+	 *            : If collision is detected, update the collision time and
+	 *            response. Otherwise, set collision time to infinity.
+	 */
+	public static void acceleratingPointIntersectsLineHorizontal(float pointX, float pointY, float speedX,
+			float speedY, float accelX, float accelY, float radius, float lineY, float restitution, float friction,
+			float timeLimit, CollisionResponse response) {
+		acceleratingPointIntersectsLineHorizontal(pointX, pointY, speedX, speedY, accelX, accelY, radius, lineY,
+				restitution, friction, timeLimit, response, workspace.get());
+	}
+
+	/**
+	 * Detect collision for a moving point with constant acceleration hitting a
+	 * horizontal line, within the given timeLimit. The result is passed back in
+	 * the given CollisionResponse object.
+	 * 
+	 * @param pointX
+	 *            : x-position of the center of the point.
+	 * @param pointY
+	 *            : y-position of the center of the point.
+	 * @param speedX
+	 *            : speed in x-direction.
+	 * @param speedY
+	 *            : speed in y-direction.
+	 * @param accelX
+	 *            : acceleration in x-direction.
+	 * @param accelY
+	 *            : acceleration in y-direction.
+	 * @param radius
+	 *            : radius of the point. Zero for a true point.
+	 * @param lineY
+	 *            : y-value of the horizontal line
+	 * @param restitution
+	 *            : fraction of the normal speed kept after impact, in [0, 1] range.
+	 * @param friction
+	 *            : coefficient of friction against the tangential speed.
+	 * @param timeLimit
+	 *            : max time to detect collision, in (0, 1] range.
+	 * @param response
+	 *            : If collision is detected, update the collision time and
+	 *            response. Otherwise, set collision time to infinity.
+	 * @param w
+	 *            : working copies of the caller, used instead of those of the
+	 *            calling thread.
+	 */
+	public static void acceleratingPointIntersectsLineHorizontal(float pointX, float pointY, float speedX, float speedY,
+			float accelX, float accelY, float radius, float lineY, float restitution, float friction, float timeLimit,
+			CollisionResponse response, Workspace w) {
+
+		// Assumptions:
+		assert (radius >= 0) : "Negative radius!";
+		assert (timeLimit > 0) : "Non-positive time";
+
+		response.reset(); // Reset detected collision time to infinity
+
+		// Gap between the point and the line, offset by radius:
+		// gap(t) = gap - side * (speedY * t + accelY * t^2 / 2)
+		double side = (lineY > pointY) ? 1 : -1;
+		double gap = side * (lineY - pointY) - radius;
+
+		float t = earliestEntry(w, gap, -side * speedY, -side * 0.5 * accelY, 0, 0, timeLimit);
+		if (t <= timeLimit) {
+			response.t = t;
+			float impactSpeedX = speedX + accelX * t;
+			float impactSpeedY = speedY + accelY * t;
+			response.newSpeedY = bounceSpeed(impactSpeedY, restitution); // Reflect vertically
+			response.newSpeedX = slideSpeed(impactSpeedX, impactSpeedY, restitution, friction);
+		}
+	}
+
+	/**
+	 * Detect collision for two moving points with constant accelerations, within
+	 * the given timeLimit. The squared distance between the two centers is a
+	 * quartic polynomial in t, whose earliest root is the collision time. The
+	 * results are passed back in the two given CollisionResponse objects.
+	 * 
+	 * @param p1X
+	 *            : x-position of the center of point p1.
+	 * @param p1Y
+	 *            : y-position of the center of point p1.
+	 * @param p1SpeedX
+	 *            : p1's speed in x-direction.
+	 * @param p1SpeedY
+	 *            : p1's speed in y-direction.
+	 * @param p1AccelX
+	 *            : p1's acceleration in x-direction.
+	 * @param p1AccelY
+	 *            : p1's acceleration in y-direction.
+	 * @param p1Radius
+	 *            : p1's radius.
+	 * @param p2X
+	 *            : x-position of the center of point p2.
+	 * @param p2Y
+	 *            : y-position of the center of point p2.
+	 * @param p2SpeedX
+	 *            : p2's speed in x-direction.
+	 * @param p2SpeedY
+	 *            : p2's speed in y-direction.
+	 * @param p2AccelX
+	 *            : p2's acceleration in x-direction.
+	 * @param p2AccelY
+	 *            : p2's acceleration in y-direction.
+	 * @param p2Radius
+	 *            : p2's radius. Zero for a true point.
+	 * @param restitution
+	 *            : fraction of the relative normal speed kept after impact, in [0, 1] range.
+	 * @param friction
+	 *            : coefficient of friction against the relative tangential
+	 *            speed.
+	 * @param timeLimit
+	 *            : max time to detect collision, in (0, 1] range.
+	 * @param p1Response
+	 *            : If collision is detected, update the collision time and response
+	 *            for p1. Otherwise, set collision time to infinity.
+	 * @param p2Response
+	 *            : If collision is detected, update the collision time and response
+	 *            for p2. Otherwise, set collision time to infinity.
+	 */
+	public static void acceleratingPointIntersectsMovingPoint(float p1X, float p1Y, float p1SpeedX, float p1SpeedY,
+			float p1AccelX, float p1AccelY, float p1Radius, float p2X, float p2Y, float p2SpeedX, float p2SpeedY,
+			float p2AccelX, float p2AccelY, float p2Radius, float restitution, float friction, float timeLimit,
+			CollisionResponse p1Response, CollisionResponse p2Response) {
+		acceleratingPointIntersectsMovingPoint(p1X, p1Y, p1SpeedX, p1SpeedY, p1AccelX, p1AccelY, p1Radius, p2X, p2Y,
+				p2SpeedX, p2SpeedY, p2AccelX, p2AccelY, p2Radius, restitution, friction, timeLimit, p1Response,
+				p2Response, workspace.get());
+	}
+
+	/**
+	 * Detect collision for two moving points with constant accelerations, within
+	 * the given timeLimit. The squared distance between the two centers is a
+	 * quartic polynomial in t, whose earliest root is the collision time. The
+	 * results are passed back in the two given CollisionResponse objects.
+	 * 
+	 * @param p1X
+	 *            : x-position of the center of point p1.
+	 * @param p1Y
+	 *            : y-position of the center of point p1.
+	 * @param p1SpeedX
+	 *            : p1's speed in x-direction.
+	 * @param p1SpeedY
+	 *            : p1's speed in y-direction.
+	 * @param p1AccelX
+	 *            : p1's acceleration in x-direction.
+	 * @param p1AccelY
+	 *            : p1's acceleration in y-direction.
+	 * @param p1Radius
+	 *            : p1's radius.
+	 * @param p2X
+	 *            : x-position of the center of point p2.
+	 * @param p2Y
+	 *            : y-position of the center of point p2.
+	 * @param p2SpeedX
+	 *            : p2's speed in x-direction.
+	 * @param p2SpeedY
+	 *            : p2's speed in y-direction.
+	 * @param p2AccelX
+	 *            : p2's acceleration in x-direction.
+	 * @param p2AccelY
+	 *            : p2's acceleration in y-direction.
+	 * @param p2Radius
+	 *            : p2's radius. Zero for a true point.
+	 * @param restitution
+	 *            : fraction of the relative normal speed kept after impact, in [0, 1] range.
+	 * @param friction
+	 *            : coefficient of friction against the relative tangential
+	 *            speed.
+	 * @param timeLimit
+	 *            : max time to detect collision, in (0, 1] range.
+	 * @param p1Response
+	 *            : If collision is detected, update the collision time and response
+	 *            for p1. Otherwise, set collision time to infinity.
+	 * @param p2Response
+	 *            : If collision is detected, update the collision time and response
+	 *            for p2. Otherwise, set collision time to infinity.
+	 * @param w
+	 *            : working copies of the caller, used instead of those of the
+	 *            calling thread.
+	 */
+	public static void acceleratingPointIntersectsMovingPoint(float p1X, float p1Y, float p1SpeedX, float p1SpeedY,
+			float p1AccelX, float p1AccelY, float p1Radius, float p2X, float p2Y, float p2SpeedX, float p2SpeedY,
+			float p2AccelX, float p2AccelY, float p2Radius, float restitution, float friction, float timeLimit,
+			CollisionResponse p1Response, CollisionResponse p2Response, Workspace w) {
+
+		// Assumptions:
+		assert (p1Radius >= 0) && (p2Radius >= 0) : "Negative radius!";
+		assert timeLimit > 0 : "Non-positive time!";
+
+		p1Response.reset(); // Set detected collision time to infinity
+		p2Response.reset();
+
+		// Relative motion: center(t) = center + speed * t + accel * t^2,
+		// where accel is half the relative acceleration.
+		double centerX = p1X - p2X;
+		double centerY = p1Y - p2Y;
+		double speedX = p1SpeedX - p2SpeedX;
+		double speedY = p1SpeedY - p2SpeedY;
+		double accelX = 0.5 * (p1AccelX - p2AccelX);
+		double accelY = 0.5 * (p1AccelY - p2AccelY);
+		double radius = p1Radius + p2Radius;
+
+		float t = pointEntry(w, centerX, centerY, speedX, speedY, accelX, accelY, radius, timeLimit);
+		if (t <= timeLimit) {
+			p1Response.t = t;
+			p2Response.t = t;
+
+			// Get the point of impact, to form the line of collision.
+			double p1ImpactX = p1Response.getImpactX(p1X, p1SpeedX, p1AccelX);
+			double p1ImpactY = p1Response.getImpactY(p1Y, p1SpeedY, p1AccelY);
+			double p2ImpactX = p2Response.getImpactX(p2X, p2SpeedX, p2AccelX);
+			double p2ImpactY = p2Response.getImpactY(p2Y, p2SpeedY, p2AccelY);
+			double lineAngle = Math.atan2(p2ImpactY - p1ImpactY, p2ImpactX - p1ImpactX);
+
+			// Respond with the speeds at the point of impact.
+			movingPointImpactResponse(w, lineAngle, p1SpeedX + p1AccelX * t, p1SpeedY + p1AccelY * t, p1Radius,
+					p2SpeedX + p2AccelX * t, p2SpeedY + p2AccelY * t, p2Radius, restitution, friction, p1Response,
+					p2Response);
+		}
+	}
+
+	/**
+	 * Detect collision for a moving point (with radius) hitting a line segment of
+	 * any orientation, such as a wall of a polygonal container, within the given
+	 * timeLimit. The segment is two-sided, so that the point bounces off the side
+	 * it comes from. The result is passed back in the given CollisionResponse
+	 * object.
+	 * 
+	 * @param pointX
+	 *            : x-position of the center of the point.
+	 * @param pointY
+	 *            : y-position of the center of the point.
+	 * @param speedX
+	 *            : speed in x-direction.
+	 * @param speedY
+	 *            : speed in y-direction.
+	 * @param radius
+	 *            : radius of the point. Zero for a true point.
+	 * @param x1
+	 *            : x-position of the first end of the segment.
+	 * @param y1
+	 *            : y-position of the first end of the segment.
+	 * @param x2
+	 *            : x-position of the second end of the segment.
+	 * @param y2
+	 *            : y-position of the second end of the segment.
+	 * @param restitution
+	 *            : fraction of the normal speed kept after impact, in [0, 1] range.
+	 * @param friction
+	 *            : coefficient of friction against the tangential speed.
+	 * @param timeLimit
+	 *            : max time to detect collision, in (0, 1] range.
+	 * @param response
+	 *            : If collision is detected, update the collision time and
+	 *            response. Otherwise, set collision time to infinity.
+	 */
+	public static void pointIntersectsLineSegment(float pointX, float pointY, float speedX, float speedY,
+			float radius, float x1, float y1, float x2, float y2, float restitution, float friction, float timeLimit,
+			CollisionResponse response) {
+		pointIntersectsLineSegment(pointX, pointY, speedX, speedY, radius, x1, y1, x2, y2, restitution, friction,
+				timeLimit, response, workspace.get());
+	}
+
+	/**
+	 * Detect collision for a moving point (with radius) hitting a line segment of
+	 * any orientation, such as a wall of a polygonal container, within the given
+	 * timeLimit. The segment is two-sided, so that the point bounces off the side
+	 * it comes from. The result is passed back in the given CollisionResponse
+	 * object.
+	 * 
+	 * @param pointX
+	 *            : x-position of the center of the point.
+	 * @param pointY
+	 *            : y-position of the center of the point.
+	 * @param speedX
+	 *            : speed in x-direction.
+	 * @param speedY
+	 *            : speed in y-direction.
+	 * @param radius
+	 *            : radius of the point. Zero for a true point.
+	 * @param x1
+	 *            : x-position of the first end of the segment.
+	 * @param y1
+	 *            : y-position of the first end of the segment.
+	 * @param x2
+	 *            : x-position of the second end of the segment.
+	 * @param y2
+	 *            : y-position of the second end of the segment.
+	 * @param restitution
+	 *            : fraction of the normal speed kept after impact, in [0, 1] range.
+	 * @param friction
+	 *            : coefficient of friction against the tangential speed.
+	 * @param timeLimit
+	 *            : max time to detect collision, in (0, 1] range.
+	 * @param response
+	 *            : If collision is detected, update the collision time and
+	 *            response. Otherwise, set collision time to infinity.
+	 * @param w
+	 *            : working copies of the caller, used instead of those of the
+	 *            calling thread.
+	 */
+	public static void pointIntersectsLineSegment(float pointX, float pointY, float speedX, float speedY, float radius,
+			float x1, float y1, float x2, float y2, float restitution, float friction, float timeLimit,
+			CollisionResponse response, Workspace w) {
+		acceleratingPointIntersectsLineSegment(pointX, pointY, speedX, speedY, 0, 0, radius, x1, y1, x2, y2,
+				restitution, friction, timeLimit, response, w);
+	}
+
+	/**
+	 * Detect collision for a moving point with constant acceleration hitting a
+	 * line segment of any orientation, within the given timeLimit. The point may
+	 * hit the inside of the segment, or one of its ends, which count as points of
+	 * zero radius. The result is passed back in the given CollisionResponse
+	 * object.
+	 * 
+	 * @param pointX
+	 *            : x-position of the center of the point.
+	 * @param pointY
+	 *            : y-position of the center of the point.
+	 * @param speedX
+	 *            : speed in x-direction.
+	 * @param speedY
+	 *            : speed in y-direction.
+	 * @param accelX
+	 *            : acceleration in x-direction.
+	 * @param accelY
+	 *            : acceleration in y-direction.
+	 * @param radius
+	 *            : radius of the point. Zero for a true point.
+	 * @param x1
+	 *            : x-position of the first end of the segment.
+	 * @param y1
+	 *            : y-position of the first end of the segment.
+	 * @param x2
+	 *            : x-position of the second end of the segment.
+	 * @param y2
+	 *            : y-position of the second end of the segment.
+	 * @param restitution
+	 *            : fraction of the normal speed kept after impact, in [0, 1] range.
+	 * @param friction
+	 *            : coefficient of friction against the tangential speed.
+	 * @param timeLimit
+	 *            : max time to detect collision, in (0, 1] range.
+	 * @param response
+	 *            : If collision is detected, update the collision time and
+	 *            response. Otherwise, set collision time to infinity.
+	 */
+	public static void acceleratingPointIntersectsLineSegment(float pointX, float pointY, float speedX,
+			float speedY, float accelX, float accelY, float radius, float x1, float y1, float x2, float y2,
+			float restitution, float friction, float timeLimit, CollisionResponse response) {
+		acceleratingPointIntersectsLineSegment(pointX, pointY, speedX, speedY, accelX, accelY, radius, x1, y1, x2, y2,
+				restitution, friction, timeLimit, response, workspace.get());
+	}
+
+	/**
+	 * Detect collision for a moving point with constant acceleration hitting a
+	 * line segment of any orientation, within the given timeLimit. The point may
+	 * hit the inside of the segment, or one of its ends, which count as points of
+	 * zero radius. The result is passed back in the given CollisionResponse
+	 * object.
+	 * 
+	 * @param pointX
+	 *            : x-position of the center of the point.
+	 * @param pointY
+	 *            : y-position of the center of the point.
+	 * @param speedX
+	 *            : speed in x-direction.
+	 * @param speedY
+	 *            : speed in y-direction.
+	 * @param accelX
+	 *            : acceleration in x-direction.
+	 * @param accelY
+	 *            : acceleration in y-direction.
+	 * @param radius
+	 *            : radius of the point. Zero for a true point.
+	 * @param x1
+	 *            : x-position of the first end of the segment.
+	 * @param y1
+	 *            : y-position of the first end of the segment.
+	 * @param x2
+	 *            : x-position of the second end of the segment.
+	 * @param y2
+	 *            : y-position of the second end of the segment.
+	 * @param restitution
+	 *            : fraction of the normal speed kept after impact, in [0, 1] range.
+	 * @param friction
+	 *            : coefficient of friction against the tangential speed.
+	 * @param timeLimit
+	 *            : max time to detect collision, in (0, 1] range.
+	 * @param response
+	 *            : If collision is detected, update the collision time and
+	 *            response. Otherwise, set collision time to infinity.
+	 * @param w
+	 *            : working copies of the caller, used instead of those of the
+	 *            calling thread.
+	 */
+	public static void acceleratingPointIntersectsLineSegment(float pointX, float pointY, float speedX, float speedY,
+			float accelX, float accelY, float radius, float x1, float y1, float x2, float y2, float restitution,
+			float friction, float timeLimit, CollisionResponse response, Workspace w) {
+
+		// Assumptions:
+		assert (radius >= 0) : "Negative radius!";
+		assert (timeLimit > 0) : "Non-positive time";
+
+		response.reset(); // Reset detected collision time to infinity
+
+		// Early-out if the segment is beyond the reach of the point by timeLimit.
+		double edgeX = x2 - x1;
+		double edgeY = y2 - y1;
+		double length = Math.sqrt(edgeX * edgeX + edgeY * edgeY);
+		double fraction = 0;
+		if (length > 0) {
+			fraction = ((pointX - x1) * edgeX + (pointY - y1) * edgeY) / (length * length);
+			fraction = Math.max(0, Math.min(1, fraction));
+		}
+		double reach = radius + Math.sqrt(speedX * speedX + speedY * speedY) * timeLimit
+				+ 0.5 * Math.sqrt(accelX * accelX + accelY * accelY) * timeLimit * timeLimit;
+		double offsetX = pointX - (x1 + fraction * edgeX);
+		double offsetY = pointY - (y1 + fraction * edgeY);
+		if (offsetX * offsetX + offsetY * offsetY > reach * reach) {
+			return;
+		}
+
+		float tMin = Float.MAX_VALUE;
+		double normalX = 0, normalY = 0; // From the segment to the point at impact
+
+		// Inside of the segment: gap(t) = side * distance(t) - radius, where the
+		// distance to the line is measured along its unit normal.
+		if (length > 0) {
+			double unitX = edgeX / length;
+			double unitY = edgeY / length;
+			double distance = (pointX - x1) * -unitY + (pointY - y1) * unitX;
+			double side = (distance >= 0) ? 1 : -1;
+			double speedN = speedX * -unitY + speedY * unitX;
+			double accelN = accelX * -unitY + accelY * unitX;
+			float t = earliestEntry(w, side * distance - radius, side * speedN, side * 0.5 * accelN, 0, 0, timeLimit);
+			if (t <= timeLimit) {
+				// Only counts if the point of impact is within the segment.
+				double along = (pointX + (speedX + 0.5 * accelX * t) * t - x1) * unitX
+						+ (pointY + (speedY + 0.5 * accelY * t) * t - y1) * unitY;
+				if (along >= 0 && along <= length) {
+					tMin = t;
+					normalX = -side * unitY;
+					normalY = side * unitX;
+				}
+			}
+		}
+
+		// Ends of the segment
+		for (int end = 0; end < 2; end++) {
+			float endX = (end == 0) ? x1 : x2;
+			float endY = (end == 0) ? y1 : y2;
+			float t = pointEntry(w, pointX - endX, pointY - endY, speedX, speedY, 0.5 * accelX, 0.5 * accelY, radius,
+					Math.min(tMin, timeLimit));
+			if (t < tMin) {
+				tMin = t;
+				double impactX = pointX + (speedX + 0.5 * accelX * t) * t - endX;
+				double impactY = pointY + (speedY + 0.5 * accelY * t) * t - endY;
+				double impactDistance = Math.sqrt(impactX * impactX + impactY * impactY);
+				normalX = impactX / impactDistance;
+				normalY = impactY / impactDistance;
+			}
+		}
+
+		if (tMin <= timeLimit) {
+			response.t = tMin;
+			fixedLineImpactResponse(normalX, normalY, speedX + accelX * tMin, speedY + accelY * tMin, restitution,
+					friction, response);
+		}
+	}
+
+	/**
+	 * Helper method to find the time at which a moving point (with radius) with
+	 * constant acceleration first reaches a fixed point, relative to which its
+	 * center is given.
+	 * 
+	 * @return the earliest t, or infinity if it does not reach it in time.
+	 */
+	private static float pointEntry(Workspace w, double centerX, double centerY, double speedX, double speedY,
+			double halfAccelX, double halfAccelY, double radius, float timeLimit) {
+		// Expand |center(t)|^2 - radius^2 into a quartic polynomial in t.
+		double c4 = halfAccelX * halfAccelX + halfAccelY * halfAccelY;
+		double c3 = 2 * (halfAccelX * speedX + halfAccelY * speedY);
+		double c2 = speedX * speedX + speedY * speedY + 2 * (halfAccelX * centerX + halfAccelY * centerY);
+		double c1 = 2 * (centerX * speedX + centerY * speedY);
+		double c0 = centerX * centerX + centerY * centerY - radius * radius;
+		return earliestEntry(w, c0, c1, c2, c3, c4, timeLimit);
+	}
+
+	/**
+	 * Helper method to compute the response of a point hitting a fixed line, of
+	 * any orientation, at impact.
+	 * 
+	 * @param normalX
+	 *            : x-component of the unit normal, from the line to the point.
+	 * @param normalY
+	 *            : y-component of the unit normal, from the line to the point.
+	 * @param speedX
+	 *            : speed in x-direction at impact.
+	 * @param speedY
+	 *            : speed in y-direction at impact.
+	 * @param restitution
+	 *            : fraction of the normal speed kept after impact.
+	 * @param friction
+	 *            : coefficient of friction against the tangential speed.
+	 * @param response
+	 *            : To update the new speed.
+	 */
+	private static void fixedLineImpactResponse(double normalX, double normalY, float speedX, float speedY,
+			float restitution, float friction, CollisionResponse response) {
+		// Speed along the normal (negative when approaching) and the tangent.
+		float speedN = (float) (speedX * normalX + speedY * normalY);
+		float speedT = (float) (-speedX * normalY + speedY * normalX);
+		float newSpeedN = bounceSpeed(speedN, restitution);
+		float newSpeedT = slideSpeed(speedT, speedN, restitution, friction);
+		response.newSpeedX = (float) (newSpeedN * normalX - newSpeedT * normalY);
+		response.newSpeedY = (float) (newSpeedN * normalY + newSpeedT * normalX);
+	}
+
+	/** Iterations of bisection, enough to pin a root in (0, 1] to double precision. */
+	private static final int BISECTION_ITERATIONS = 60;
+
+	/**
+	 * Helper method to find the earliest time t in (0, timeLimit] at which the gap
+	 * given by the polynomial c0 + c1 t + c2 t^2 + c3 t^3 + c4 t^4 closes, that is,
+	 * falls from positive to zero. Grazing contacts and gaps that are already
+	 * closed do not count.
+	 * 
+	 * @return the earliest t, or infinity if the gap does not close in time.
+	 */
+	private static float earliestEntry(Workspace w, double c0, double c1, double c2, double c3, double c4,
+			float timeLimit) {
+		double[] coeffs = w.polyCoeffs[0];
+		coeffs[0] = c0;
+		coeffs[1] = c1;
+		coeffs[2] = c2;
+		coeffs[3] = c3;
+		coeffs[4] = c4;
+		int numberOfRoots = polyRootsInInterval(w, 0, 4, 0, timeLimit);
+		for (int i = 0; i < numberOfRoots; i++) {
+			double t = w.polyRoots[0][i];
+			// Accept the root only if the gap is closing there.
+			double slope = c1 + t * (2 * c2 + t * (3 * c3 + t * 4 * c4));
+			if (slope < 0 && (float) t > 0) {
+				return (float) t;
+			}
+		}
+		return Float.MAX_VALUE;
+	}
+
+	/**
+	 * Helper method to find the roots in (lo, hi] of the polynomial in row level
+	 * of polyCoeffs, in ascending order. The roots of the derivative split the
+	 * interval into monotone pieces, each of which holds at most one root that is
+	 * located by bisection. So the cost is bounded for any coefficients.
+	 * 
+	 * @return the number of roots stored in row level of polyRoots.
+	 */
+	private static int polyRootsInInterval(Workspace w, int level, int degree, double lo, double hi) {
+		double[] coeffs = w.polyCoeffs[level];
+		double[] roots = w.polyRoots[level];
+		while (degree > 0 && coeffs[degree] == 0) {
+			degree--; // Drop vanishing leading terms
+		}
+		if (degree == 0) {
+			return 0;
+		}
+		if (degree == 1) {
+			double root = -coeffs[0] / coeffs[1];
+			if (root > lo && root <= hi) {
+				roots[0] = root;
+				return 1;
+			}
+			return 0;
+		}
+		if (degree == 2) {
+			double discriminant = coeffs[1] * coeffs[1] - 4 * coeffs[2] * coeffs[0];
+			if (discriminant < 0) {
+				return 0;
+			}
+			// Numerically stable form of the quadratic formula.
+			double q = -0.5 * (coeffs[1] + Math.copySign(Math.sqrt(discriminant), coeffs[1]));
+			double root1 = q / coeffs[2];
+			double root2 = (q != 0) ? coeffs[0] / q : root1;
+			int n = 0;
+			if (root1 > lo && root1 <= hi) {
+				roots[n++] = root1;
+			}
+			if (root2 > lo && root2 <= hi) {
+				roots[n++] = root2;
+			}
+			if (n == 2 && roots[0] > roots[1]) {
+				roots[0] = root2;
+				roots[1] = root1;
+			}
+			return n;
+		}
+
+		// Find the turning points from the derivative.
+		double[] derivative = w.polyCoeffs[level + 1];
+		for (int k = 1; k <= degree; k++) {
+			derivative[k - 1] = k * coeffs[k];
+		}
+		int numberOfTurns = polyRootsInInterval(w, level + 1, degree - 1, lo, hi);
+
+		int n = 0;
+		double a = lo;
+		double valueA = polyValue(coeffs, degree, a);
+		for (int k = 0; k <= numberOfTurns; k++) {
+			double b = (k < numberOfTurns) ? w.polyRoots[level + 1][k] : hi;
+			double valueB = polyValue(coeffs, degree, b);
+			if ((valueA > 0 && valueB <= 0) || (valueA < 0 && valueB >= 0)) {
+				// Exactly one root in (a, b]. Bisect, keeping the sign change.
+				double left = a;
+				double right = b;
+				for (int i = 0; i < BISECTION_ITERATIONS; i++) {
+					double middle = 0.5 * (left + right);
+					double valueMiddle = polyValue(coeffs, degree, middle);
+					if ((valueA > 0) == (valueMiddle > 0)) {
+						left = middle;
+					} else {
+						right = middle;
+					}
+				}
+				roots[n++] = right;
+			}
+			a = b;
+			valueA = valueB;
+		}
+		return n;
+	}
+
+	/** Helper method to evaluate a polynomial at t, by Horner's rule. */
+	private static double polyValue(double[] coeffs, int degree, double t) {
+		double value = coeffs[degree];
+		for (int k = degree - 1; k >= 0; k--) {
+			value = value * t + coeffs[k];
+		}
+		return value;
+	}
+
+	/**
+	 * Overlaps shallower than this threshold are left to the collision detection,
+	 * which copes with them, instead of being reported as penetration.
+	 */
+	private static final float PENETRATION_TOLERANCE = 1e-3f;
+
+	/**
+	 * Detect whether a point (with radius) has penetrated the borders of its
+	 * rectangular container, deeper than the tolerance, at the current instant.
+	 * If so, compute the minimal
+	 * position correction that brings it back inside, and reflect the speed
+	 * components that still point outwards. The result is passed back in the
+	 * given PenetrationResponse object.
+	 *
+	 * @param pointX
+	 *            : x-position of the center of the point.
+	 * @param pointY
+	 *            : y-position of the center of the point.
+	 * @param speedX
+	 *            : speed in x-direction.
+	 * @param speedY
+	 *            : speed in y-direction.
+	 * @param radius
+	 *            : radius of the point.
+	 * @param rectX1
+	 *            : top-left corner x of the rectangle
+	 * @param rectY1
+	 *            : top-left corner y of the rectangle
+	 * @param rectX2
+	 *            : bottom-right corner x of the rectangle
+	 * @param rectY2
+	 *            : bottom-right corner y of the rectangle
+	 * @param response
+	 *            : If penetration is detected, update the depth, the corrected
+	 *            position and speed. Otherwise, set depth to zero.
+	 */
+	public static void pointPenetratesRectangleOuter(float pointX, float pointY, float speedX, float speedY,
+			float radius, float rectX1, float rectY1, float rectX2, float rectY2, PenetrationResponse response) {
+
+		// Assumptions:
+		assert (rectX1 < rectX2) && (rectY1 < rectY2) : "Malformed rectangle!";
+		assert (radius >= 0) : "Negative radius!";
+
+		response.reset(); // Reset detected penetration depth to zero
+
+		// The center must stay within the rectangle shrunk by the radius.
+		// If the container is narrower than the point, center it.
+		float minX = rectX1 + radius;
+		float maxX = rectX2 - radius;
+		if (minX > maxX) {
+			minX = maxX = (rectX1 + rectX2) / 2;
+		}
+		float minY = rectY1 + radius;
+		float maxY = rectY2 - radius;
+		if (minY > maxY) {
+			minY = maxY = (rectY1 + rectY2) / 2;
+		}
+
+		float depth = 0;
+		response.newX = pointX;
+		response.newSpeedX = speedX;
+		if (pointX < minX) {
+			depth = minX - pointX;
+			response.newX = minX;
+			response.newSpeedX = Math.abs(speedX); // Head back inside
+		} else if (pointX > maxX) {
+			depth = pointX - maxX;
+			response.newX = maxX;
+			response.newSpeedX = -Math.abs(speedX);
+		}
+		response.newY = pointY;
+		response.newSpeedY = speedY;
+		if (pointY < minY) {
+			depth = Math.max(depth, minY - pointY);
+			response.newY = minY;
+			response.newSpeedY = Math.abs(speedY);
+		} else if (pointY > maxY) {
+			depth = Math.max(depth, pointY - maxY);
+			response.newY = maxY;
+			response.newSpeedY = -Math.abs(speedY);
+		}
+		if (depth <= PENETRATION_TOLERANCE) {
+			return; // Shallow enough for the collision detection to handle
+		}
+		response.depth = depth;
+	}
+
+	/**
+	 * Detect whether two points (with radius) overlap at the current instant. If
+	 * so, push them apart along the line joining their centers, each by a share
+	 * of the depth inversely proportional to its mass, so that they just touch.
+	 * If they are still moving into each other, also apply the usual elastic
+	 * response along that line. The results are passed back in the two given
+	 * PenetrationResponse objects.
+	 *
+	 * @param p1X
+	 *            : x-position of the center of point p1.
+	 * @param p1Y
+	 *            : y-position of the center of point p1.
+	 * @param p1SpeedX
+	 *            : p1's speed in x-direction.
+	 * @param p1SpeedY
+	 *            : p1's speed in y-direction.
+	 * @param p1Radius
+	 *            : p1's radius.
+	 * @param p2X
+	 *            : x-position of the center of point p2.
+	 * @param p2Y
+	 *            : y-position of the center of point p2.
+	 * @param p2SpeedX
+	 *            : p2's speed in x-direction.
+	 * @param p2SpeedY
+	 *            : p2's speed in y-direction.
+	 * @param p2Radius
+	 *            : p2's radius.
+	 * @param p1Response
+	 *            : If penetration is detected, update the depth, the corrected
+	 *            position and speed of p1. Otherwise, set depth to zero.
+	 * @param p2Response
+	 *            : If penetration is detected, update the depth, the corrected
+	 *            position and speed of p2. Otherwise, set depth to zero.
+	 */
+	public static void pointPenetratesMovingPoint(float p1X, float p1Y, float p1SpeedX, float p1SpeedY,
+			float p1Radius, float p2X, float p2Y, float p2SpeedX, float p2SpeedY, float p2Radius,
+			PenetrationResponse p1Response, PenetrationResponse p2Response) {
+		pointPenetratesMovingPoint(p1X, p1Y, p1SpeedX, p1SpeedY, p1Radius, p2X, p2Y, p2SpeedX, p2SpeedY, p2Radius,
+				ELASTIC, FRICTIONLESS, p1Response, p2Response);
+	}
+
+	/**
+	 * Detect whether two points (with radius) overlap at the current instant. If
+	 * so, push them apart along the line joining their centers, each by a share
+	 * of the depth inversely proportional to its mass, so that they just touch.
+	 * If they are still moving into each other, also let them bounce off each
+	 * other along that line, losing speed to restitution and friction as in a
+	 * collision. The results are passed back in the two given PenetrationResponse
+	 * objects.
+	 *
+	 * @param p1X
+	 *            : x-position of the center of point p1.
+	 * @param p1Y
+	 *            : y-position of the center of point p1.
+	 * @param p1SpeedX
+	 *            : p1's speed in x-direction.
+	 * @param p1SpeedY
+	 *            : p1's speed in y-direction.
+	 * @param p1Radius
+	 *            : p1's radius.
+	 * @param p2X
+	 *            : x-position of the center of point p2.
+	 * @param p2Y
+	 *            : y-position of the center of point p2.
+	 * @param p2SpeedX
+	 *            : p2's speed in x-direction.
+	 * @param p2SpeedY
+	 *            : p2's speed in y-direction.
+	 * @param p2Radius
+	 *            : p2's radius.
+	 * @param restitution
+	 *            : fraction of the relative normal speed kept after the bounce, in
+	 *            [0, 1] range.
+	 * @param friction
+	 *            : coefficient of friction against the relative tangential
+	 *            speed.
+	 * @param p1Response
+	 *            : If penetration is detected, update the depth, the corrected
+	 *            position and speed of p1. Otherwise, set depth to zero.
+	 * @param p2Response
+	 *            : If penetration is detected, update the depth, the corrected
+	 *            position and speed of p2. Otherwise, set depth to zero.
+	 */
+	public static void pointPenetratesMovingPoint(float p1X, float p1Y, float p1SpeedX, float p1SpeedY,
+			float p1Radius, float p2X, float p2Y, float p2SpeedX, float p2SpeedY, float p2Radius, float restitution,
+			float friction, PenetrationResponse p1Response, PenetrationResponse p2Response) {
+		pointPenetratesMovingPoint(p1X, p1Y, p1SpeedX, p1SpeedY, p1Radius, p2X, p2Y, p2SpeedX, p2SpeedY, p2Radius,
+				restitution, friction, p1Response, p2Response, workspace.get());
+	}
+
+	/**
+	 * Detect whether two points (with radius) overlap at the current instant. If
+	 * so, push them apart along the line joining their centers, each by a share
+	 * of the depth inversely proportional to its mass, so that they just touch.
+	 * If they are still moving into each other, also let them bounce off each
+	 * other along that line, losing speed to restitution and friction as in a
+	 * collision. The results are passed back in the two given PenetrationResponse
+	 * objects.
+	 *
+	 * @param p1X
+	 *            : x-position of the center of point p1.
+	 * @param p1Y
+	 *            : y-position of the center of point p1.
+	 * @param p1SpeedX
+	 *            : p1's speed in x-direction.
+	 * @param p1SpeedY
+	 *            : p1's speed in y-direction.
+	 * @param p1Radius
+	 *            : p1's radius.
+	 * @param p2X
+	 *            : x-position of the center of point p2.
+	 * @param p2Y
+	 *            : y-position of the center of point p2.
+	 * @param p2SpeedX
+	 *            : p2's speed in x-direction.
+	 * @param p2SpeedY
+	 *            : p2's speed in y-direction.
+	 * @param p2Radius
+	 *            : p2's radius.
+	 * @param restitution
+	 *            : fraction of the relative normal speed kept after the bounce, in
+	 *            [0, 1] range.
+	 * @param friction
+	 *            : coefficient of friction against the relative tangential
+	 *            speed.
+	 * @param p1Response
+	 *            : If penetration is detected, update the depth, the corrected
+	 *            position and speed of p1. Otherwise, set depth to zero.
+	 * @param p2Response
+	 *            : If penetration is detected, update the depth, the corrected
+	 *            position and speed of p2. Otherwise, set depth to zero.
+	 * @param w
+	 *            : working copies of the caller, used instead of those of the
+	 *            calling thread.
+	 */
+	public static void pointPenetratesMovingPoint(float p1X, float p1Y, float p1SpeedX, float p1SpeedY, float p1Radius,
+			float p2X, float p2Y, float p2SpeedX, float p2SpeedY, float p2Radius, float restitution, float friction,
+			PenetrationResponse p1Response, PenetrationResponse p2Response, Workspace w) {
+		// Assumptions:
+		assert (p1Radius >= 0) && (p2Radius >= 0) : "Negative radius!";
+
+		p1Response.reset(); // Reset detected penetration depth to zero
+		p2Response.reset();
+
+		double centerX = p2X - p1X;
+		double centerY = p2Y - p1Y;
+		double radius = p1Radius + p2Radius;
+		double distanceSq = centerX * centerX + centerY * centerY;
+		if (distanceSq >= radius * radius) {
+			return; // No overlap
+		}
+		double distance = Math.sqrt(distanceSq);
+		double depth = radius - distance;
+		if (depth <= PENETRATION_TOLERANCE) {
+			return; // Shallow enough for the collision detection to handle
+		}
+
+		// Direction from p1 to p2. Pick any if the centers coincide.
+		double normalX = 1;
+		double normalY = 0;
+		if (distance > 0) {
+			normalX = centerX / distance;
+			normalY = centerY / distance;
+		}
+
+		// Assume that mass is proportional to the cube of radius.
+		// The lighter point takes the larger share of the correction, and two
+		// true points take half each.
+		double p1Mass = p1Radius * p1Radius * p1Radius;
+		double p2Mass = p2Radius * p2Radius * p2Radius;
+		double sumMass = p1Mass + p2Mass;
+		double p1Share = (sumMass > 0) ? p2Mass / sumMass : 0.5;
+		double p2Share = (sumMass > 0) ? p1Mass / sumMass : 0.5;
+
+		p1Response.depth = (float) depth;
+		p1Response.newX = (float) (p1X - normalX * depth * p1Share);
+		p1Response.newY = (float) (p1Y - normalY * depth * p1Share);
+		p2Response.depth = (float) depth;
+		p2Response.newX = (float) (p2X + normalX * depth * p2Share);
+		p2Response.newY = (float) (p2Y + normalY * depth * p2Share);
+
+		// Bounce only if still approaching, as in a collision.
+		p1Response.newSpeedX = p1SpeedX;
+		p1Response.newSpeedY = p1SpeedY;
+		p2Response.newSpeedX = p2SpeedX;
+		p2Response.newSpeedY = p2SpeedY;
+		double p1SpeedN = p1SpeedX * normalX + p1SpeedY * normalY;
+		double p2SpeedN = p2SpeedX * normalX + p2SpeedY * normalY;
+		if (p1SpeedN - p2SpeedN <= 0) {
+			return;
+		}
+		movingPointImpactResponse(w, Math.atan2(normalY, normalX), p1SpeedX, p1SpeedY, p1Radius, p2SpeedX, p2SpeedY,
+				p2Radius, restitution, friction, w.p1Bounce, w.p2Bounce);
+		p1Response.newSpeedX = w.p1Bounce.newSpeedX;
+		p1Response.newSpeedY = w.p1Bounce.newSpeedY;
+		p2Response.newSpeedX = w.p2Bounce.newSpeedX;
+		p2Response.newSpeedY = w.p2Bounce.newSpeedY;
+	}
+
+	/**
+	 * Detect whether a point (with radius) overlaps a line segment of any
+	 * orientation at the current instant. If so, push it out to the side its
+	 * center is on, so that it just touches, and reflect its speed if it still
+	 * moves into the segment. The result is passed back in the given
+	 * PenetrationResponse object.
+	 *
+	 * @param pointX
+	 *            : x-position of the center of the point.
+	 * @param pointY
+	 *            : y-position of the center of the point.
+	 * @param speedX
+	 *            : speed in x-direction.
+	 * @param speedY
+	 *            : speed in y-direction.
+	 * @param radius
+	 *            : radius of the point.
+	 * @param x1
+	 *            : x-position of the first end of the segment.
+	 * @param y1
+	 *            : y-position of the first end of the segment.
+	 * @param x2
+	 *            : x-position of the second end of the segment.
+	 * @param y2
+	 *            : y-position of the second end of the segment.
+	 * @param response
+	 *            : If penetration is detected, update the depth, the corrected
+	 *            position and speed. Otherwise, set depth to zero.
+	 */
+	public static void pointPenetratesLineSegment(float pointX, float pointY, float speedX, float speedY,
+			float radius, float x1, float y1, float x2, float y2, PenetrationResponse response) {
+
+		// Assumptions:
+		assert (radius >= 0) : "Negative radius!";
+
+		response.reset(); // Reset detected penetration depth to zero
+
+		// Closest point of the segment to the center
+		double edgeX = x2 - x1;
+		double edgeY = y2 - y1;
+		double lengthSq = edgeX * edgeX + edgeY * edgeY;
+		double fraction = 0;
+		if (lengthSq > 0) {
+			fraction = ((pointX - x1) * edgeX + (pointY - y1) * edgeY) / lengthSq;
+			fraction = Math.max(0, Math.min(1, fraction));
+		}
+		double offsetX = pointX - (x1 + fraction * edgeX);
+		double offsetY = pointY - (y1 + fraction * edgeY);
+		double distance = Math.sqrt(offsetX * offsetX + offsetY * offsetY);
+		double depth = radius - distance;
+		if (depth <= PENETRATION_TOLERANCE) {
+			return;
+		}
+
+		double normalX, normalY;
+		if (distance > 0) {
+			normalX = offsetX / distance;
+			normalY = offsetY / distance;
+		} else if (lengthSq > 0) {
+			// Center right on the segment: pick a side.
+			double length = Math.sqrt(lengthSq);
+			normalX = -edgeY / length;
+			normalY = edgeX / length;
+		} else {
+			normalX = 0;
+			normalY = -1;
+		}
+		response.depth = (float) depth;
+		response.newX = (float) (pointX + normalX * depth);
+		response.newY = (float) (pointY + normalY * depth);
+		double speedN = speedX * normalX + speedY * normalY;
+		if (speedN < 0) {
+			response.newSpeedX = (float) (speedX - 2 * speedN * normalX);
+			response.newSpeedY = (float) (speedY - 2 * speedN * normalY);
+		} else {
+			response.newSpeedX = speedX;
+			response.newSpeedY = speedY;
+		}
+	}
+
+	/**
+	 * Detect collision for a moving convex shape hitting another moving convex
+	 * shape, within the given timeLimit. The shapes translate without rotating. A
+	 * circle is a Capsule whose two ends coincide. If collision is detected within
+	 * the timeLimit, compute collision time and responses in the given
+	 * CollisionResponse objects. Otherwise, set collision time to infinity.
+	 * 
+	 * The bounding circles are tested first, with the moving point detection. Only
+	 * if they meet within the timeLimit, the shapes are advanced conservatively
+	 * from that time on, using the GJK distance between them, until they touch.
+	 * 
+	 * If the advancement does not reach s2 within its iteration budget, both
+	 * responses hold the time reached so far and the unchanged speeds, which ends
+	 * the sub-step there without a bounce.
+	 * 
+	 * @param s1
+	 *            : shape s1.
+	 * @param s1X
+	 *            : x-position of the origin of s1.
+	 * @param s1Y
+	 *            : y-position of the origin of s1.
+	 * @param s1SpeedX
+	 *            : s1's speed in x-direction.
+	 * @param s1SpeedY
+	 *            : s1's speed in y-direction.
+	 * @param s2
+	 *            : shape s2.
+	 * @param s2X
+	 *            : x-position of the origin of s2.
+	 * @param s2Y
+	 *            : y-position of the origin of s2.
+	 * @param s2SpeedX
+	 *            : s2's speed in x-direction.
+	 * @param s2SpeedY
+	 *            : s2's speed in y-direction.
+	 * @param restitution
+	 *            : fraction of the relative normal speed kept after impact.
+	 * @param friction
+	 *            : coefficient of friction against the relative tangential
+	 *            speed.
+	 * @param timeLimit
+	 *            : max time to detect collision, in (0, 1] range.
+	 * @param s1Response
+	 *            : If collision is detected, update the collision time and response
+	 *            for s1. Otherwise, set collision time to infinity.
+	 * @param s2Response
+	 *            : If collision is detected, update the collision time and response
+	 *            for s2. Otherwise, set collision time to infinity.
+	 */
+	public static void shapeIntersectsMovingShape(ConvexShape s1, float s1X, float s1Y, float s1SpeedX,
+			float s1SpeedY, ConvexShape s2, float s2X, float s2Y, float s2SpeedX, float s2SpeedY, float restitution,
+			float friction, float timeLimit, CollisionResponse s1Response, CollisionResponse s2Response) {
+		shapeIntersectsMovingShape(s1, s1X, s1Y, s1SpeedX, s1SpeedY, s2, s2X, s2Y, s2SpeedX, s2SpeedY, restitution,
+				friction, timeLimit, s1Response, s2Response, workspace.get());
+	}
+
+	/**
+	 * Detect collision for a moving convex shape hitting another moving convex
+	 * shape, within the given timeLimit. The shapes translate without rotating. A
+	 * circle is a Capsule whose two ends coincide. If collision is detected within
+	 * the timeLimit, compute collision time and responses in the given
+	 * CollisionResponse objects. Otherwise, set collision time to infinity.
+	 * 
+	 * The bounding circles are tested first, with the moving point detection. Only
+	 * if they meet within the timeLimit, the shapes are advanced conservatively
+	 * from that time on, using the GJK distance between them, until they touch.
+	 * 
+	 * If the advancement does not reach s2 within its iteration budget, both
+	 * responses hold the time reached so far and the unchanged speeds, which ends
+	 * the sub-step there without a bounce.
+	 * 
+	 * @param s1
+	 *            : shape s1.
+	 * @param s1X
+	 *            : x-position of the origin of s1.
+	 * @param s1Y
+	 *            : y-position of the origin of s1.
+	 * @param s1SpeedX
+	 *            : s1's speed in x-direction.
+	 * @param s1SpeedY
+	 *            : s1's speed in y-direction.
+	 * @param s2
+	 *            : shape s2.
+	 * @param s2X
+	 *            : x-position of the origin of s2.
+	 * @param s2Y
+	 *            : y-position of the origin of s2.
+	 * @param s2SpeedX
+	 *            : s2's speed in x-direction.
+	 * @param s2SpeedY
+	 *            : s2's speed in y-direction.
+	 * @param restitution
+	 *            : fraction of the relative normal speed kept after impact.
+	 * @param friction
+	 *            : coefficient of friction against the relative tangential
+	 *            speed.
+	 * @param timeLimit
+	 *            : max time to detect collision, in (0, 1] range.
+	 * @param s1Response
+	 *            : If collision is detected, update the collision time and response
+	 *            for s1. Otherwise, set collision time to infinity.
+	 * @param s2Response
+	 *            : If collision is detected, update the collision time and response
+	 *            for s2. Otherwise, set collision time to infinity.
+	 * @param w
+	 *            : working copies of the caller, used instead of those of the
+	 *            calling thread.
+	 */
+	public static void shapeIntersectsMovingShape(ConvexShape s1, float s1X, float s1Y, float s1SpeedX, float s1SpeedY,
+			ConvexShape s2, float s2X, float s2Y, float s2SpeedX, float s2SpeedY, float restitution, float friction,
+			float timeLimit, CollisionResponse s1Response, CollisionResponse s2Response, Workspace w) {
+		// Assumptions:
+		assert timeLimit > 0 : "Non-positive time!";
+
+		s1Response.reset(); // Set detected collision time to infinity
+		s2Response.reset();
+
+		// Work in the frame of s2, which then stands still.
+		float t = shapeTimeOfImpact(w, s1, s1X, s1Y, s1SpeedX - s2SpeedX, s1SpeedY - s2SpeedY, 0, 0, s2, s2X, s2Y,
+				timeLimit);
+		if (t <= timeLimit) {
+			s1Response.t = t;
+			s2Response.t = t;
+			if (w.contactReached) {
+				shapeImpactResponse(w, s1SpeedX, s1SpeedY, 1 / s1.mass, s2SpeedX, s2SpeedY, 1 / s2.mass, restitution,
+						friction, s1Response, s2Response);
+			} else {
+				s1Response.newSpeedX = s1SpeedX; // Checkpoint, no bounce
+				s1Response.newSpeedY = s1SpeedY;
+				s2Response.newSpeedX = s2SpeedX;
+				s2Response.newSpeedY = s2SpeedY;
+			}
+		}
+	}
+
+	/**
+	 * Detect collision for a moving convex shape hitting a static convex shape,
+	 * such as a piece of level geometry, within the given timeLimit. The static
+	 * shape has infinite mass. The result is passed back in the given
+	 * CollisionResponse object.
+	 * 
+	 * If the advancement does not reach the shape within its iteration budget,
+	 * the response holds the time reached so far and the unchanged speed, as for
+	 * acceleratingPointIntersectsStaticShape().
+	 * 
+	 * @param s1
+	 *            : moving shape s1.
+	 * @param s1X
+	 *            : x-position of the origin of s1.
+	 * @param s1Y
+	 *            : y-position of the origin of s1.
+	 * @param s1SpeedX
+	 *            : s1's speed in x-direction.
+	 * @param s1SpeedY
+	 *            : s1's speed in y-direction.
+	 * @param s2
+	 *            : static shape s2.
+	 * @param s2X
+	 *            : x-position of the origin of s2.
+	 * @param s2Y
+	 *            : y-position of the origin of s2.
+	 * @param restitution
+	 *            : fraction of the normal speed kept after impact.
+	 * @param friction
+	 *            : coefficient of friction against the tangential speed.
+	 * @param timeLimit
+	 *            : max time to detect collision, in (0, 1] range.
+	 * @param s1Response
+	 *            : If collision is detected, update the collision time and response
+	 *            for s1. Otherwise, set collision time to infinity.
+	 */
+	public static void shapeIntersectsStaticShape(ConvexShape s1, float s1X, float s1Y, float s1SpeedX,
+			float s1SpeedY, ConvexShape s2, float s2X, float s2Y, float restitution, float friction, float timeLimit,
+			CollisionResponse s1Response) {
+		shapeIntersectsStaticShape(s1, s1X, s1Y, s1SpeedX, s1SpeedY, s2, s2X, s2Y, restitution, friction, timeLimit,
+				s1Response, workspace.get());
+	}
+
+	/**
+	 * Detect collision for a moving convex shape hitting a static convex shape,
+	 * such as a piece of level geometry, within the given timeLimit. The static
+	 * shape has infinite mass. The result is passed back in the given
+	 * CollisionResponse object.
+	 * 
+	 * If the advancement does not reach the shape within its iteration budget,
+	 * the response holds the time reached so far and the unchanged speed, as for
+	 * acceleratingPointIntersectsStaticShape().
+	 * 
+	 * @param s1
+	 *            : moving shape s1.
+	 * @param s1X
+	 *            : x-position of the origin of s1.
+	 * @param s1Y
+	 *            : y-position of the origin of s1.
+	 * @param s1SpeedX
+	 *            : s1's speed in x-direction.
+	 * @param s1SpeedY
+	 *            : s1's speed in y-direction.
+	 * @param s2
+	 *            : static shape s2.
+	 * @param s2X
+	 *            : x-position of the origin of s2.
+	 * @param s2Y
+	 *            : y-position of the origin of s2.
+	 * @param restitution
+	 *            : fraction of the normal speed kept after impact.
+	 * @param friction
+	 *            : coefficient of friction against the tangential speed.
+	 * @param timeLimit
+	 *            : max time to detect collision, in (0, 1] range.
+	 * @param s1Response
+	 *            : If collision is detected, update the collision time and response
+	 *            for s1. Otherwise, set collision time to infinity.
+	 * @param w
+	 *            : working copies of the caller, used instead of those of the
+	 *            calling thread.
+	 */
+	public static void shapeIntersectsStaticShape(ConvexShape s1, float s1X, float s1Y, float s1SpeedX, float s1SpeedY,
+			ConvexShape s2, float s2X, float s2Y, float restitution, float friction, float timeLimit,
+			CollisionResponse s1Response, Workspace w) {
+		// Assumptions:
+		assert timeLimit > 0 : "Non-positive time!";
+
+		s1Response.reset(); // Set detected collision time to infinity
+
+		float t = shapeTimeOfImpact(w, s1, s1X, s1Y, s1SpeedX, s1SpeedY, 0, 0, s2, s2X, s2Y, timeLimit);
+		if (t <= timeLimit) {
+			s1Response.t = t;
+			if (w.contactReached) {
+				shapeImpactResponse(w, s1SpeedX, s1SpeedY, 1 / s1.mass, 0, 0, 0, restitution, friction, s1Response,
+						null);
+			} else {
+				s1Response.newSpeedX = s1SpeedX; // Checkpoint, no bounce
+				s1Response.newSpeedY = s1SpeedY;
+			}
+		}
+	}
+
+	/**
+	 * Detect collision for a moving point (with radius) hitting a static convex
+	 * shape, within the given timeLimit. The result is passed back in the given
+	 * CollisionResponse object.
+	 * 
+	 * @param pointX
+	 *            : x-position of the center of the point.
+	 * @param pointY
+	 *            : y-position of the center of the point.
+	 * @param speedX
+	 *            : speed in x-direction.
+	 * @param speedY
+	 *            : speed in y-direction.
+	 * @param radius
+	 *            : radius of the point.
+	 * @param shape
+	 *            : static shape.
+	 * @param shapeX
+	 *            : x-position of the origin of the shape.
+	 * @param shapeY
+	 *            : y-position of the origin of the shape.
+	 * @param restitution
+	 *            : fraction of the normal speed kept after impact.
+	 * @param friction
+	 *            : coefficient of friction against the tangential speed.
+	 * @param timeLimit
+	 *            : max time to detect collision, in (0, 1] range.
+	 * @param response
+	 *            : If collision is detected, update the collision time and
+	 *            response. Otherwise, set collision time to infinity.
+	 */
+	public static void pointIntersectsStaticShape(float pointX, float pointY, float speedX, float speedY,
+			float radius, ConvexShape shape, float shapeX, float shapeY, float restitution, float friction,
+			float timeLimit, CollisionResponse response) {
+		pointIntersectsStaticShape(pointX, pointY, speedX, speedY, radius, shape, shapeX, shapeY, restitution, friction,
+				timeLimit, response, workspace.get());
+	}
+
+	/**
+	 * Detect collision for a moving point (with radius) hitting a static convex
+	 * shape, within the given timeLimit. The result is passed back in the given
+	 * CollisionResponse object.
+	 * 
+	 * @param pointX
+	 *            : x-position of the center of the point.
+	 * @param pointY
+	 *            : y-position of the center of the point.
+	 * @param speedX
+	 *            : speed in x-direction.
+	 * @param speedY
+	 *            : speed in y-direction.
+	 * @param radius
+	 *            : radius of the point.
+	 * @param shape
+	 *            : static shape.
+	 * @param shapeX
+	 *            : x-position of the origin of the shape.
+	 * @param shapeY
+	 *            : y-position of the origin of the shape.
+	 * @param restitution
+	 *            : fraction of the normal speed kept after impact.
+	 * @param friction
+	 *            : coefficient of friction against the tangential speed.
+	 * @param timeLimit
+	 *            : max time to detect collision, in (0, 1] range.
+	 * @param response
+	 *            : If collision is detected, update the collision time and
+	 *            response. Otherwise, set collision time to infinity.
+	 * @param w
+	 *            : working copies of the caller, used instead of those of the
+	 *            calling thread.
+	 */
+	public static void pointIntersectsStaticShape(float pointX, float pointY, float speedX, float speedY, float radius,
+			ConvexShape shape, float shapeX, float shapeY, float restitution, float friction, float timeLimit,
+			CollisionResponse response, Workspace w) {
+		acceleratingPointIntersectsStaticShape(pointX, pointY, speedX, speedY, 0, 0, radius, shape, shapeX, shapeY,
+				restitution, friction, timeLimit, response, w);
+	}
+
+	/**
+	 * Detect collision for a moving point with constant acceleration hitting a
+	 * static convex shape, within the given timeLimit. The result is passed back
+	 * in the given CollisionResponse object.
+	 * 
+	 * On a curved path the advancement is bounded by the speed the point may
+	 * reach before timeLimit. If it does not reach the shape within its iteration
+	 * budget, the response holds the time reached so far and the unchanged speed,
+	 * which ends the sub-step there without a bounce.
+	 * 
+	 * @param pointX
+	 *            : x-position of the center of the point.
+	 * @param pointY
+	 *            : y-position of the center of the point.
+	 * @param speedX
+	 *            : speed in x-direction.
+	 * @param speedY
+	 *            : speed in y-direction.
+	 * @param accelX
+	 *            : acceleration in x-direction.
+	 * @param accelY
+	 *            : acceleration in y-direction.
+	 * @param radius
+	 *            : radius of the point.
+	 * @param shape
+	 *            : static shape.
+	 * @param shapeX
+	 *            : x-position of the origin of the shape.
+	 * @param shapeY
+	 *            : y-position of the origin of the shape.
+	 * @param restitution
+	 *            : fraction of the normal speed kept after impact.
+	 * @param friction
+	 *            : coefficient of friction against the tangential speed.
+	 * @param timeLimit
+	 *            : max time to detect collision, in (0, 1] range.
+	 * @param response
+	 *            : If collision is detected, update the collision time and
+	 *            response. Otherwise, set collision time to infinity.
+	 */
+	public static void acceleratingPointIntersectsStaticShape(float pointX, float pointY, float speedX,
+			float speedY, float accelX, float accelY, float radius, ConvexShape shape, float shapeX, float shapeY,
+			float restitution, float friction, float timeLimit, CollisionResponse response) {
+		acceleratingPointIntersectsStaticShape(pointX, pointY, speedX, speedY, accelX, accelY, radius, shape, shapeX,
+				shapeY, restitution, friction, timeLimit, response, workspace.get());
+	}
+
+	/**
+	 * Detect collision for a moving point with constant acceleration hitting a
+	 * static convex shape, within the given timeLimit. The result is passed back
+	 * in the given CollisionResponse object.
+	 * 
+	 * On a curved path the advancement is bounded by the speed the point may
+	 * reach before timeLimit. If it does not reach the shape within its iteration
+	 * budget, the response holds the time reached so far and the unchanged speed,
+	 * which ends the sub-step there without a bounce.
+	 * 
+	 * @param pointX
+	 *            : x-position of the center of the point.
+	 * @param pointY
+	 *            : y-position of the center of the point.
+	 * @param speedX
+	 *            : speed in x-direction.
+	 * @param speedY
+	 *            : speed in y-direction.
+	 * @param accelX
+	 *            : acceleration in x-direction.
+	 * @param accelY
+	 *            : acceleration in y-direction.
+	 * @param radius
+	 *            : radius of the point.
+	 * @param shape
+	 *            : static shape.
+	 * @param shapeX
+	 *            : x-position of the origin of the shape.
+	 * @param shapeY
+	 *            : y-position of the origin of the shape.
+	 * @param restitution
+	 *            : fraction of the normal speed kept after impact.
+	 * @param friction
+	 *            : coefficient of friction against the tangential speed.
+	 * @param timeLimit
+	 *            : max time to detect collision, in (0, 1] range.
+	 * @param response
+	 *            : If collision is detected, update the collision time and
+	 *            response. Otherwise, set collision time to infinity.
+	 * @param w
+	 *            : working copies of the caller, used instead of those of the
+	 *            calling thread.
+	 */
+	public static void acceleratingPointIntersectsStaticShape(float pointX, float pointY, float speedX, float speedY,
+			float accelX, float accelY, float radius, ConvexShape shape, float shapeX, float shapeY, float restitution,
+			float friction, float timeLimit, CollisionResponse response, Workspace w) {
+		// Assumptions:
+		assert (radius >= 0) : "Negative radius!";
+		assert (timeLimit > 0) : "Non-positive time";
+
+		response.reset(); // Reset detected collision time to infinity
+
+		w.pointShape.set(0, 0, 0, 0, radius);
+		float t = shapeTimeOfImpact(w, w.pointShape, pointX, pointY, speedX, speedY, accelX, accelY, shape, shapeX,
+				shapeY, timeLimit);
+		if (t <= timeLimit) {
+			response.t = t;
+			float impactSpeedX = speedX + accelX * t;
+			float impactSpeedY = speedY + accelY * t;
+			if (w.contactReached) {
+				shapeImpactResponse(w, impactSpeedX, impactSpeedY, 1 / w.pointShape.mass, 0, 0, 0, restitution,
+						friction, response, null);
+			} else {
+				response.newSpeedX = impactSpeedX; // Checkpoint, no bounce
+				response.newSpeedY = impactSpeedY;
+			}
+		}
+	}
+
+	/**
+	 * Detect whether a point (with radius) has penetrated a static convex shape at
+	 * the current instant. If so, push it out along the contact normal, and
+	 * reflect its speed if it still moves inwards. If the center of the point is
+	 * inside the core of the shape, there is no contact normal, and the point is
+	 * pushed directly away from the origin of the shape, out of its bounding
+	 * circle. The result is passed back in the given PenetrationResponse object.
+	 * 
+	 * @param pointX
+	 *            : x-position of the center of the point.
+	 * @param pointY
+	 *            : y-position of the center of the point.
+	 * @param speedX
+	 *            : speed in x-direction.
+	 * @param speedY
+	 *            : speed in y-direction.
+	 * @param radius
+	 *            : radius of the point.
+	 * @param shape
+	 *            : static shape.
+	 * @param shapeX
+	 *            : x-position of the origin of the shape.
+	 * @param shapeY
+	 *            : y-position of the origin of the shape.
+	 * @param response
+	 *            : If penetration is detected, update the depth, the corrected
+	 *            position and speed. Otherwise, set depth to zero.
+	 */
+	public static void pointPenetratesStaticShape(float pointX, float pointY, float speedX, float speedY,
+			float radius, ConvexShape shape, float shapeX, float shapeY, PenetrationResponse response) {
+		pointPenetratesStaticShape(pointX, pointY, speedX, speedY, radius, shape, shapeX, shapeY, response,
+				workspace.get());
+	}
+
+	/**
+	 * Detect whether a point (with radius) has penetrated a static convex shape at
+	 * the current instant. If so, push it out along the contact normal, and
+	 * reflect its speed if it still moves inwards. If the center of the point is
+	 * inside the core of the shape, there is no contact normal, and the point is
+	 * pushed directly away from the origin of the shape, out of its bounding
+	 * circle. The result is passed back in the given PenetrationResponse object.
+	 * 
+	 * @param pointX
+	 *            : x-position of the center of the point.
+	 * @param pointY
+	 *            : y-position of the center of the point.
+	 * @param speedX
+	 *            : speed in x-direction.
+	 * @param speedY
+	 *            : speed in y-direction.
+	 * @param radius
+	 *            : radius of the point.
+	 * @param shape
+	 *            : static shape.
+	 * @param shapeX
+	 *            : x-position of the origin of the shape.
+	 * @param shapeY
+	 *            : y-position of the origin of the shape.
+	 * @param response
+	 *            : If penetration is detected, update the depth, the corrected
+	 *            position and speed. Otherwise, set depth to zero.
+	 * @param w
+	 *            : working copies of the caller, used instead of those of the
+	 *            calling thread.
+	 */
+	public static void pointPenetratesStaticShape(float pointX, float pointY, float speedX, float speedY, float radius,
+			ConvexShape shape, float shapeX, float shapeY, PenetrationResponse response, Workspace w) {
+		// Assumptions:
+		assert (radius >= 0) : "Negative radius!";
+
+		response.reset(); // Reset detected penetration depth to zero
+
+		// Cheap test against the bounding circle first.
+		double centerX = shapeX - pointX;
+		double centerY = shapeY - pointY;
+		double centerDistance = Math.sqrt(centerX * centerX + centerY * centerY);
+		double boundingDepth = radius + shape.boundingRadius - centerDistance;
+		if (boundingDepth <= 0) {
+			return;
+		}
+
+		w.pointShape.set(0, 0, 0, 0, radius);
+		double distance = gjkDistance(w, w.pointShape, pointX, pointY, shape, shapeX, shapeY);
+		double depth, normalX, normalY;
+		if (distance > 0) {
+			depth = radius + shape.radius - distance;
+			normalX = w.contactNormalX;
+			normalY = w.contactNormalY;
+		} else {
+			depth = boundingDepth;
+			normalX = (centerDistance > 0) ? centerX / centerDistance : 1;
+			normalY = (centerDistance > 0) ? centerY / centerDistance : 0;
+		}
+		if (depth <= PENETRATION_TOLERANCE) {
+			return; // Shallow enough for the collision detection to handle
+		}
+
+		response.depth = (float) depth;
+		response.newX = (float) (pointX - normalX * depth);
+		response.newY = (float) (pointY - normalY * depth);
+		double speedN = speedX * normalX + speedY * normalY;
+		if (speedN > 0) {
+			response.newSpeedX = (float) (speedX - 2 * speedN * normalX);
+			response.newSpeedY = (float) (speedY - 2 * speedN * normalY);
+		} else {
+			response.newSpeedX = speedX;
+			response.newSpeedY = speedY;
+		}
+	}
+
+	/** Gap at which two shapes count as touching. */
+	private static final float TOUCH_DISTANCE = 1e-3f;
+	/** Max iterations of the GJK distance and of the conservative advancement. */
+	private static final int MAX_SHAPE_ITERATIONS = 32;
+	/** Relative progress below which the GJK distance has converged. */
+	private static final double GJK_TOLERANCE = 1e-9;
+
+	/**
+	 * Helper method to find the time (t) at which a moving shape s1 first touches
+	 * a fixed shape s2, by conservative advancement. At each iteration, the GJK
+	 * distance gives the gap and its direction, and s1 is advanced by the gap
+	 * divided by the fastest it may close, so that it never passes through s2.
+	 * 
+	 * Without acceleration, the gap is a convex function of time, and the closing
+	 * speed along the contact normal is exact. If it is not positive, the shapes
+	 * never meet.
+	 * 
+	 * @return the collision time, or infinity if the shapes do not meet within
+	 *         timeLimit, or if they already overlap.
+	 */
+	private static float shapeTimeOfImpact(Workspace w, ConvexShape s1, float s1X, float s1Y, float speedX,
+			float speedY, float accelX, float accelY, ConvexShape s2, float s2X, float s2Y, float timeLimit) {
+		w.contactReached = true;
+		boolean coasting = (accelX == 0 && accelY == 0);
+		double accel = Math.sqrt(accelX * accelX + accelY * accelY);
+
+		// Early-out on the bounding circles.
+		double t = 0;
+		double centerX = s1X - s2X;
+		double centerY = s1Y - s2Y;
+		double boundingGap = Math.sqrt(centerX * centerX + centerY * centerY) - s1.boundingRadius
+				- s2.boundingRadius;
+		if (boundingGap > 0) {
+			if (coasting) {
+				// The shapes cannot touch before their bounding circles do.
+				float tBound = pointIntersectsMovingPointDetection(s1X, s1Y, speedX, speedY, s1.boundingRadius, s2X,
+						s2Y, 0, 0, s2.boundingRadius);
+				if (tBound > timeLimit) {
+					return Float.MAX_VALUE;
+				}
+				t = tBound;
+			} else {
+				double reach = Math.sqrt(speedX * speedX + speedY * speedY) * timeLimit
+						+ 0.5 * accel * timeLimit * timeLimit;
+				if (boundingGap > reach) {
+					return Float.MAX_VALUE;
+				}
+			}
+		}
+
+		for (int iteration = 0; iteration < MAX_SHAPE_ITERATIONS; iteration++) {
+			double positionX = s1X + (speedX + 0.5 * accelX * t) * t;
+			double positionY = s1Y + (speedY + 0.5 * accelY * t) * t;
+			double coreDistance = gjkDistance(w, s1, positionX, positionY, s2, s2X, s2Y);
+			if (coreDistance == 0) {
+				return Float.MAX_VALUE; // Already overlapping
+			}
+			double gap = coreDistance - s1.radius - s2.radius;
+			double closingSpeed = (speedX + accelX * t) * w.contactNormalX + (speedY + accelY * t) * w.contactNormalY;
+			if (gap <= TOUCH_DISTANCE) {
+				if (gap < -TOUCH_DISTANCE || closingSpeed <= 0) {
+					return Float.MAX_VALUE; // Overlapping, or touching but separating
+				}
+				return Math.max((float) t, Float.MIN_NORMAL);
+			}
+			double maxClosingSpeed;
+			if (coasting) {
+				if (closingSpeed <= 0) {
+					return Float.MAX_VALUE; // The gap only grows from here on
+				}
+				maxClosingSpeed = closingSpeed;
+			} else {
+				double speedAtTX = speedX + accelX * t;
+				double speedAtTY = speedY + accelY * t;
+				maxClosingSpeed = Math.sqrt(speedAtTX * speedAtTX + speedAtTY * speedAtTY)
+						+ accel * (timeLimit - t);
+				if (maxClosingSpeed <= 0) {
+					return Float.MAX_VALUE;
+				}
+			}
+			// Aim a little short of contact, so that round-off never overlaps them.
+			t += (gap - 0.5 * TOUCH_DISTANCE) / maxClosingSpeed;
+			if (t > timeLimit) {
+				return Float.MAX_VALUE;
+			}
+		}
+		w.contactReached = false;
+		return Math.max((float) t, Float.MIN_NORMAL);
+	}
+
+	/**
+	 * Helper method to compute the responses of two shapes at impact, along the
+	 * contact normal left by the last gjkDistance(w). A static shape has zero
+	 * inverse mass and a null response. A shape of zero mass, such as a point
+	 * without radius, has infinite inverse mass: it takes the whole change in
+	 * the relative speed, or half of it against another such shape.
+	 * 
+	 * @param w
+	 *            : working copies to use.
+	 * @param s1SpeedX
+	 *            : s1's speed in x-direction at impact.
+	 * @param s1SpeedY
+	 *            : s1's speed in y-direction at impact.
+	 * @param s1InverseMass
+	 *            : 1 / s1's mass.
+	 * @param s2SpeedX
+	 *            : s2's speed in x-direction at impact.
+	 * @param s2SpeedY
+	 *            : s2's speed in y-direction at impact.
+	 * @param s2InverseMass
+	 *            : 1 / s2's mass, zero if static.
+	 * @param restitution
+	 *            : fraction of the relative normal speed kept after impact.
+	 * @param friction
+	 *            : coefficient of friction against the relative tangential
+	 *            speed.
+	 * @param s1Response
+	 *            : To update the response for s1. Reset time to infinity if the
+	 *            shapes are not approaching.
+	 * @param s2Response
+	 *            : To update the response for s2, or null if static.
+	 */
+	private static void shapeImpactResponse(Workspace w, float s1SpeedX, float s1SpeedY, float s1InverseMass,
+			float s2SpeedX, float s2SpeedY, float s2InverseMass, float restitution, float friction,
+			CollisionResponse s1Response, CollisionResponse s2Response) {
+		double normalX = w.contactNormalX;
+		double normalY = w.contactNormalY;
+		double relativeX = s1SpeedX - s2SpeedX;
+		double relativeY = s1SpeedY - s2SpeedY;
+		double speedN = relativeX * normalX + relativeY * normalY;
+		if (speedN <= 0) {
+			// Not approaching. Do not declare collision.
+			s1Response.reset();
+			if (s2Response != null) {
+				s2Response.reset();
+			}
+			return;
+		}
+		// Share of the change in the relative speed taken by each shape, which is
+		// the share of its inverse mass.
+		double s1Share, s2Share;
+		if (s2InverseMass == 0) {
+			s1Share = 1; // Against a static shape, whatever the mass of s1
+			s2Share = 0;
+		} else if (Double.isInfinite(s1InverseMass) || Double.isInfinite(s2InverseMass)) {
+			s1Share = Double.isInfinite(s1InverseMass) ? (Double.isInfinite(s2InverseMass) ? 0.5 : 1) : 0;
+			s2Share = 1 - s1Share;
+		} else {
+			s1Share = s1InverseMass / (s1InverseMass + s2InverseMass);
+			s2Share = s2InverseMass / (s1InverseMass + s2InverseMass);
+		}
+		double normalChange = (1 + restitution) * speedN;
+
+		// Friction opposes the sliding, but never reverses it.
+		double tangentX = relativeX - speedN * normalX;
+		double tangentY = relativeY - speedN * normalY;
+		double slideSpeed = Math.sqrt(tangentX * tangentX + tangentY * tangentY);
+		double frictionChange = 0;
+		if (slideSpeed > 0) {
+			frictionChange = Math.min(friction * normalChange, slideSpeed);
+			tangentX /= slideSpeed;
+			tangentY /= slideSpeed;
+		}
+		double changeX = normalChange * normalX + frictionChange * tangentX;
+		double changeY = normalChange * normalY + frictionChange * tangentY;
+		s1Response.newSpeedX = (float) (s1SpeedX - changeX * s1Share);
+		s1Response.newSpeedY = (float) (s1SpeedY - changeY * s1Share);
+		if (s2Response != null) {
+			s2Response.newSpeedX = (float) (s2SpeedX + changeX * s2Share);
+			s2Response.newSpeedY = (float) (s2SpeedY + changeY * s2Share);
+		}
+	}
+
+	/**
+	 * Helper method to compute the distance between the cores of two convex
+	 * shapes, with the GJK algorithm: find the point of their Minkowski difference
+	 * closest to the origin, walking a simplex of support points towards it. Also
+	 * leaves the direction from s1 to s2 in contactNormalX and contactNormalY.
+	 * 
+	 * @return the distance between the cores, or zero if they overlap.
+	 */
+	private static double gjkDistance(Workspace w, ConvexShape s1, double s1X, double s1Y, ConvexShape s2, double s2X,
+			double s2Y) {
+		// Start with the support point along the line of centers.
+		double directionX = s2X - s1X;
+		double directionY = s2Y - s1Y;
+		if (directionX == 0 && directionY == 0) {
+			directionX = 1;
+		}
+		w.simplexSize = 0;
+		addSupportPoint(w, s1, s1X, s1Y, s2, s2X, s2Y, directionX, directionY);
+		double closestX = w.simplexX[0];
+		double closestY = w.simplexY[0];
+
+		for (int iteration = 0; iteration < MAX_SHAPE_ITERATIONS; iteration++) {
+			double closestSq = closestX * closestX + closestY * closestY;
+			if (closestSq == 0) {
+				return 0; // The origin is on the simplex, so the cores touch
+			}
+			// Look for a support point beyond the closest point, towards the origin.
+			addSupportPoint(w, s1, s1X, s1Y, s2, s2X, s2Y, -closestX, -closestY);
+			double progress = closestSq
+					- (closestX * w.simplexX[w.simplexSize - 1] + closestY * w.simplexY[w.simplexSize - 1]);
+			if (progress <= GJK_TOLERANCE * closestSq) {
+				w.simplexSize--; // No closer point exists
+				break;
+			}
+			if (!reduceSimplex(w)) {
+				return 0; // The origin is inside the simplex, so the cores overlap
+			}
+			closestX = w.gjkClosestX;
+			closestY = w.gjkClosestY;
+		}
+
+		double distance = Math.sqrt(closestX * closestX + closestY * closestY);
+		// closest = p1 - p2, so the direction from s1 to s2 is its opposite.
+		w.contactNormalX = -closestX / distance;
+		w.contactNormalY = -closestY / distance;
+		return distance;
+	}
+
+	/** Helper method to append the support point of s1 - s2 along a direction. */
+	private static void addSupportPoint(Workspace w, ConvexShape s1, double s1X, double s1Y, ConvexShape s2, double s2X,
+			double s2Y, double directionX, double directionY) {
+		int vertex1 = s1.support(directionX, directionY);
+		int vertex2 = s2.support(-directionX, -directionY);
+		w.simplexX[w.simplexSize] = (s1X + s1.coreX(vertex1)) - (s2X + s2.coreX(vertex2));
+		w.simplexY[w.simplexSize] = (s1Y + s1.coreY(vertex1)) - (s2Y + s2.coreY(vertex2));
+		w.simplexSize++;
+	}
+
+	/**
+	 * Helper method to reduce the simplex to its smallest part that holds the
+	 * point closest to the origin, and store that point in gjkClosestX and
+	 * gjkClosestY.
+	 * 
+	 * @return false if the origin is inside the simplex.
+	 */
+	private static boolean reduceSimplex(Workspace w) {
+		if (w.simplexSize == 2) {
+			reduceSegment(w, 0, 1);
+			return true;
+		}
+
+		// Triangle: the origin is inside if it is on the same side of every edge.
+		double cross1 = cross(w, 0, 1);
+		double cross2 = cross(w, 1, 2);
+		double cross3 = cross(w, 2, 0);
+		if ((cross1 >= 0 && cross2 >= 0 && cross3 >= 0) || (cross1 <= 0 && cross2 <= 0 && cross3 <= 0)) {
+			return false;
+		}
+		// Otherwise keep the edge closest to the origin.
+		int bestA = 0;
+		int bestB = 1;
+		double bestSq = Double.MAX_VALUE;
+		for (int edge = 0; edge < 3; edge++) {
+			int a = edge;
+			int b = (edge + 1) % 3;
+			closestOnSegment(w, a, b);
+			double distanceSq = w.gjkClosestX * w.gjkClosestX + w.gjkClosestY * w.gjkClosestY;
+			if (distanceSq < bestSq) {
+				bestSq = distanceSq;
+				bestA = a;
+				bestB = b;
+			}
+		}
+		double aX = w.simplexX[bestA];
+		double aY = w.simplexY[bestA];
+		double bX = w.simplexX[bestB];
+		double bY = w.simplexY[bestB];
+		w.simplexX[0] = aX;
+		w.simplexY[0] = aY;
+		w.simplexX[1] = bX;
+		w.simplexY[1] = bY;
+		w.simplexSize = 2;
+		reduceSegment(w, 0, 1);
+		return true;
+	}
+
+	/** Helper method to reduce the simplex to the part of segment ab closest to the origin. */
+	private static void reduceSegment(Workspace w, int a, int b) {
+		double fraction = closestOnSegment(w, a, b);
+		if (fraction <= 0) {
+			w.simplexX[0] = w.simplexX[a];
+			w.simplexY[0] = w.simplexY[a];
+			w.simplexSize = 1;
+		} else if (fraction >= 1) {
+			w.simplexX[0] = w.simplexX[b];
+			w.simplexY[0] = w.simplexY[b];
+			w.simplexSize = 1;
+		}
+	}
+
+	/**
+	 * Helper method to find the point of segment ab of the simplex closest to the
+	 * origin, and store it in gjkClosestX and gjkClosestY.
+	 * 
+	 * @return the position of the point along the segment, clamped to [0, 1].
+	 */
+	private static double closestOnSegment(Workspace w, int a, int b) {
+		double edgeX = w.simplexX[b] - w.simplexX[a];
+		double edgeY = w.simplexY[b] - w.simplexY[a];
+		double lengthSq = edgeX * edgeX + edgeY * edgeY;
+		double fraction = 0;
+		if (lengthSq > 0) {
+			fraction = -(w.simplexX[a] * edgeX + w.simplexY[a] * edgeY) / lengthSq;
+			fraction = Math.max(0, Math.min(1, fraction));
+		}
+		w.gjkClosestX = w.simplexX[a] + fraction * edgeX;
+		w.gjkClosestY = w.simplexY[a] + fraction * edgeY;
+		return fraction;
+	}
+
+	/** Helper method to compute the cross product of edge ab with the origin. */
+	private static double cross(Workspace w, int a, int b) {
+		return (w.simplexX[b] - w.simplexX[a]) * (-w.simplexY[a]) - (w.simplexY[b] - w.simplexY[a]) * (-w.simplexX[a]);
+	}
+
+	/**
+	 * Helper method to compute the normal speed after hitting a fixed line.
+	 * 
+	 * @param speedN
+	 *            : speed towards the line at impact.
+	 * @param restitution
+	 *            : fraction of the normal speed kept after impact.
+	 * @return the reflected normal speed.
+	 */
+	private static float bounceSpeed(float speedN, float restitution) {
+		return -restitution * speedN;
+	}
+
+	/**
+	 * Helper method to compute the tangential speed after hitting a fixed line.
+	 * Friction takes away up to its share of the normal impulse, but never
+	 * reverses the sliding.
+	 * 
+	 * @param speedT
+	 *            : speed along the line at impact.
+	 * @param speedN
+	 *            : speed towards the line at impact.
+	 * @param restitution
+	 *            : fraction of the normal speed kept after impact.
+	 * @param friction
+	 *            : coefficient of friction.
+	 * @return the slowed-down tangential speed.
+	 */
+	private static float slideSpeed(float speedT, float speedN, float restitution, float friction) {
+		float loss = friction * (1 + restitution) * Math.abs(speedN);
+		if (speedT > loss) {
+			return speedT - loss;
+		} else if (speedT < -loss) {
+			return speedT + loss;
+		} else {
+			return 0;
+		}
+	}
+
+	/**
+	 * Helper method to rotation vector (x, y) by theta, in Graphics coordinates.
+	 * y-axis is inverted. theta measured in counter-clockwise direction. Re-use the
+	 * double[] rotateResult of the workspace to avoid repeated new operations.
+	 * 
+	 * @param x
+	 *            : x coordinate of the vector to be rotated.
+	 * @param y
+	 *            : y coordinate of the vector to be rotated, inverted.
+	 * @param theta
+	 *            : rotational angle in radians, counter-clockwise.
+	 * @return An double array of 2 elements x and y, in the rotated coordinates.
+	 */
+	private static double[] rotate(Workspace w, double x, double y, double theta) {
 		double sinTheta = Math.sin(theta);
 		double cosTheta = Math.cos(theta);
-		rotateResult[0] = x * cosTheta + y * sinTheta;
-		rotateResult[1] = -x * sinTheta + y * cosTheta;
-		return rotateResult;
+		w.rotateResult[0] = x * cosTheta + y * sinTheta;
+		w.rotateResult[1] = -x * sinTheta + y * cosTheta;
+		return w.rotateResult;
 	}
 
 }
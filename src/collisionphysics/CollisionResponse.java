@@ -91,6 +91,50 @@ public class CollisionResponse {
 		}
 	}
 
+	/**
+	 * Return the x-position after impact, for a point moving with constant
+	 * acceleration.
+	 * 
+	 * @param currentX
+	 *            : the current x-position.
+	 * @param speedX
+	 *            : the current x-speed.
+	 * @param accelX
+	 *            : the x-acceleration.
+	 * @return x-position after impact.
+	 */
+	public float getNewX(float currentX, float speedX, float accelX) {
+		// Subtract by a small thread to make sure that it does not cross the bound.
+		if (t > T_EPSILON) {
+			float time = t - T_EPSILON;
+			return currentX + speedX * time + 0.5f * accelX * time * time;
+		} else {
+			return currentX;
+		}
+	}
+
+	/**
+	 * Return the y-position after impact, for a point moving with constant
+	 * acceleration.
+	 * 
+	 * @param currentY
+	 *            : the current y-position.
+	 * @param speedY
+	 *            : the current y-speed.
+	 * @param accelY
+	 *            : the y-acceleration.
+	 * @return y-position after impact.
+	 */
+	public float getNewY(float currentY, float speedY, float accelY) {
+		// Subtract by a small thread to make sure that it does not cross the bound.
+		if (t > T_EPSILON) {
+			float time = t - T_EPSILON;
+			return currentY + speedY * time + 0.5f * accelY * time * time;
+		} else {
+			return currentY;
+		}
+	}
+
 	/**
 	 * Return the precise x-position of the point of impact. Needed in some
 	 * collision detection operations.
@@ -119,4 +163,36 @@ public class CollisionResponse {
 		return currentY + speedY * t;
 	}
 
+	/**
+	 * Return the precise x-position of the point of impact, for a point moving
+	 * with constant acceleration.
+	 * 
+	 * @param currentX
+	 *            : the current x-position.
+	 * @param speedX
+	 *            : the current x-speed.
+	 * @param accelX
+	 *            : the x-acceleration.
+	 * @return x-position of the point of impact.
+	 */
+	public double getImpactX(float currentX, float speedX, float accelX) {
+		return currentX + speedX * t + 0.5 * accelX * t * t;
+	}
+
+	/**
+	 * Return the precise y-position of the point of impact, for a point moving
+	 * with constant acceleration.
+	 * 
+	 * @param currentY
+	 *            : the current y-position.
+	 * @param speedY
+	 *            : the current y-speed.
+	 * @param accelY
+	 *            : the y-acceleration.
+	 * @return y-position of the point of impact.
+	 */
+	public double getImpactY(float currentY, float speedY, float accelY) {
+		return currentY + speedY * t + 0.5 * accelY * t * t;
+	}
+
 }
@@ -0,0 +1,94 @@
+package collisionphysics;
+
+/**
+ * A convex polygon collider. The vertices are given around the origin of the
+ * shape, in either winding order.
+ *
+ * @version 1.0
+ */
+public class ConvexPolygon extends ConvexShape {
+	private final float[] vertexX, vertexY; // Vertices around the origin
+
+	/**
+	 * Constructor.
+	 *
+	 * @param vertices
+	 *            : x and y of the vertices, interleaved, at least 3 of them.
+	 */
+	public ConvexPolygon(float... vertices) {
+		assert (vertices.length >= 6) && (vertices.length % 2 == 0) : "Malformed polygon!";
+		int numberOfVertices = vertices.length / 2;
+		vertexX = new float[numberOfVertices];
+		vertexY = new float[numberOfVertices];
+		double area = 0;
+		for (int i = 0; i < numberOfVertices; i++) {
+			vertexX[i] = vertices[2 * i];
+			vertexY[i] = vertices[2 * i + 1];
+			boundingRadius = Math.max(boundingRadius,
+					(float) Math.sqrt(vertexX[i] * vertexX[i] + vertexY[i] * vertexY[i]));
+		}
+		// Shoelace formula. The sign gives the winding order.
+		for (int i = 0; i < numberOfVertices; i++) {
+			int next = (i + 1) % numberOfVertices;
+			area += vertexX[i] * vertexY[next] - vertexX[next] * vertexY[i];
+		}
+		assert isConvex(area > 0) : "Polygon is not convex!";
+		radius = 0;
+		mass = massOfArea(Math.abs(area) / 2);
+	}
+
+	/** Helper method to check that every corner turns the same way. */
+	private boolean isConvex(boolean counterClockwise) {
+		int n = vertexX.length;
+		for (int i = 0; i < n; i++) {
+			int next = (i + 1) % n;
+			int nextNext = (i + 2) % n;
+			double cross = (vertexX[next] - vertexX[i]) * (vertexY[nextNext] - vertexY[next])
+					- (vertexY[next] - vertexY[i]) * (vertexX[nextNext] - vertexX[next]);
+			if (counterClockwise ? cross < 0 : cross > 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	int support(double directionX, double directionY) {
+		int best = 0;
+		double bestDot = vertexX[0] * directionX + vertexY[0] * directionY;
+		for (int i = 1; i < vertexX.length; i++) {
+			double dot = vertexX[i] * directionX + vertexY[i] * directionY;
+			if (dot > bestDot) {
+				bestDot = dot;
+				best = i;
+			}
+		}
+		return best;
+	}
+
+	@Override
+	float coreX(int vertex) {
+		return vertexX[vertex];
+	}
+
+	@Override
+	float coreY(int vertex) {
+		return vertexY[vertex];
+	}
+
+	/** Return the number of vertices. */
+	public int getVertexCount() {
+		return vertexX.length;
+	}
+
+	/** Return the x-position of vertex i, relative to the origin. */
+	public float getVertexX(int i) {
+		return vertexX[i];
+	}
+
+	/** Return the y-position of vertex i, relative to the origin. */
+	public float getVertexY(int i) {
+		return vertexY[i];
+	}
+
+}
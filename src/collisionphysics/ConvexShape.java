@@ -0,0 +1,73 @@
+package collisionphysics;
+
+/**
+ * A convex collider, described by its support function around its own origin.
+ * The shape is a convex core, swept by a skin radius: zero for a polygon, the
+ * radius of the rounded ends for a capsule. Shapes translate but do not rotate.
+ *
+ * The bounding circle around the origin encloses the whole shape including the
+ * skin. The collision detection in CollisionPhysics first tests the bounding
+ * circles with the cheap moving point methods, and only runs the exact test
+ * when they meet.
+ *
+ * The mass is that of a ball with the same area, so that shapes and balls
+ * (whose mass is proportional to the cube of the radius) can collide.
+ *
+ * @version 1.0
+ */
+public abstract class ConvexShape {
+
+	/** Skin radius around the core */
+	protected float radius;
+	/** Radius of the bounding circle around the origin, including the skin */
+	protected float boundingRadius;
+	/** Mass of the shape */
+	protected float mass;
+
+	/**
+	 * Find the vertex of the core which is the farthest in the given direction.
+	 * Returns an index rather than a point, so that a shape holds no working
+	 * state and may be shared between threads.
+	 *
+	 * @param directionX
+	 *            : x component of the direction, need not be normalized.
+	 * @param directionY
+	 *            : y component of the direction, need not be normalized.
+	 * @return index of the vertex, for coreX() and coreY().
+	 */
+	abstract int support(double directionX, double directionY);
+
+	/** Return the x-position of the given vertex of the core. */
+	abstract float coreX(int vertex);
+
+	/** Return the y-position of the given vertex of the core. */
+	abstract float coreY(int vertex);
+
+	/** Return the skin radius around the core. */
+	public float getRadius() {
+		return radius;
+	}
+
+	/** Return the radius of the bounding circle around the origin. */
+	public float getBoundingRadius() {
+		return boundingRadius;
+	}
+
+	/** Return the mass of the shape. */
+	public float getMass() {
+		return mass;
+	}
+
+	/**
+	 * Helper method to compute the mass of a ball with the given area.
+	 *
+	 * @param area
+	 *            : area of the shape.
+	 * @return mass, proportional to the cube of the equivalent radius.
+	 */
+	static float massOfArea(double area) {
+		double equivalentRadius = Math.sqrt(area / Math.PI);
+		return (float) (equivalentRadius * equivalentRadius * equivalentRadius);
+	}
+
+}
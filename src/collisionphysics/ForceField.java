@@ -0,0 +1,122 @@
+package collisionphysics;
+
+import java.util.Arrays;
+
+/**
+ * External forces acting on the moving points: uniform gravity, linear drag
+ * and radial attractors. All quantities are per time-step, in the same units
+ * as the speeds (pixels per step), so accelerations are in pixels per step
+ * squared.
+ *
+ * The acceleration is sampled at the start of each sub-step and held constant
+ * until the next one. The trajectory within a sub-step is then a parabola, for
+ * which the accelerating collision detection methods in CollisionPhysics solve
+ * the collision time in closed form (quadratic against lines, quartic against
+ * other points), instead of sub-stepping.
+ *
+ * @version 1.0
+ */
+public class ForceField {
+	private float gravityX, gravityY; // Uniform acceleration
+	private float drag; // Fraction of the speed lost per step
+	// Radial attractors, kept in parallel arrays
+	private int numberOfAttractors = 0;
+	private float[] attractorX = new float[4];
+	private float[] attractorY = new float[4];
+	private float[] attractorStrength = new float[4];
+	private float[] attractorRadiusSq = new float[4];
+
+	/**
+	 * Constructor.
+	 *
+	 * @param gravityX
+	 *            : uniform acceleration in x-direction.
+	 * @param gravityY
+	 *            : uniform acceleration in y-direction, y-axis inverted.
+	 * @param drag
+	 *            : linear drag coefficient, in [0, 1) range.
+	 */
+	public ForceField(float gravityX, float gravityY, float drag) {
+		assert (drag >= 0) && (drag < 1) : "Drag out of range!";
+		this.gravityX = gravityX;
+		this.gravityY = gravityY;
+		this.drag = drag;
+	}
+
+	/**
+	 * Add a radial attractor. The pull falls off with the square of the distance,
+	 * and is softened within the given radius so that it stays finite at the
+	 * center.
+	 *
+	 * @param x
+	 *            : x-position of the attractor.
+	 * @param y
+	 *            : y-position of the attractor.
+	 * @param strength
+	 *            : acceleration at unit distance. Negative to repel.
+	 * @param radius
+	 *            : softening radius.
+	 */
+	public void addAttractor(float x, float y, float strength, float radius) {
+		assert (radius > 0) : "Non-positive radius!";
+		if (numberOfAttractors == attractorX.length) {
+			int capacity = 2 * numberOfAttractors;
+			attractorX = Arrays.copyOf(attractorX, capacity);
+			attractorY = Arrays.copyOf(attractorY, capacity);
+			attractorStrength = Arrays.copyOf(attractorStrength, capacity);
+			attractorRadiusSq = Arrays.copyOf(attractorRadiusSq, capacity);
+		}
+		attractorX[numberOfAttractors] = x;
+		attractorY[numberOfAttractors] = y;
+		attractorStrength[numberOfAttractors] = strength;
+		attractorRadiusSq[numberOfAttractors] = radius * radius;
+		numberOfAttractors++;
+	}
+
+	/**
+	 * Return the acceleration in x-direction of a point at (x, y).
+	 *
+	 * @param x
+	 *            : x-position of the point.
+	 * @param y
+	 *            : y-position of the point.
+	 * @param speedX
+	 *            : speed of the point in x-direction.
+	 * @return acceleration in x-direction.
+	 */
+	public float getAccelerationX(float x, float y, float speedX) {
+		float accel = gravityX - drag * speedX;
+		for (int i = 0; i < numberOfAttractors; i++) {
+			accel += attractorStrength[i] * (attractorX[i] - x) * attraction(i, x, y);
+		}
+		return accel;
+	}
+
+	/**
+	 * Return the acceleration in y-direction of a point at (x, y).
+	 *
+	 * @param x
+	 *            : x-position of the point.
+	 * @param y
+	 *            : y-position of the point.
+	 * @param speedY
+	 *            : speed of the point in y-direction.
+	 * @return acceleration in y-direction.
+	 */
+	public float getAccelerationY(float x, float y, float speedY) {
+		float accel = gravityY - drag * speedY;
+		for (int i = 0; i < numberOfAttractors; i++) {
+			accel += attractorStrength[i] * (attractorY[i] - y) * attraction(i, x, y);
+		}
+		return accel;
+	}
+
+	/** Helper method to compute 1 / (d^2 + radius^2)^(3/2) for attractor i. */
+	private float attraction(int i, float x, float y) {
+		float dx = attractorX[i] - x;
+		float dy = attractorY[i] - y;
+		double distanceSq = dx * dx + dy * dy + attractorRadiusSq[i];
+		return (float) (1.0 / (distanceSq * Math.sqrt(distanceSq)));
+	}
+
+}
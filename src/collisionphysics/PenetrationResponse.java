@@ -0,0 +1,52 @@
+package collisionphysics;
+
+/**
+ * This object captures the penetration responses, if an overlap is detected.
+ *
+ * The collision detection methods in CollisionPhysics look ahead in time and
+ * assume that the objects do not overlap to begin with. When the speed is
+ * large relative to the radius, or when several collisions happen within a
+ * tiny time interval, round-off can still leave an object overlapping another
+ * one or poking out of its container. The penetration methods detect such an
+ * overlap at the current instant and compute the minimal position correction
+ * (newX, newY) that separates the objects, together with the speed
+ * (newSpeedX, newSpeedY) that no longer drives them into each other.
+ *
+ * The penetration depth is initialized (or reset) to zero, which means that no
+ * correction is needed.
+ *
+ * @version 1.0
+ */
+public class PenetrationResponse {
+
+	/** Detected penetration depth, reset to 0 (no penetration) */
+	public float depth;
+	/** Corrected x-position */
+	public float newX;
+	/** Corrected y-position */
+	public float newY;
+	/** Corrected speed in x-direction */
+	public float newSpeedX;
+	/** Corrected speed in y-direction */
+	public float newSpeedY;
+
+	/** Constructor which resets the penetration depth to zero. */
+	public PenetrationResponse() {
+		reset(); // Reset detected penetration depth to zero
+	}
+
+	/** Reset the detected penetration depth to zero. */
+	public void reset() {
+		this.depth = 0;
+	}
+
+	/**
+	 * Return true if a penetration is detected and a correction is needed.
+	 *
+	 * @return true if depth is positive.
+	 */
+	public boolean isPenetrating() {
+		return depth > 0;
+	}
+
+}
@@ -0,0 +1,64 @@
+package screen_saver;
+
+import java.util.Arrays;
+
+/**
+ * Check that the screen saver time-step does not allocate on the heap, as the
+ * working copies in Ball and CollisionPhysics are meant to ensure. Runs the
+ * screen saver without a display, in each of its modes, and measures the bytes
+ * allocated in each of a few rounds of steps after a warm-up. A mode passes
+ * only if no round allocated at all, so that an allocation that happens now and
+ * then is caught too. Exits with status 1 if any mode allocated, so that a
+ * build can run it as a check.
+ * 
+ * Usage: java screen_saver.AllocationAudit [steps]
+ *
+ * @version 1.0
+ */
+public class AllocationAudit {
+	private static final int WARM_UP_STEPS = 5000; // Steps before measuring
+	private static final int DEFAULT_STEPS = 10000; // Steps measured per round
+	private static final int ROUNDS = 3; // Rounds measured per mode
+	// The modes to check, as options of Main
+	private static final String[][] MODES = { {}, { "-robust" }, { "-gravity" }, { "-settle" },
+			{ "-obstacles" }, { "-bodies" }, { "-polygon" },
+			{ "-settle", "-obstacles", "-bodies", "-polygon", "-robust" } };
+
+	public static void main(String[] args) {
+		int steps = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_STEPS;
+		if (!AllocationMeter.isSupported()) {
+			System.err.println("This virtual machine does not count the bytes allocated per thread.");
+			System.exit(2);
+		}
+		AllocationMeter meter = new AllocationMeter();
+
+		int failures = 0;
+		for (String[] mode : MODES) {
+			ScreenSaverWorld world = new ScreenSaverWorld();
+			for (String option : mode) {
+				Main.configure(world, option);
+			}
+			for (int i = 0; i < WARM_UP_STEPS; i++) {
+				world.screenSaverUpdate();
+			}
+			long[] bytes = new long[ROUNDS];
+			boolean allocated = false;
+			for (int round = 0; round < ROUNDS; round++) {
+				long startBytes = meter.getAllocatedBytes();
+				for (int i = 0; i < steps; i++) {
+					world.screenSaverUpdate();
+				}
+				bytes[round] = meter.getAllocatedBytesSince(startBytes);
+				allocated |= (bytes[round] != 0);
+			}
+
+			String name = (mode.length == 0) ? "default" : String.join(" ", mode);
+			System.out.println((allocated ? "FAIL " : "PASS ") + name + ": " + Arrays.toString(bytes)
+					+ " bytes in rounds of " + steps + " steps");
+			if (allocated) {
+				failures++;
+			}
+		}
+		System.exit((failures == 0) ? 0 : 1);
+	}
+}
@@ -0,0 +1,57 @@
+package screen_saver;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measure the bytes allocated on the heap by the current thread, for checking
+ * that the simulation step does not allocate. Relies on the allocation counter
+ * that the HotSpot virtual machine keeps per thread.
+ *
+ * Reading the counter may itself allocate a few bytes. That overhead is
+ * measured once up front and taken off every reading.
+ *
+ * @version 1.0
+ */
+public class AllocationMeter {
+	private com.sun.management.ThreadMXBean threads;
+	private long overhead; // Bytes allocated by reading the counter
+
+	/**
+	 * Constructor. Check isSupported() first.
+	 */
+	public AllocationMeter() {
+		assert isSupported() : "Allocation counter not supported!";
+		threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		threads.setThreadAllocatedMemoryEnabled(true);
+		// The smallest of several readings, as the first ones may warm up.
+		overhead = Long.MAX_VALUE;
+		for (int i = 0; i < 100; i++) {
+			long start = getAllocatedBytes();
+			overhead = Math.min(overhead, getAllocatedBytes() - start);
+		}
+	}
+
+	/** Return true if this virtual machine counts the bytes allocated per thread. */
+	public static boolean isSupported() {
+		java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		return (threads instanceof com.sun.management.ThreadMXBean)
+				&& ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported();
+	}
+
+	/** Return the bytes allocated by the current thread so far. */
+	public long getAllocatedBytes() {
+		return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * Return the bytes allocated by the current thread since the given reading of
+	 * getAllocatedBytes(), not counting the readings themselves.
+	 *
+	 * @param start
+	 *            : earlier reading of getAllocatedBytes().
+	 * @return bytes allocated since then.
+	 */
+	public long getAllocatedBytesSince(long start) {
+		return Math.max(0, getAllocatedBytes() - start - overhead);
+	}
+}
@@ -15,10 +15,22 @@ public class Ball {
 	float x, y; // Ball's center x and y
 	float speedX, speedY; // Ball's speed per step in x and y
 	float radius; // Ball's radius
+	float accelX, accelY; // Ball's acceleration, held constant over a sub-step
+	float restitution = CollisionPhysics.ELASTIC; // Share of speed kept on impact
+	float friction = CollisionPhysics.FRICTIONLESS; // Friction on impact
+	// A ball that stays slow for long enough may fall asleep. It then drops out
+	// of the collision detection and the update, until another ball hits it or a
+	// moving ball touches it.
+	boolean sleeping;
+	int slowFrames; // Consecutive time-steps below the sleep speed
 	// For collision detection and response
 	// Maintain the response of the earliest collision detected
 	// by this ball instance. Only the first collision matters!
 	CollisionResponse earliestCollisionResponse = new CollisionResponse();
+	Capsule shape; // The ball as a circle, for the checks against the bodies
+	// Working copies of the collision physics, shared by the world this ball is
+	// in, which sets them.
+	CollisionPhysics.Workspace workspace;
 
 	/**
 	 * Constructor: User specifies velocity in speed and moveAngle in usual
@@ -32,6 +44,205 @@ public class Ball {
 		this.speedX = (float) (speed * Math.cos(Math.toRadians(angleInDegree)));
 		this.speedY = (float) (-speed * (float) Math.sin(Math.toRadians(angleInDegree)));
 		this.radius = radius;
+		this.shape = new Capsule(0, 0, 0, 0, radius);
+	}
+
+	/**
+	 * Set the material of this ball.
+	 * 
+	 * @param restitution
+	 *            : fraction of the normal speed kept after impact, in [0, 1] range.
+	 * @param friction
+	 *            : coefficient of friction against the tangential speed.
+	 */
+	public void setMaterial(float restitution, float friction) {
+		this.restitution = restitution;
+		this.friction = friction;
+	}
+
+	/**
+	 * Sample the acceleration of this ball from the given force field. It is held
+	 * constant until the next call.
+	 * 
+	 * @param field
+	 *            : the external forces.
+	 */
+	public void applyForces(ForceField field) {
+		accelX = field.getAccelerationX(x, y, speedX);
+		accelY = field.getAccelerationY(x, y, speedY);
+	}
+
+	// Edges closer than this are in contact with the ball.
+	private static final float CONTACT_DISTANCE = 0.01f;
+	// A ball pressed against an edge comes to rest there if it is slower than
+	// its acceleration times this.
+	private static final float REST_TIME = 0.5f;
+
+	/**
+	 * Let the edges of the desktop screen hold this ball when the forces press it
+	 * against them. A slow ball comes to rest on the edge, even if it is leaving
+	 * it, so that it does not bounce in ever smaller hops, and friction slows it
+	 * down as it slides along.
+	 * A ball that touches an edge while still moving into it bounces in place, as
+	 * there is no time left to detect the collision. Call after applyForces().
+	 * 
+	 * @param box
+	 *            : desktop screen.
+	 */
+	public void applyContacts(DesktopScreen box) {
+		// Left and right edges
+		if (x - radius - box.minX <= CONTACT_DISTANCE) {
+			if (accelX < 0 && Math.abs(speedX) <= -accelX * REST_TIME) {
+				x = box.minX + radius;
+				speedX = 0;
+				slideY(-accelX);
+				accelX = 0;
+			} else if (x - radius <= box.minX && speedX < 0) {
+				speedX = -restitution * speedX;
+			}
+		} else if (box.maxX - radius - x <= CONTACT_DISTANCE) {
+			if (accelX > 0 && Math.abs(speedX) <= accelX * REST_TIME) {
+				x = box.maxX - radius;
+				speedX = 0;
+				slideY(accelX);
+				accelX = 0;
+			} else if (x + radius >= box.maxX && speedX > 0) {
+				speedX = -restitution * speedX;
+			}
+		}
+		// Top and bottom edges
+		if (y - radius - box.minY <= CONTACT_DISTANCE) {
+			if (accelY < 0 && Math.abs(speedY) <= -accelY * REST_TIME) {
+				y = box.minY + radius;
+				speedY = 0;
+				slideX(-accelY);
+				accelY = 0;
+			} else if (y - radius <= box.minY && speedY < 0) {
+				speedY = -restitution * speedY;
+			}
+		} else if (box.maxY - radius - y <= CONTACT_DISTANCE) {
+			if (accelY > 0 && Math.abs(speedY) <= accelY * REST_TIME) {
+				y = box.maxY - radius;
+				speedY = 0;
+				slideX(accelY);
+				accelY = 0;
+			} else if (y + radius >= box.maxY && speedY > 0) {
+				speedY = -restitution * speedY;
+			}
+		}
+	}
+
+	/**
+	 * Let the edges of the polygonal container hold this ball when the forces
+	 * press it against them, as applyContacts(DesktopScreen) does for the desktop
+	 * screen, along the normal of each edge within reach. Call after
+	 * applyForces().
+	 * 
+	 * @param container
+	 *            : polygonal container.
+	 */
+	public void applyContacts(PolygonContainer container) {
+		float reach = radius + CONTACT_DISTANCE;
+		int numberFound = container.findEdges(x - reach, y - reach, x + reach, y + reach);
+		for (int i = 0; i < numberFound; i++) {
+			int e = container.foundEdges[i];
+			// Closest point of the edge, and the unit normal from there to the ball
+			float edgeX = container.x2[e] - container.x1[e];
+			float edgeY = container.y2[e] - container.y1[e];
+			float lengthSq = edgeX * edgeX + edgeY * edgeY;
+			float fraction = 0;
+			if (lengthSq > 0) {
+				fraction = ((x - container.x1[e]) * edgeX + (y - container.y1[e]) * edgeY) / lengthSq;
+				fraction = Math.max(0, Math.min(1, fraction));
+			}
+			float closestX = container.x1[e] + fraction * edgeX;
+			float closestY = container.y1[e] + fraction * edgeY;
+			float distance = (float) Math.hypot(x - closestX, y - closestY);
+			if (distance - radius > CONTACT_DISTANCE || distance == 0) {
+				continue;
+			}
+			float normalX = (x - closestX) / distance;
+			float normalY = (y - closestY) / distance;
+			float speedN = speedX * normalX + speedY * normalY;
+			float accelN = accelX * normalX + accelY * normalY;
+			if (accelN < 0 && Math.abs(speedN) <= -accelN * REST_TIME) {
+				// Rest on the edge, and slide along it.
+				x = closestX + normalX * radius;
+				y = closestY + normalY * radius;
+				speedX -= speedN * normalX;
+				speedY -= speedN * normalY;
+				accelX -= accelN * normalX;
+				accelY -= accelN * normalY;
+				slide(-normalY, normalX, -accelN);
+			} else if (distance <= radius && speedN < 0) {
+				speedX -= (1 + restitution) * speedN * normalX;
+				speedY -= (1 + restitution) * speedN * normalY;
+			}
+		}
+	}
+
+	/**
+	 * Helper method to let friction act on a ball resting on an edge of any
+	 * orientation.
+	 * 
+	 * @param tangentX
+	 *            : x-component of the unit tangent of the edge.
+	 * @param tangentY
+	 *            : y-component of the unit tangent of the edge.
+	 * @param pressure
+	 *            : acceleration pressing the ball against the edge.
+	 */
+	private void slide(float tangentX, float tangentY, float pressure) {
+		float deceleration = friction * pressure;
+		float speedT = speedX * tangentX + speedY * tangentY;
+		if (Math.abs(speedT) <= deceleration) {
+			float accelT = accelX * tangentX + accelY * tangentY;
+			speedX -= speedT * tangentX;
+			speedY -= speedT * tangentY;
+			accelX -= accelT * tangentX;
+			accelY -= accelT * tangentY;
+		} else {
+			accelX -= Math.copySign(deceleration, speedT) * tangentX;
+			accelY -= Math.copySign(deceleration, speedT) * tangentY;
+		}
+	}
+
+	/**
+	 * Helper method to let friction act on a ball resting on a horizontal edge.
+	 * Friction holds a ball that is slow enough, and decelerates it otherwise.
+	 * 
+	 * @param pressure
+	 *            : acceleration pressing the ball against the edge.
+	 */
+	private void slideX(float pressure) {
+		float deceleration = friction * pressure;
+		if (Math.abs(speedX) <= deceleration) {
+			speedX = 0;
+			accelX = 0;
+		} else {
+			accelX -= Math.copySign(deceleration, speedX);
+		}
+	}
+
+	/**
+	 * Helper method to let friction act on a ball resting on a vertical edge.
+	 * 
+	 * @param pressure
+	 *            : acceleration pressing the ball against the edge.
+	 */
+	private void slideY(float pressure) {
+		float deceleration = friction * pressure;
+		if (Math.abs(speedY) <= deceleration) {
+			speedY = 0;
+			accelY = 0;
+		} else {
+			accelY -= Math.copySign(deceleration, speedY);
+		}
+	}
+
+	/** Return true if this ball moves with constant velocity. */
+	private boolean isCoasting() {
+		return accelX == 0 && accelY == 0;
 	}
 
 	// Working copy for computing response in intersect(),
@@ -50,13 +261,49 @@ public class Ball {
 	public void intersect(DesktopScreen box, float timeLimit) {
 		// Call movingPointIntersectsRectangleOuter, which returns the
 		// earliest collision to one of the 4 borders, if collision detected.
-		CollisionPhysics.pointIntersectsRectangleOuter(x, y, speedX, speedY, radius, box.minX, box.minY, box.maxX,
-				box.maxY, timeLimit, tempResponse);
+		if (isCoasting()) {
+			CollisionPhysics.pointIntersectsRectangleOuter(x, y, speedX, speedY, radius, box.minX, box.minY, box.maxX,
+					box.maxY, restitution, friction, timeLimit, tempResponse, workspace);
+		} else {
+			CollisionPhysics.acceleratingPointIntersectsRectangleOuter(x, y, speedX, speedY, accelX, accelY, radius,
+					box.minX, box.minY, box.maxX, box.maxY, restitution, friction, timeLimit, tempResponse, workspace);
+		}
 		if (tempResponse.t < earliestCollisionResponse.t) {
 			earliestCollisionResponse.copy(tempResponse);
 		}
 	}
 
+	/**
+	 * Check if this ball collides with the edges of the polygonal container in the
+	 * interval (0,timeLimit]. Only the edges in the cells that the ball can reach
+	 * by then are checked.
+	 * 
+	 * @param container
+	 *            : polygonal container.
+	 * @param timeLimit
+	 *            : upper bound of the time interval.
+	 */
+	public void intersect(PolygonContainer container, float timeLimit) {
+		float reach = radius + (float) Math.hypot(speedX, speedY) * timeLimit
+				+ 0.5f * (float) Math.hypot(accelX, accelY) * timeLimit * timeLimit;
+		int numberFound = container.findEdges(x - reach, y - reach, x + reach, y + reach);
+		for (int i = 0; i < numberFound; i++) {
+			int e = container.foundEdges[i];
+			if (isCoasting()) {
+				CollisionPhysics.pointIntersectsLineSegment(x, y, speedX, speedY, radius, container.x1[e],
+						container.y1[e], container.x2[e], container.y2[e], restitution, friction, timeLimit,
+						tempResponse, workspace);
+			} else {
+				CollisionPhysics.acceleratingPointIntersectsLineSegment(x, y, speedX, speedY, accelX, accelY, radius,
+						container.x1[e], container.y1[e], container.x2[e], container.y2[e], restitution, friction,
+						timeLimit, tempResponse, workspace);
+			}
+			if (tempResponse.t < earliestCollisionResponse.t) {
+				earliestCollisionResponse.copy(tempResponse);
+			}
+		}
+	}
+
 	// Working copy for computing response in intersect(Ball, timeLimit),
 	// to avoid repeatedly allocating objects.
 	private CollisionResponse thisResponse = new CollisionResponse();
@@ -77,8 +324,19 @@ public class Ball {
 		// responses of this ball and another ball, respectively.
 		// Check if this collision is the earliest collision, and update the ball's
 		// earliestCollisionResponse accordingly.
-		CollisionPhysics.pointIntersectsMovingPoint(this.x, this.y, this.speedX, this.speedY, this.radius, another.x,
-				another.y, another.speedX, another.speedY, another.radius, timeLimit, thisResponse, anotherResponse);
+		// The less bouncy ball sets the restitution, friction takes the mean.
+		float pairRestitution = Math.min(this.restitution, another.restitution);
+		float pairFriction = (float) Math.sqrt(this.friction * another.friction);
+		if (this.isCoasting() && another.isCoasting()) {
+			CollisionPhysics.pointIntersectsMovingPoint(this.x, this.y, this.speedX, this.speedY, this.radius,
+					another.x, another.y, another.speedX, another.speedY, another.radius, pairRestitution, pairFriction,
+					timeLimit, thisResponse, anotherResponse, workspace);
+		} else {
+			CollisionPhysics.acceleratingPointIntersectsMovingPoint(this.x, this.y, this.speedX, this.speedY,
+					this.accelX, this.accelY, this.radius, another.x, another.y, another.speedX, another.speedY,
+					another.accelX, another.accelY, another.radius, pairRestitution, pairFriction, timeLimit,
+					thisResponse, anotherResponse, workspace);
+		}
 
 		if (anotherResponse.t < another.earliestCollisionResponse.t) {
 			another.earliestCollisionResponse.copy(anotherResponse);
@@ -88,6 +346,195 @@ public class Ball {
 		}
 	}
 
+	/**
+	 * Check if this ball collides with the given static obstacle in the interval
+	 * (0,timeLimit].
+	 * 
+	 * @param obstacle
+	 *            : obstacle to be checked for collision.
+	 * @param timeLimit
+	 *            : upper bound of the time interval.
+	 */
+	public void intersect(Obstacle obstacle, float timeLimit) {
+		if (isCoasting()) {
+			CollisionPhysics.pointIntersectsStaticShape(x, y, speedX, speedY, radius, obstacle.shape, obstacle.x,
+					obstacle.y, restitution, friction, timeLimit, tempResponse, workspace);
+		} else {
+			CollisionPhysics.acceleratingPointIntersectsStaticShape(x, y, speedX, speedY, accelX, accelY, radius,
+					obstacle.shape, obstacle.x, obstacle.y, restitution, friction, timeLimit, tempResponse, workspace);
+		}
+		if (tempResponse.t < earliestCollisionResponse.t) {
+			earliestCollisionResponse.copy(tempResponse);
+		}
+	}
+
+	// Working copies for resolving penetration in resolvePenetration(),
+	// to avoid repeatedly allocating objects.
+	private PenetrationResponse thisPenetration = new PenetrationResponse();
+	private PenetrationResponse anotherPenetration = new PenetrationResponse();
+	// Least distance a ball that escaped a polygonal container is put inside it
+	private static final float MIN_PUSH = 0.01f;
+
+	/**
+	 * Push this ball back inside the desktop screen if it has crossed the edges.
+	 *
+	 * @param box
+	 *            : desktop screen.
+	 * @return true if a correction was needed.
+	 */
+	public boolean resolvePenetration(DesktopScreen box) {
+		CollisionPhysics.pointPenetratesRectangleOuter(x, y, speedX, speedY, radius, box.minX, box.minY, box.maxX,
+				box.maxY, thisPenetration);
+		if (!thisPenetration.isPenetrating()) {
+			return false;
+		}
+		this.x = thisPenetration.newX;
+		this.y = thisPenetration.newY;
+		this.speedX = thisPenetration.newSpeedX;
+		this.speedY = thisPenetration.newSpeedY;
+		return true;
+	}
+
+	/**
+	 * Push this ball back inside the polygonal container if it overlaps its edges.
+	 * A ball whose center has escaped the container is first put back a radius
+	 * inside the closest point of the nearest edge, or less if that is not inside
+	 * the container, as may happen near a corner.
+	 *
+	 * @param container
+	 *            : polygonal container.
+	 * @return true if a correction was needed.
+	 */
+	public boolean resolvePenetration(PolygonContainer container) {
+		boolean corrected = false;
+		if (!container.contains(x, y)) {
+			int e = container.findNearestEdge(x, y);
+			float edgeX = container.x2[e] - container.x1[e];
+			float edgeY = container.y2[e] - container.y1[e];
+			float lengthSq = edgeX * edgeX + edgeY * edgeY;
+			float fraction = 0;
+			if (lengthSq > 0) {
+				fraction = Math.max(0, Math.min(1, ((x - container.x1[e]) * edgeX + (y - container.y1[e]) * edgeY)
+						/ lengthSq));
+			}
+			float closestX = container.x1[e] + fraction * edgeX;
+			float closestY = container.y1[e] + fraction * edgeY;
+			// Head inside along the normal of the edge, or, at a corner, along the
+			// mean of the normals of the two edges meeting there.
+			float normalX = container.normalX[e];
+			float normalY = container.normalY[e];
+			if (fraction == 0 || fraction == 1) {
+				int other = (fraction == 0) ? (e + container.numberOfEdges - 1) % container.numberOfEdges
+						: (e + 1) % container.numberOfEdges;
+				float meanX = normalX + container.normalX[other];
+				float meanY = normalY + container.normalY[other];
+				float meanLength = (float) Math.sqrt(meanX * meanX + meanY * meanY);
+				if (meanLength > 0) {
+					normalX = meanX / meanLength;
+					normalY = meanY / meanLength;
+				}
+			}
+			float depth = radius;
+			while (depth > MIN_PUSH && !container.contains(closestX + normalX * depth, closestY + normalY * depth)) {
+				depth /= 2;
+			}
+			if (depth <= MIN_PUSH) {
+				depth = MIN_PUSH;
+			}
+			x = closestX + normalX * depth;
+			y = closestY + normalY * depth;
+			float speedN = speedX * normalX + speedY * normalY;
+			if (speedN < 0) {
+				speedX -= 2 * speedN * normalX;
+				speedY -= 2 * speedN * normalY;
+			}
+			corrected = true;
+		}
+		int numberFound = container.findEdges(x - radius, y - radius, x + radius, y + radius);
+		for (int i = 0; i < numberFound; i++) {
+			int e = container.foundEdges[i];
+			CollisionPhysics.pointPenetratesLineSegment(x, y, speedX, speedY, radius, container.x1[e],
+					container.y1[e], container.x2[e], container.y2[e], thisPenetration);
+			if (thisPenetration.isPenetrating()) {
+				this.x = thisPenetration.newX;
+				this.y = thisPenetration.newY;
+				this.speedX = thisPenetration.newSpeedX;
+				this.speedY = thisPenetration.newSpeedY;
+				corrected = true;
+			}
+		}
+		return corrected;
+	}
+
+	/**
+	 * Push this ball out of the given static obstacle if it has sunk into it.
+	 *
+	 * @param obstacle
+	 *            : obstacle to be checked for overlap.
+	 * @return true if a correction was needed.
+	 */
+	public boolean resolvePenetration(Obstacle obstacle) {
+		CollisionPhysics.pointPenetratesStaticShape(x, y, speedX, speedY, radius, obstacle.shape, obstacle.x,
+				obstacle.y, thisPenetration, workspace);
+		if (!thisPenetration.isPenetrating()) {
+			return false;
+		}
+		this.x = thisPenetration.newX;
+		this.y = thisPenetration.newY;
+		this.speedX = thisPenetration.newSpeedX;
+		this.speedY = thisPenetration.newSpeedY;
+		return true;
+	}
+
+	/**
+	 * Push this ball out of the given body if it has sunk into it, as if the body
+	 * stood still.
+	 *
+	 * @param body
+	 *            : body to be checked for overlap.
+	 * @return true if a correction was needed.
+	 */
+	public boolean resolvePenetration(Body body) {
+		CollisionPhysics.pointPenetratesStaticShape(x, y, speedX, speedY, radius, body.shape, body.x, body.y,
+				thisPenetration, workspace);
+		if (!thisPenetration.isPenetrating()) {
+			return false;
+		}
+		this.x = thisPenetration.newX;
+		this.y = thisPenetration.newY;
+		this.speedX = thisPenetration.newSpeedX;
+		this.speedY = thisPenetration.newSpeedY;
+		return true;
+	}
+
+	/**
+	 * Separate this ball from the given another ball if the two overlap.
+	 *
+	 * @param another
+	 *            : another ball to be checked for overlap.
+	 * @return true if a correction was needed.
+	 */
+	public boolean resolvePenetration(Ball another) {
+		// The pair bounces as it would in a collision.
+		float pairRestitution = Math.min(this.restitution, another.restitution);
+		float pairFriction = (float) Math.sqrt(this.friction * another.friction);
+		CollisionPhysics.pointPenetratesMovingPoint(this.x, this.y, this.speedX, this.speedY, this.radius, another.x,
+				another.y, another.speedX, another.speedY, another.radius, pairRestitution, pairFriction,
+				thisPenetration, anotherPenetration, workspace);
+		if (!thisPenetration.isPenetrating()) {
+			return false;
+		}
+		this.x = thisPenetration.newX;
+		this.y = thisPenetration.newY;
+		this.speedX = thisPenetration.newSpeedX;
+		this.speedY = thisPenetration.newSpeedY;
+		another.x = anotherPenetration.newX;
+		another.y = anotherPenetration.newY;
+		another.speedX = anotherPenetration.newSpeedX;
+		another.speedY = anotherPenetration.newSpeedY;
+		return true;
+	}
+
 	/**
 	 * Update the states of this ball for the given time.
 	 * 
@@ -100,19 +547,78 @@ public class Ball {
 		// Check if this ball is responsible for the first collision
 		if (earliestCollisionResponse.t <= time) {
 			// This ball collided, get the new position and speed
-			this.x = earliestCollisionResponse.getNewX(this.x, this.speedX);
-			this.y = earliestCollisionResponse.getNewY(this.y, this.speedY);
+			wake();
+			this.x = earliestCollisionResponse.getNewX(this.x, this.speedX, this.accelX);
+			this.y = earliestCollisionResponse.getNewY(this.y, this.speedY, this.accelY);
 			this.speedX = earliestCollisionResponse.newSpeedX;
 			this.speedY = earliestCollisionResponse.newSpeedY;
-		} else {
+		} else if (sleeping) {
+			// This ball is asleep. Stay put.
+		} else if (isCoasting()) {
 			// This ball does not involve in a collision. Move straight.
 			this.x += this.speedX * time;
 			this.y += this.speedY * time;
+		} else {
+			// Follow the parabola, and pick up speed along it.
+			this.x += (this.speedX + 0.5f * this.accelX * time) * time;
+			this.y += (this.speedY + 0.5f * this.accelY * time) * time;
+			this.speedX += this.accelX * time;
+			this.speedY += this.accelY * time;
 		}
 		// Clear for the next collision detection
 		earliestCollisionResponse.reset();
 	}
 
+	/**
+	 * Put this ball to sleep once it has been slower than sleepSpeed for
+	 * sleepFrames time-steps in a row. Call once per time-step.
+	 * 
+	 * @param sleepSpeed
+	 *            : speed below which the ball counts as idle.
+	 * @param sleepFrames
+	 *            : number of idle time-steps before falling asleep.
+	 * @return true if this ball has just fallen asleep.
+	 */
+	public boolean updateSleep(float sleepSpeed, int sleepFrames) {
+		if (sleeping) {
+			return false;
+		}
+		if (speedX * speedX + speedY * speedY > sleepSpeed * sleepSpeed) {
+			slowFrames = 0;
+			return false;
+		}
+		if (++slowFrames < sleepFrames) {
+			return false;
+		}
+		sleeping = true;
+		speedX = 0;
+		speedY = 0;
+		accelX = 0;
+		accelY = 0;
+		return true;
+	}
+
+	/**
+	 * Return true if this ball is within the given gap of touching another.
+	 * 
+	 * @param another
+	 *            : the other ball.
+	 * @param gap
+	 *            : largest distance between the surfaces that still counts.
+	 */
+	public boolean touches(Ball another, float gap) {
+		float distanceX = another.x - x;
+		float distanceY = another.y - y;
+		float reach = radius + another.radius + gap;
+		return distanceX * distanceX + distanceY * distanceY <= reach * reach;
+	}
+
+	/** Wake this ball up, so that it takes part in the simulation again. */
+	public void wake() {
+		sleeping = false;
+		slowFrames = 0;
+	}
+
 	/** Draw itself using the given graphics context. */
 	public void draw(GC g) {
 		g.fillOval((int) (x - radius), (int) (y - radius), (int) (2 * radius), (int) (2 * radius));
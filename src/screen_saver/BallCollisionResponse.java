@@ -3,15 +3,18 @@ package screen_saver;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.events.PaintEvent;
 import org.eclipse.swt.events.PaintListener;
+import org.eclipse.swt.graphics.Color;
 import org.eclipse.swt.graphics.GC;
 import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.Rectangle;
 import org.eclipse.swt.layout.FillLayout;
 import org.eclipse.swt.widgets.Canvas;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Shell;
 
 /**
- * The control logic and main display for screen saver.
+ * The main display for screen saver, which shows a ScreenSaverWorld and steps
+ * it in time with the display.
  * 
  * @author Spursh Ujjawal
  * @version 1.0
@@ -19,34 +22,47 @@ import org.eclipse.swt.widgets.Shell;
  */
 public class BallCollisionResponse {
 	private final int UPDATE_RATE = 30; // Frames per second (fps)
-	private final float EPSILON_TIME = 1e-2f; // Threshold for zero time
 	private final int TIMER_INTERVAL = 10;
-	private int numberOfBalls = 11; // Number of balls
-	private Ball[] balls = new Ball[numberOfBalls];
+	private final ScreenSaverWorld world; // The balls and the rest, stepped here
 	private Canvas canvas;
-	private DesktopScreen box; // The desktop screen containing the balls
 	private int canvasWidth; // Screen width
 	private int canvasHeight; // Screen height
+	// Offscreen buffer and colors, kept from frame to frame
+	private Image image;
+	private GC gcImage;
+	private Color background, foreground;
+	// Measures the bytes allocated per frame by the step and the paint, if set
+	private AllocationMeter allocationMeter;
+	private long frameCount; // Frames measured
+	private long paintBytes; // Bytes allocated by painting since the last log
+	private long stepBytes; // Bytes allocated by stepping since the last log
 
 	/**
-	 * Constructor to create the UI components and initialize the screen saver
-	 * objects. Set the canvas to fill the screen.
+	 * Constructor to initialize the screen saver objects. Call open() to create
+	 * the UI components and start bouncing.
 	 */
-
 	public BallCollisionResponse() {
+		this(new ScreenSaverWorld());
+	}
+
+	/**
+	 * Constructor to show the given world. Call open() to create the UI
+	 * components and start bouncing.
+	 */
+	public BallCollisionResponse(ScreenSaverWorld world) {
+		this.world = world;
+	}
 
-		balls[0] = new Ball(100, 410, 25, 3, 34);
-		balls[1] = new Ball(80, 350, 25, 3, -114);
-		balls[2] = new Ball(530, 400, 25, 3, 14);
-		balls[3] = new Ball(400, 400, 25, 3, 14);
-		balls[4] = new Ball(400, 50, 25, 3, -47);
-		balls[5] = new Ball(480, 320, 25, 3, 47);
-		balls[6] = new Ball(80, 150, 25, 3, -114);
-		balls[7] = new Ball(100, 240, 25, 3, 60);
-		balls[8] = new Ball(250, 380, 25, 3, -42);
-		balls[9] = new Ball(200, 80, 25, 3, -84);
-		balls[10] = new Ball(500, 170, 25, 3, -42);
+	/** Return the world shown. */
+	public ScreenSaverWorld getWorld() {
+		return world;
+	}
 
+	/**
+	 * Create the UI components, set the canvas to fill the screen and run the
+	 * event loop until the window is closed.
+	 */
+	public void open() {
 		final Display display = new Display();
 		final Shell shell = new Shell(display);
 		shell.setText("Animator");
@@ -55,24 +71,45 @@ public class BallCollisionResponse {
 
 		canvas.addPaintListener(new PaintListener() {
 			public void paintControl(PaintEvent event) {
-				// Create the image to fill the canvas
-				Image image = new Image(shell.getDisplay(), canvas.getBounds());
-				// Set up the offscreen gc
-				GC gcImage = new GC(image);
-				canvasWidth = image.getBounds().width;
-				canvasHeight = image.getBounds().height;
-				box = new DesktopScreen(0, 0, canvasWidth, canvasHeight);
-				gcImage.setBackground(event.gc.getBackground());
-				gcImage.fillRectangle(image.getBounds());
-				gcImage.setBackground(shell.getDisplay().getSystemColor(SWT.COLOR_RED));
-				box.draw(gcImage);
-				for (int i = 0; i < numberOfBalls; i++) {
-					balls[i].draw(gcImage);
+				long startBytes = (allocationMeter != null) ? allocationMeter.getAllocatedBytes() : 0;
+				Rectangle bounds = canvas.getBounds();
+				if (image == null || bounds.width != canvasWidth || bounds.height != canvasHeight) {
+					// Create the image to fill the canvas, only when its size changes
+					if (image != null) {
+						gcImage.dispose();
+						image.dispose();
+					}
+					canvasWidth = bounds.width;
+					canvasHeight = bounds.height;
+					image = new Image(shell.getDisplay(), canvasWidth, canvasHeight);
+					// Set up the offscreen gc
+					gcImage = new GC(image);
+					background = event.gc.getBackground();
+					foreground = shell.getDisplay().getSystemColor(SWT.COLOR_RED);
+					world.setScreenSize(canvasWidth, canvasHeight);
+				}
+				gcImage.setBackground(background);
+				gcImage.fillRectangle(0, 0, canvasWidth, canvasHeight);
+				gcImage.setBackground(foreground);
+				if (world.container != null) {
+					world.container.draw(gcImage);
+				} else {
+					world.box.draw(gcImage);
+				}
+				for (int i = 0; i < world.obstacles.length; i++) {
+					world.obstacles[i].draw(gcImage);
+				}
+				for (int i = 0; i < world.bodies.length; i++) {
+					world.bodies[i].draw(gcImage);
+				}
+				for (int i = 0; i < world.numberOfBalls; i++) {
+					world.balls[i].draw(gcImage);
 				}
 				// Draw the offscreen buffer to the screen
 				event.gc.drawImage(image, 0, 0);
-				image.dispose();
-				gcImage.dispose();
+				if (allocationMeter != null) {
+					paintBytes += allocationMeter.getAllocatedBytesSince(startBytes);
+				}
 			}
 		});
 
@@ -97,6 +134,11 @@ public class BallCollisionResponse {
 		}
 		// Kill the timer
 		display.timerExec(-1, runnable);
+		if (image != null) {
+			gcImage.dispose();
+			image.dispose();
+			image = null;
+		}
 		// disposes all associated windows and their components
 		display.dispose();
 	}
@@ -108,7 +150,13 @@ public class BallCollisionResponse {
 		beginTimeMillis = System.currentTimeMillis();
 
 		// Execute one screen saver step
-		screenSaverUpdate();
+		if (allocationMeter != null) {
+			long startBytes = allocationMeter.getAllocatedBytes();
+			world.screenSaverUpdate();
+			logAllocation(allocationMeter.getAllocatedBytesSince(startBytes));
+		} else {
+			world.screenSaverUpdate();
+		}
 		// Refresh the display
 		canvas.redraw();
 
@@ -120,43 +168,32 @@ public class BallCollisionResponse {
 	}
 
 	/**
-	 * One screen saver time-step. Update the screen saver objects, with proper
-	 * collision detection and response.
+	 * Log the bytes allocated per frame. A step that allocates is reported at
+	 * once, as the step is meant not to allocate at all. The totals are reported
+	 * once a second.
+	 * 
+	 * @param bytes
+	 *            : bytes allocated by the step of this frame.
 	 */
-	public void screenSaverUpdate() {
-		float timeLeft = 1.0f; // One time-step to begin with
-
-		// Repeat until the one time-step is up
-		do {
-			// Find the earliest collision up to timeLeft among all objects
-			float tMin = timeLeft;
-
-			// Check collision between two balls
-			for (int i = 0; i < numberOfBalls; i++) {
-				for (int j = 0; j < numberOfBalls; j++) {
-					if (i < j) {
-						balls[i].intersect(balls[j], tMin);
-						if (balls[i].earliestCollisionResponse.t < tMin) {
-							tMin = balls[i].earliestCollisionResponse.t;
-						}
-					}
-				}
-			}
-			// Check collision between the balls and the box
-			for (int i = 0; i < numberOfBalls; i++) {
-				balls[i].intersect(box, tMin);
-				if (balls[i].earliestCollisionResponse.t < tMin) {
-					tMin = balls[i].earliestCollisionResponse.t;
-				}
-			}
-
-			// Update all the balls up to the detected earliest collision time tMin,
-			// or timeLeft if there is no collision.
-			for (int i = 0; i < numberOfBalls; i++) {
-				balls[i].update(tMin);
-			}
+	private void logAllocation(long bytes) {
+		frameCount++;
+		stepBytes += bytes;
+		if (bytes > 0) {
+			System.out.println("Frame " + frameCount + ": step allocated " + bytes + " bytes");
+		}
+		if (frameCount % UPDATE_RATE == 0) {
+			System.out.println("Frames " + (frameCount - UPDATE_RATE + 1) + "-" + frameCount + ": step "
+					+ stepBytes / UPDATE_RATE + " bytes/frame, paint " + paintBytes / UPDATE_RATE + " bytes/frame");
+			stepBytes = 0;
+			paintBytes = 0;
+		}
+	}
 
-			timeLeft -= tMin; // Subtract the time consumed and repeat
-		} while (timeLeft > EPSILON_TIME); // Ignore remaining time less than threshold
+	/**
+	 * Enable or disable logging the bytes allocated per frame. Needs a virtual
+	 * machine that counts the bytes allocated per thread.
+	 */
+	public void setAllocationLogging(boolean enabled) {
+		allocationMeter = (enabled && AllocationMeter.isSupported()) ? new AllocationMeter() : null;
 	}
 }
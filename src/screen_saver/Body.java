@@ -0,0 +1,247 @@
+package screen_saver;
+
+import org.eclipse.swt.graphics.GC;
+
+import collisionphysics.*;
+
+/**
+ * A moving convex body on the desktop screen, a polygon or a capsule, which
+ * bounces off the box or the container, the obstacles, the balls and the other
+ * bodies. It translates at a constant speed between impacts, without rotating.
+ * Its mass is that of a ball of the same area.
+ *
+ * A ball is checked against a body along its straight course over the
+ * sub-step, so that a ball pulled by a force field may reach the body a little
+ * off. Robust mode then pushes it out, as it does for the obstacles.
+ *
+ * @version 1.0
+ */
+public class Body {
+	float x, y; // Body's origin
+	float speedX, speedY; // Body's speed per step in x and y
+	ConvexShape shape; // Body's shape, around the origin
+	float restitution = CollisionPhysics.ELASTIC; // Share of speed kept on impact
+	float friction = CollisionPhysics.FRICTIONLESS; // Friction on impact
+	// Extent of the shape around the origin, which narrows the box that the
+	// origin may move in.
+	private float minX, minY, maxX, maxY;
+	// Maintain the response of the earliest collision detected by this body, as
+	// a ball does.
+	CollisionResponse earliestCollisionResponse = new CollisionResponse();
+	// Working copies of the collision physics, shared by the world this body is
+	// in, which sets them.
+	CollisionPhysics.Workspace workspace;
+	private int[] outline; // Outline to draw, moved with the body
+
+	/**
+	 * Constructor.
+	 *
+	 * @param shape
+	 *            : the convex polygon or capsule.
+	 * @param x
+	 *            : x-position of the origin of the shape.
+	 * @param y
+	 *            : y-position of the origin of the shape.
+	 * @param speedX
+	 *            : speed per time-step in x.
+	 * @param speedY
+	 *            : speed per time-step in y.
+	 */
+	public Body(ConvexShape shape, float x, float y, float speedX, float speedY) {
+		this.shape = shape;
+		this.x = x;
+		this.y = y;
+		this.speedX = speedX;
+		this.speedY = speedY;
+		minX = Float.MAX_VALUE;
+		minY = Float.MAX_VALUE;
+		maxX = -Float.MAX_VALUE;
+		maxY = -Float.MAX_VALUE;
+		if (shape instanceof ConvexPolygon) {
+			ConvexPolygon polygon = (ConvexPolygon) shape;
+			for (int i = 0; i < polygon.getVertexCount(); i++) {
+				extend(polygon.getVertexX(i), polygon.getVertexY(i));
+			}
+		} else if (shape instanceof Capsule) {
+			Capsule capsule = (Capsule) shape;
+			extend(capsule.getX1(), capsule.getY1());
+			extend(capsule.getX2(), capsule.getY2());
+		}
+		minX -= shape.getRadius();
+		minY -= shape.getRadius();
+		maxX += shape.getRadius();
+		maxY += shape.getRadius();
+		outline = new int[Obstacle.outlineLength(shape)];
+	}
+
+	/** Helper method to grow the extent of the shape to the given vertex. */
+	private void extend(float vertexX, float vertexY) {
+		minX = Math.min(minX, vertexX);
+		minY = Math.min(minY, vertexY);
+		maxX = Math.max(maxX, vertexX);
+		maxY = Math.max(maxY, vertexY);
+	}
+
+	// Working copies for computing responses in intersect(),
+	// to avoid repeatedly allocating objects.
+	private CollisionResponse tempResponse = new CollisionResponse();
+	private CollisionResponse thisResponse = new CollisionResponse();
+	private CollisionResponse anotherResponse = new CollisionResponse();
+
+	/**
+	 * Check if this body collides with the desktop screen edges in the interval
+	 * (0,timeLimit]. As the shape does not rotate, its origin hits the edges of
+	 * the box narrowed by the extent of the shape when the shape hits the edges of
+	 * the box.
+	 *
+	 * @param box
+	 *            : desktop screen.
+	 * @param timeLimit
+	 *            : upper bound of the time interval.
+	 */
+	public void intersect(DesktopScreen box, float timeLimit) {
+		CollisionPhysics.pointIntersectsRectangleOuter(x, y, speedX, speedY, 0, box.minX - minX, box.minY - minY,
+				box.maxX - maxX, box.maxY - maxY, restitution, friction, timeLimit, tempResponse, workspace);
+		if (tempResponse.t < earliestCollisionResponse.t) {
+			earliestCollisionResponse.copy(tempResponse);
+		}
+	}
+
+	/**
+	 * Check if this body collides with the edges of the polygonal container in
+	 * the interval (0,timeLimit]. Only the edges in the cells that the body can
+	 * reach by then are checked.
+	 *
+	 * @param container
+	 *            : polygonal container.
+	 * @param timeLimit
+	 *            : upper bound of the time interval.
+	 */
+	public void intersect(PolygonContainer container, float timeLimit) {
+		float reach = shape.getBoundingRadius() + (float) Math.hypot(speedX, speedY) * timeLimit;
+		int numberFound = container.findEdges(x - reach, y - reach, x + reach, y + reach);
+		for (int i = 0; i < numberFound; i++) {
+			int e = container.foundEdges[i];
+			CollisionPhysics.shapeIntersectsStaticShape(shape, x, y, speedX, speedY, container.edgeShapes[e], 0, 0,
+					restitution, friction, timeLimit, tempResponse, workspace);
+			if (tempResponse.t < earliestCollisionResponse.t) {
+				earliestCollisionResponse.copy(tempResponse);
+			}
+		}
+	}
+
+	/**
+	 * Check if this body collides with the given static obstacle in the interval
+	 * (0,timeLimit].
+	 *
+	 * @param obstacle
+	 *            : obstacle to be checked for collision.
+	 * @param timeLimit
+	 *            : upper bound of the time interval.
+	 */
+	public void intersect(Obstacle obstacle, float timeLimit) {
+		CollisionPhysics.shapeIntersectsStaticShape(shape, x, y, speedX, speedY, obstacle.shape, obstacle.x, obstacle.y,
+				restitution, friction, timeLimit, tempResponse, workspace);
+		if (tempResponse.t < earliestCollisionResponse.t) {
+			earliestCollisionResponse.copy(tempResponse);
+		}
+	}
+
+	/**
+	 * Check if this body collides with the given ball in the interval
+	 * (0,timeLimit].
+	 *
+	 * @param ball
+	 *            : ball to be checked for collision.
+	 * @param timeLimit
+	 *            : upper bound of the time interval.
+	 */
+	public void intersect(Ball ball, float timeLimit) {
+		// The less bouncy one sets the restitution, friction takes the mean.
+		float pairRestitution = Math.min(restitution, ball.restitution);
+		float pairFriction = (float) Math.sqrt(friction * ball.friction);
+		CollisionPhysics.shapeIntersectsMovingShape(shape, x, y, speedX, speedY, ball.shape, ball.x, ball.y,
+				ball.speedX, ball.speedY, pairRestitution, pairFriction, timeLimit, thisResponse, anotherResponse,
+				workspace);
+		if (anotherResponse.t < ball.earliestCollisionResponse.t) {
+			ball.earliestCollisionResponse.copy(anotherResponse);
+		}
+		if (thisResponse.t < earliestCollisionResponse.t) {
+			earliestCollisionResponse.copy(thisResponse);
+		}
+	}
+
+	/**
+	 * Check if this body collides with the given another body in the interval
+	 * (0,timeLimit].
+	 *
+	 * @param another
+	 *            : another moving body to be checked for collision.
+	 * @param timeLimit
+	 *            : upper bound of the time interval.
+	 */
+	public void intersect(Body another, float timeLimit) {
+		float pairRestitution = Math.min(this.restitution, another.restitution);
+		float pairFriction = (float) Math.sqrt(this.friction * another.friction);
+		CollisionPhysics.shapeIntersectsMovingShape(this.shape, this.x, this.y, this.speedX, this.speedY, another.shape,
+				another.x, another.y, another.speedX, another.speedY, pairRestitution, pairFriction, timeLimit,
+				thisResponse, anotherResponse, workspace);
+		if (anotherResponse.t < another.earliestCollisionResponse.t) {
+			another.earliestCollisionResponse.copy(anotherResponse);
+		}
+		if (thisResponse.t < this.earliestCollisionResponse.t) {
+			this.earliestCollisionResponse.copy(thisResponse);
+		}
+	}
+
+	// Working copy for resolving penetration in resolvePenetration(),
+	// to avoid repeatedly allocating objects.
+	private PenetrationResponse penetration = new PenetrationResponse();
+
+	/**
+	 * Push this body back inside the desktop screen if it has crossed the edges.
+	 *
+	 * @param box
+	 *            : desktop screen.
+	 * @return true if a correction was needed.
+	 */
+	public boolean resolvePenetration(DesktopScreen box) {
+		CollisionPhysics.pointPenetratesRectangleOuter(x, y, speedX, speedY, 0, box.minX - minX, box.minY - minY,
+				box.maxX - maxX, box.maxY - maxY, penetration);
+		if (!penetration.isPenetrating()) {
+			return false;
+		}
+		this.x = penetration.newX;
+		this.y = penetration.newY;
+		this.speedX = penetration.newSpeedX;
+		this.speedY = penetration.newSpeedY;
+		return true;
+	}
+
+	/**
+	 * Update the states of this body for the given time, as Ball.update() does.
+	 *
+	 * @param time
+	 *            : the earliest collision time detected in the system.
+	 */
+	public void update(float time) {
+		if (earliestCollisionResponse.t <= time) {
+			// This body collided, get the new position and speed
+			this.x = earliestCollisionResponse.getNewX(this.x, this.speedX);
+			this.y = earliestCollisionResponse.getNewY(this.y, this.speedY);
+			this.speedX = earliestCollisionResponse.newSpeedX;
+			this.speedY = earliestCollisionResponse.newSpeedY;
+		} else {
+			this.x += this.speedX * time;
+			this.y += this.speedY * time;
+		}
+		// Clear for the next collision detection
+		earliestCollisionResponse.reset();
+	}
+
+	/** Draw itself using the given graphics context. */
+	public void draw(GC g) {
+		Obstacle.computeOutline(shape, x, y, outline);
+		Obstacle.drawShape(g, shape, x, y, outline);
+	}
+}
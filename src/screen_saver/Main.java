@@ -1,5 +1,9 @@
 package screen_saver;
 
+import collisionphysics.Capsule;
+import collisionphysics.ConvexPolygon;
+import collisionphysics.ForceField;
+
 /**
  * Main Program for running the bouncing ball as a stand alone application.
  * 
@@ -9,7 +13,69 @@ package screen_saver;
  */
 public class Main {
 	// Entry main program
+	// Options: -robust resolves penetrations and reports how often it fired,
+	// -gravity pulls the balls down against a little drag, -settle also makes
+	// the balls lose speed on impact so that they come to rest, and puts them to
+	// sleep once they do, -obstacles adds a triangle and a capsule for the balls
+	// to bounce off, -bodies adds a moving square and a moving capsule, which
+	// bounce off the balls, the walls and each other, -polygon keeps the balls in a concave polygon with slanted
+	// corners and a notch, -allocations logs the bytes allocated per frame.
 	public static void main(String[] args) {
-		new BallCollisionResponse();
+		BallCollisionResponse screenSaver = new BallCollisionResponse();
+		ScreenSaverWorld world = screenSaver.getWorld();
+		boolean robust = false;
+		for (String arg : args) {
+			if (arg.equals("-robust")) {
+				robust = true;
+			}
+			if (arg.equals("-allocations")) {
+				screenSaver.setAllocationLogging(true);
+			} else if (!configure(world, arg)) {
+				System.err.println("Unknown option: " + arg);
+				System.err.println("Usage: java screen_saver.Main [-robust] [-gravity] [-settle] [-obstacles] "
+						+ "[-bodies] [-polygon] [-allocations]");
+				System.exit(2);
+			}
+		}
+		screenSaver.open();
+		if (robust) {
+			System.out.println("Robust mode: " + world.getPenetrationCount() + " penetrations resolved, "
+					+ world.getSubStepCapCount() + " sub-step caps hit, in " + world.getStepCount()
+					+ " time-steps");
+		}
+	}
+
+	/**
+	 * Set up the screen saver world for the given command-line option.
+	 * 
+	 * @param world
+	 *            : the world to set up.
+	 * @param option
+	 *            : one of the options above, other than -allocations, which is
+	 *            up to the display.
+	 * @return false if the option is unknown.
+	 */
+	static boolean configure(ScreenSaverWorld world, String option) {
+		if (option.equals("-robust")) {
+			world.setRobustMode(true);
+		} else if (option.equals("-gravity")) {
+			world.setForceField(new ForceField(0, 0.1f, 0.001f));
+		} else if (option.equals("-settle")) {
+			world.setForceField(new ForceField(0, 0.1f, 0.001f));
+			world.setMaterial(0.8f, 0.3f);
+			world.setSleepEnabled(true);
+		} else if (option.equals("-obstacles")) {
+			world.addObstacle(new Obstacle(new ConvexPolygon(-40, 30, 40, 30, 0, -40), 320, 260));
+			world.addObstacle(new Obstacle(new Capsule(-40, -15, 40, 15, 10), 320, 120));
+		} else if (option.equals("-bodies")) {
+			world.addBody(new Body(new ConvexPolygon(-25, -25, 25, -25, 25, 25, -25, 25), 180, 300, 2, 1.5f));
+			world.addBody(new Body(new Capsule(-30, 0, 30, 0, 12), 560, 260, -1.5f, 2));
+		} else if (option.equals("-polygon")) {
+			world.setContainer(new PolygonContainer(50, 0, 60, 60, 0, 580, 0, 639, 60, 639, 479, 360, 479,
+					325, 340, 290, 479, 60, 479, 0, 420));
+		} else {
+			return false;
+		}
+		return true;
 	}
 }
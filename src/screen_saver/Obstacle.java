@@ -0,0 +1,105 @@
+package screen_saver;
+
+import org.eclipse.swt.graphics.GC;
+
+import collisionphysics.Capsule;
+import collisionphysics.ConvexPolygon;
+import collisionphysics.ConvexShape;
+
+/**
+ * A static obstacle on the desktop screen, such as a ramp or a peg, for the
+ * balls to bounce off. Its shape is a convex polygon or a capsule.
+ *
+ * @version 1.0
+ */
+public class Obstacle {
+	float x, y; // Obstacle's origin
+	ConvexShape shape; // Obstacle's shape, around the origin
+	// Outline to draw, in screen coordinates. Computed once, as the obstacle
+	// does not move.
+	private int[] outline;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param shape
+	 *            : the convex polygon or capsule.
+	 * @param x
+	 *            : x-position of the origin of the shape.
+	 * @param y
+	 *            : y-position of the origin of the shape.
+	 */
+	public Obstacle(ConvexShape shape, float x, float y) {
+		this.shape = shape;
+		this.x = x;
+		this.y = y;
+		outline = new int[outlineLength(shape)];
+		computeOutline(shape, x, y, outline);
+	}
+
+	/** Draw itself using the given graphics context. */
+	public void draw(GC g) {
+		drawShape(g, shape, x, y, outline);
+	}
+
+	/** Helper method to return the length of the outline of the given shape. */
+	static int outlineLength(ConvexShape shape) {
+		return (shape instanceof ConvexPolygon) ? 2 * ((ConvexPolygon) shape).getVertexCount() : 8;
+	}
+
+	/**
+	 * Helper method to compute the outline of the given shape at the given
+	 * origin, in screen coordinates.
+	 *
+	 * @param shape
+	 *            : the convex polygon or capsule.
+	 * @param x
+	 *            : x-position of the origin of the shape.
+	 * @param y
+	 *            : y-position of the origin of the shape.
+	 * @param outline
+	 *            : receives the outline, of outlineLength(shape).
+	 */
+	static void computeOutline(ConvexShape shape, float x, float y, int[] outline) {
+		if (shape instanceof ConvexPolygon) {
+			ConvexPolygon polygon = (ConvexPolygon) shape;
+			for (int i = 0; i < polygon.getVertexCount(); i++) {
+				outline[2 * i] = (int) (x + polygon.getVertexX(i));
+				outline[2 * i + 1] = (int) (y + polygon.getVertexY(i));
+			}
+		} else if (shape instanceof Capsule) {
+			// The body between the two round ends
+			Capsule capsule = (Capsule) shape;
+			float dx = capsule.getX2() - capsule.getX1();
+			float dy = capsule.getY2() - capsule.getY1();
+			float length = (float) Math.sqrt(dx * dx + dy * dy);
+			float normalX = (length > 0) ? -dy / length * capsule.getRadius() : 0;
+			float normalY = (length > 0) ? dx / length * capsule.getRadius() : 0;
+			float x1 = x + capsule.getX1();
+			float y1 = y + capsule.getY1();
+			float x2 = x + capsule.getX2();
+			float y2 = y + capsule.getY2();
+			outline[0] = (int) (x1 + normalX);
+			outline[1] = (int) (y1 + normalY);
+			outline[2] = (int) (x2 + normalX);
+			outline[3] = (int) (y2 + normalY);
+			outline[4] = (int) (x2 - normalX);
+			outline[5] = (int) (y2 - normalY);
+			outline[6] = (int) (x1 - normalX);
+			outline[7] = (int) (y1 - normalY);
+		}
+	}
+
+	/** Helper method to draw the given shape at the given origin, with its outline. */
+	static void drawShape(GC g, ConvexShape shape, float x, float y, int[] outline) {
+		g.fillPolygon(outline);
+		if (shape instanceof Capsule) {
+			Capsule capsule = (Capsule) shape;
+			float radius = capsule.getRadius();
+			g.fillOval((int) (x + capsule.getX1() - radius), (int) (y + capsule.getY1() - radius),
+					(int) (2 * radius), (int) (2 * radius));
+			g.fillOval((int) (x + capsule.getX2() - radius), (int) (y + capsule.getY2() - radius),
+					(int) (2 * radius), (int) (2 * radius));
+		}
+	}
+}
@@ -0,0 +1,266 @@
+package screen_saver;
+
+import java.util.Arrays;
+
+import org.eclipse.swt.graphics.GC;
+
+import collisionphysics.Capsule;
+
+/**
+ * A polygonal container for the bouncing balls, which may replace the
+ * rectangular desktop screen. It may be convex or concave, with edges of any
+ * orientation, but must not cross itself.
+ *
+ * The edges are indexed in a uniform grid of square cells, each of which lists
+ * the edges that pass through it. A ball then only checks the edges in the
+ * cells that it can reach within the time-step, so that the cost does not grow
+ * with the number of edges of the container.
+ *
+ * The index keeps working state for its lookups, so a container belongs to one
+ * screen saver and must not be shared between worlds stepped in parallel.
+ *
+ * @version 1.0
+ */
+public class PolygonContainer {
+	int numberOfEdges;
+	// Edge e goes from (x1[e], y1[e]) to (x2[e], y2[e]), with the inside of the
+	// container in the direction of its unit normal (normalX[e], normalY[e]).
+	float[] x1, y1, x2, y2;
+	float[] normalX, normalY;
+	Capsule[] edgeShapes; // The edges as segments, for the checks against the bodies
+	// Grid of cells, covering the bounding box of the container
+	private float minX, minY; // Top-left corner of the grid
+	private float maxX, maxY; // Bottom-right corner of the container
+	private float cellSize;
+	private int columns, rows;
+	// The edges through cell c are cellEdges[cellStart[c]] up to, but not
+	// including, cellEdges[cellStart[c + 1]].
+	private int[] cellStart;
+	private int[] cellEdges;
+	// Edges found by the last findEdges(). A stamp per edge makes sure that an
+	// edge through several of the cells is found once.
+	int[] foundEdges;
+	private int[] edgeStamp;
+	private int stamp;
+	private int[] outline; // Outline to draw
+
+	/**
+	 * Constructor.
+	 *
+	 * @param cellSize
+	 *            : side of the cells of the edge index. About the diameter of the
+	 *            balls works well.
+	 * @param vertices
+	 *            : x- and y-positions of the vertices, interleaved, in order
+	 *            around the container, either way round.
+	 */
+	public PolygonContainer(float cellSize, float... vertices) {
+		assert (vertices.length >= 6) && (vertices.length % 2 == 0) : "Need at least 3 vertices!";
+		assert (cellSize > 0) : "Non-positive cell size!";
+		numberOfEdges = vertices.length / 2;
+		x1 = new float[numberOfEdges];
+		y1 = new float[numberOfEdges];
+		x2 = new float[numberOfEdges];
+		y2 = new float[numberOfEdges];
+		normalX = new float[numberOfEdges];
+		normalY = new float[numberOfEdges];
+		edgeShapes = new Capsule[numberOfEdges];
+		outline = new int[vertices.length];
+
+		// The sign of the area tells which way round the vertices go.
+		double area = 0;
+		for (int e = 0; e < numberOfEdges; e++) {
+			int next = (e + 1) % numberOfEdges;
+			x1[e] = vertices[2 * e];
+			y1[e] = vertices[2 * e + 1];
+			x2[e] = vertices[2 * next];
+			y2[e] = vertices[2 * next + 1];
+			area += x1[e] * y2[e] - x2[e] * y1[e];
+			outline[2 * e] = (int) x1[e];
+			outline[2 * e + 1] = (int) y1[e];
+		}
+		assert (area != 0) : "Degenerate polygon!";
+		for (int e = 0; e < numberOfEdges; e++) {
+			float edgeX = x2[e] - x1[e];
+			float edgeY = y2[e] - y1[e];
+			float length = (float) Math.sqrt(edgeX * edgeX + edgeY * edgeY);
+			float side = (area > 0) ? 1 : -1;
+			normalX[e] = (length > 0) ? -side * edgeY / length : 0;
+			normalY[e] = (length > 0) ? side * edgeX / length : 0;
+			edgeShapes[e] = new Capsule(x1[e], y1[e], x2[e], y2[e], 0);
+		}
+
+		buildIndex(cellSize);
+		foundEdges = new int[numberOfEdges];
+		edgeStamp = new int[numberOfEdges];
+	}
+
+	/** Helper method to build the grid of cells, and list the edges through each. */
+	private void buildIndex(float cellSize) {
+		this.cellSize = cellSize;
+		minX = Float.MAX_VALUE;
+		minY = Float.MAX_VALUE;
+		maxX = -Float.MAX_VALUE;
+		maxY = -Float.MAX_VALUE;
+		for (int e = 0; e < numberOfEdges; e++) {
+			minX = Math.min(minX, x1[e]);
+			minY = Math.min(minY, y1[e]);
+			maxX = Math.max(maxX, x1[e]);
+			maxY = Math.max(maxY, y1[e]);
+		}
+		columns = (int) ((maxX - minX) / cellSize) + 1;
+		rows = (int) ((maxY - minY) / cellSize) + 1;
+
+		// Count the edges through each cell, then fill them in.
+		cellStart = new int[columns * rows + 1];
+		int[] cellFill = null; // Edges filled in so far, per cell
+		for (int pass = 0; pass < 2; pass++) {
+			for (int e = 0; e < numberOfEdges; e++) {
+				int column1 = column(Math.min(x1[e], x2[e]));
+				int column2 = column(Math.max(x1[e], x2[e]));
+				int row1 = row(Math.min(y1[e], y2[e]));
+				int row2 = row(Math.max(y1[e], y2[e]));
+				for (int row = row1; row <= row2; row++) {
+					for (int column = column1; column <= column2; column++) {
+						if (edgeCrossesCell(e, column, row)) {
+							int cell = row * columns + column;
+							if (pass == 0) {
+								cellStart[cell + 1]++;
+							} else {
+								cellEdges[cellStart[cell] + cellFill[cell]++] = e;
+							}
+						}
+					}
+				}
+			}
+			if (pass == 0) {
+				for (int cell = 0; cell < columns * rows; cell++) {
+					cellStart[cell + 1] += cellStart[cell];
+				}
+				cellEdges = new int[cellStart[columns * rows]];
+				cellFill = new int[columns * rows];
+			}
+		}
+	}
+
+	/**
+	 * Helper method to check whether edge e passes through the given cell, whose
+	 * bounding box it is known to overlap: the corners of the cell must not all be
+	 * on one side of the line through the edge.
+	 */
+	private boolean edgeCrossesCell(int e, int column, int row) {
+		float cellX = minX + column * cellSize;
+		float cellY = minY + row * cellSize;
+		int above = 0, below = 0;
+		for (int corner = 0; corner < 4; corner++) {
+			float cornerX = cellX + ((corner & 1) != 0 ? cellSize : 0);
+			float cornerY = cellY + ((corner & 2) != 0 ? cellSize : 0);
+			float cross = (x2[e] - x1[e]) * (cornerY - y1[e]) - (y2[e] - y1[e]) * (cornerX - x1[e]);
+			if (cross >= 0) {
+				above++;
+			}
+			if (cross <= 0) {
+				below++;
+			}
+		}
+		return above > 0 && below > 0;
+	}
+
+	/** Helper method to return the column of x, clamped to the grid. */
+	private int column(float x) {
+		return Math.max(0, Math.min(columns - 1, (int) ((x - minX) / cellSize)));
+	}
+
+	/** Helper method to return the row of y, clamped to the grid. */
+	private int row(float y) {
+		return Math.max(0, Math.min(rows - 1, (int) ((y - minY) / cellSize)));
+	}
+
+	/**
+	 * Find the edges that pass through the cells overlapping the given box, and
+	 * store them in foundEdges.
+	 *
+	 * @return the number of edges found.
+	 */
+	int findEdges(float boxMinX, float boxMinY, float boxMaxX, float boxMaxY) {
+		if (++stamp == Integer.MAX_VALUE) {
+			Arrays.fill(edgeStamp, 0); // Start the stamps over
+			stamp = 1;
+		}
+		int numberFound = 0;
+		int column2 = column(boxMaxX);
+		int row2 = row(boxMaxY);
+		for (int row = row(boxMinY); row <= row2; row++) {
+			for (int column = column(boxMinX); column <= column2; column++) {
+				int cell = row * columns + column;
+				for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+					int e = cellEdges[i];
+					if (edgeStamp[e] != stamp) {
+						edgeStamp[e] = stamp;
+						foundEdges[numberFound++] = e;
+					}
+				}
+			}
+		}
+		return numberFound;
+	}
+
+	/**
+	 * Return true if the given point is inside the container, by counting the
+	 * edges crossed by a ray from the point to the right. Those edges all pass
+	 * through the cells of the row of the point, so only these are checked.
+	 */
+	public boolean contains(float x, float y) {
+		if (x < minX || x > maxX || y < minY || y > maxY) {
+			return false;
+		}
+		int numberFound = findEdges(x, y, maxX, y);
+		boolean inside = false;
+		for (int i = 0; i < numberFound; i++) {
+			int e = foundEdges[i];
+			if ((y1[e] > y) != (y2[e] > y)) {
+				float crossX = x1[e] + (y - y1[e]) * (x2[e] - x1[e]) / (y2[e] - y1[e]);
+				if (x < crossX) {
+					inside = !inside;
+				}
+			}
+		}
+		return inside;
+	}
+
+	/**
+	 * Return the edge closest to the given point. Checks all the edges, so keep it
+	 * for the rare case of a ball that has escaped the container.
+	 */
+	int findNearestEdge(float x, float y) {
+		int nearest = 0;
+		double nearestSq = Double.MAX_VALUE;
+		for (int e = 0; e < numberOfEdges; e++) {
+			double edgeX = x2[e] - x1[e];
+			double edgeY = y2[e] - y1[e];
+			double lengthSq = edgeX * edgeX + edgeY * edgeY;
+			double fraction = 0;
+			if (lengthSq > 0) {
+				fraction = Math.max(0, Math.min(1, ((x - x1[e]) * edgeX + (y - y1[e]) * edgeY) / lengthSq));
+			}
+			double offsetX = x - (x1[e] + fraction * edgeX);
+			double offsetY = y - (y1[e] + fraction * edgeY);
+			double distanceSq = offsetX * offsetX + offsetY * offsetY;
+			if (distanceSq < nearestSq) {
+				nearestSq = distanceSq;
+				nearest = e;
+			}
+		}
+		return nearest;
+	}
+
+	/** Return the number of edges. */
+	public int getEdgeCount() {
+		return numberOfEdges;
+	}
+
+	/** Draw itself using the given graphic context. */
+	public void draw(GC g) {
+		g.drawPolygon(outline);
+	}
+}
@@ -0,0 +1,473 @@
+package screen_saver;
+
+import java.util.Arrays;
+
+import collisionphysics.Capsule;
+import collisionphysics.CollisionPhysics;
+import collisionphysics.ForceField;
+
+/**
+ * The screen saver objects and their time-step: the balls, the box or the
+ * container, the obstacles and the bodies. It has no user interface, so that a
+ * world can be stepped without a display, and without SWT on the class path.
+ * BallCollisionResponse shows one on the screen.
+ *
+ * @version 1.0
+ */
+public class ScreenSaverWorld {
+	private final float EPSILON_TIME = 1e-2f; // Threshold for zero time
+	private final int MAX_SUB_STEPS = 64; // Sub-steps per time-step in robust mode
+	private final float SLEEP_SPEED = 0.05f; // Speed below which a ball is idle
+	private final int SLEEP_FRAMES = 30; // Idle time-steps before falling asleep
+	private final float CONTACT_GAP = 1; // Gap within which balls count as touching
+	int numberOfBalls; // Number of balls
+	Ball[] balls;
+	// The desktop screen containing the balls, resized to the canvas if shown
+	DesktopScreen box = new DesktopScreen(0, 0, 640, 480);
+	PolygonContainer container; // Replaces the box, if set
+	// Robust mode resolves penetrations left behind by fast balls or by bursts
+	// of collisions, and caps the number of sub-steps per time-step.
+	private boolean robustMode = false;
+	private long stepCount; // Time-steps executed
+	private long penetrationCount; // Penetrations resolved in robust mode
+	private long subStepCapCount; // Time-steps that hit MAX_SUB_STEPS
+	private ForceField forceField; // External forces, or null for none
+	// If enabled, idle balls fall asleep and drop out of the collision detection
+	// and the update until another ball hits them, or a moving ball touches them.
+	// Off by default, as a sleeping ball loses what little speed it had. The
+	// indices of the awake and the sleeping balls are rebuilt whenever a ball
+	// falls asleep or wakes up.
+	private boolean sleepEnabled = false;
+	private int[] awakeBalls;
+	private int[] sleepingBalls;
+	private int numberOfAwake, numberOfSleeping;
+	private boolean sleepChanged = true;
+	// Static obstacles for the balls to bounce off
+	Obstacle[] obstacles = new Obstacle[0];
+	// Moving bodies, which bounce off everything else
+	Body[] bodies = new Body[0];
+	// Working copies of the collision physics, for all the balls and bodies
+	private CollisionPhysics.Workspace workspace = new CollisionPhysics.Workspace();
+
+	/** Constructor to initialize the screen saver objects. */
+	public ScreenSaverWorld() {
+		this(11);
+		balls[0] = new Ball(100, 410, 25, 3, 34);
+		balls[1] = new Ball(80, 350, 25, 3, -114);
+		balls[2] = new Ball(530, 400, 25, 3, 14);
+		balls[3] = new Ball(400, 400, 25, 3, 14);
+		balls[4] = new Ball(400, 50, 25, 3, -47);
+		balls[5] = new Ball(480, 320, 25, 3, 47);
+		balls[6] = new Ball(80, 150, 25, 3, -114);
+		balls[7] = new Ball(100, 240, 25, 3, 60);
+		balls[8] = new Ball(250, 380, 25, 3, -42);
+		balls[9] = new Ball(200, 80, 25, 3, -84);
+		balls[10] = new Ball(500, 170, 25, 3, -42);
+		for (int i = 0; i < numberOfBalls; i++) {
+			balls[i].workspace = workspace;
+		}
+	}
+
+	/**
+	 * Constructor for the given number of balls, at rest at the origin until
+	 * placed with setBall().
+	 */
+	public ScreenSaverWorld(int numberOfBalls) {
+		this.numberOfBalls = numberOfBalls;
+		balls = new Ball[numberOfBalls];
+		for (int i = 0; i < numberOfBalls; i++) {
+			balls[i] = new Ball(0, 0, 0, 0, 0);
+			balls[i].workspace = workspace;
+		}
+		awakeBalls = new int[numberOfBalls];
+		sleepingBalls = new int[numberOfBalls];
+	}
+
+	/**
+	 * Place ball i.
+	 * 
+	 * @param i
+	 *            : index of the ball.
+	 * @param x
+	 *            : x-position of its center.
+	 * @param y
+	 *            : y-position of its center.
+	 * @param radius
+	 *            : its radius.
+	 * @param speedX
+	 *            : its speed per time-step in x.
+	 * @param speedY
+	 *            : its speed per time-step in y.
+	 */
+	public void setBall(int i, float x, float y, float radius, float speedX, float speedY) {
+		assert (radius >= 0) : "Negative radius!";
+		Ball ball = balls[i];
+		ball.x = x;
+		ball.y = y;
+		ball.radius = radius;
+		ball.shape = new Capsule(0, 0, 0, 0, radius);
+		ball.speedX = speedX;
+		ball.speedY = speedY;
+		ball.wake();
+		sleepChanged = true;
+	}
+
+	/**
+	 * One screen saver time-step. Update the screen saver objects, with proper
+	 * collision detection and response.
+	 */
+	public void screenSaverUpdate() {
+		float timeLeft = 1.0f; // One time-step to begin with
+		int subSteps = 0;
+
+		stepCount++;
+		if (robustMode) {
+			// Start from a consistent state, as the collision detection assumes.
+			resolvePenetrations();
+		}
+
+		// Repeat until the one time-step is up
+		do {
+			if (sleepChanged) {
+				sortBySleep();
+			}
+
+			// Sample the forces at the start of the sub-step
+			if (forceField != null) {
+				for (int a = 0; a < numberOfAwake; a++) {
+					balls[awakeBalls[a]].applyForces(forceField);
+					if (container != null) {
+						balls[awakeBalls[a]].applyContacts(container);
+					} else {
+						balls[awakeBalls[a]].applyContacts(box);
+					}
+				}
+			}
+
+			// Find the earliest collision up to timeLeft among all objects
+			float tMin = timeLeft;
+
+			// Check collision between two balls. Sleeping balls only get hit.
+			for (int a = 0; a < numberOfAwake; a++) {
+				Ball ball = balls[awakeBalls[a]];
+				for (int b = a + 1; b < numberOfAwake; b++) {
+					ball.intersect(balls[awakeBalls[b]], tMin);
+					if (ball.earliestCollisionResponse.t < tMin) {
+						tMin = ball.earliestCollisionResponse.t;
+					}
+				}
+				for (int s = 0; s < numberOfSleeping; s++) {
+					ball.intersect(balls[sleepingBalls[s]], tMin);
+					if (ball.earliestCollisionResponse.t < tMin) {
+						tMin = ball.earliestCollisionResponse.t;
+					}
+				}
+			}
+			// Check collision between the balls and the box, or the container
+			for (int a = 0; a < numberOfAwake; a++) {
+				Ball ball = balls[awakeBalls[a]];
+				if (container != null) {
+					ball.intersect(container, tMin);
+				} else {
+					ball.intersect(box, tMin);
+				}
+				if (ball.earliestCollisionResponse.t < tMin) {
+					tMin = ball.earliestCollisionResponse.t;
+				}
+			}
+			// Check collision between the balls and the obstacles
+			for (int a = 0; a < numberOfAwake; a++) {
+				Ball ball = balls[awakeBalls[a]];
+				for (int o = 0; o < obstacles.length; o++) {
+					ball.intersect(obstacles[o], tMin);
+					if (ball.earliestCollisionResponse.t < tMin) {
+						tMin = ball.earliestCollisionResponse.t;
+					}
+				}
+			}
+
+			// Check collision between the bodies and the balls, the box or the
+			// container, the obstacles and the other bodies. A body may hit a
+			// sleeping ball, which then wakes up.
+			for (int b = 0; b < bodies.length; b++) {
+				Body body = bodies[b];
+				for (int i = 0; i < numberOfBalls; i++) {
+					body.intersect(balls[i], tMin);
+					if (balls[i].earliestCollisionResponse.t < tMin) {
+						tMin = balls[i].earliestCollisionResponse.t;
+					}
+				}
+				if (container != null) {
+					body.intersect(container, tMin);
+				} else {
+					body.intersect(box, tMin);
+				}
+				for (int o = 0; o < obstacles.length; o++) {
+					body.intersect(obstacles[o], tMin);
+				}
+				for (int c = b + 1; c < bodies.length; c++) {
+					body.intersect(bodies[c], tMin);
+					if (bodies[c].earliestCollisionResponse.t < tMin) {
+						tMin = bodies[c].earliestCollisionResponse.t;
+					}
+				}
+				if (body.earliestCollisionResponse.t < tMin) {
+					tMin = body.earliestCollisionResponse.t;
+				}
+			}
+
+			if (robustMode && ++subSteps >= MAX_SUB_STEPS) {
+				// Too many collisions within this time-step. Move all the balls
+				// straight for the rest of it, and separate the overlaps below.
+				for (int i = 0; i < numberOfBalls; i++) {
+					balls[i].earliestCollisionResponse.reset();
+				}
+				for (int b = 0; b < bodies.length; b++) {
+					bodies[b].earliestCollisionResponse.reset();
+				}
+				tMin = timeLeft;
+				subStepCapCount++;
+			}
+
+			// Update all the balls up to the detected earliest collision time tMin,
+			// or timeLeft if there is no collision.
+			for (int a = 0; a < numberOfAwake; a++) {
+				balls[awakeBalls[a]].update(tMin);
+			}
+			for (int b = 0; b < bodies.length; b++) {
+				bodies[b].update(tMin);
+			}
+			// A sleeping ball hit by the earliest collision wakes up.
+			for (int s = 0; s < numberOfSleeping; s++) {
+				Ball ball = balls[sleepingBalls[s]];
+				if (ball.earliestCollisionResponse.t <= tMin) {
+					ball.update(tMin);
+					sleepChanged = true;
+				} else {
+					ball.earliestCollisionResponse.reset();
+				}
+			}
+
+			if (robustMode) {
+				resolvePenetrations();
+			}
+
+			timeLeft -= tMin; // Subtract the time consumed and repeat
+		} while (timeLeft > EPSILON_TIME); // Ignore remaining time less than threshold
+
+		if (sleepEnabled) {
+			// A moving ball wakes the sleeping balls it touches, or is about to
+			// leave, such as the ones resting on it.
+			for (int a = 0; a < numberOfAwake; a++) {
+				Ball ball = balls[awakeBalls[a]];
+				float speedSq = ball.speedX * ball.speedX + ball.speedY * ball.speedY;
+				if (speedSq <= SLEEP_SPEED * SLEEP_SPEED) {
+					continue;
+				}
+				float gap = (float) Math.sqrt(speedSq) + CONTACT_GAP;
+				for (int s = 0; s < numberOfSleeping; s++) {
+					Ball sleeper = balls[sleepingBalls[s]];
+					if (sleeper.sleeping && ball.touches(sleeper, gap)) {
+						sleeper.wake();
+						sleepChanged = true;
+					}
+				}
+			}
+			// Put the idle balls to sleep
+			for (int a = 0; a < numberOfAwake; a++) {
+				if (balls[awakeBalls[a]].updateSleep(SLEEP_SPEED, SLEEP_FRAMES)) {
+					sleepChanged = true;
+				}
+			}
+		}
+	}
+
+	/** Rebuild the indices of the awake and the sleeping balls. */
+	private void sortBySleep() {
+		numberOfAwake = 0;
+		numberOfSleeping = 0;
+		for (int i = 0; i < numberOfBalls; i++) {
+			if (balls[i].sleeping) {
+				sleepingBalls[numberOfSleeping++] = i;
+			} else {
+				awakeBalls[numberOfAwake++] = i;
+			}
+		}
+		sleepChanged = false;
+	}
+
+	/**
+	 * Separate overlapping balls, push them out of the obstacles and the bodies,
+	 * then push them back inside the box, or the container. The box goes last so
+	 * that every ball ends up inside it. The bodies are pushed back inside the
+	 * box too.
+	 */
+	private void resolvePenetrations() {
+		if (sleepChanged) {
+			sortBySleep();
+		}
+		for (int a = 0; a < numberOfAwake; a++) {
+			Ball ball = balls[awakeBalls[a]];
+			for (int b = a + 1; b < numberOfAwake; b++) {
+				if (ball.resolvePenetration(balls[awakeBalls[b]])) {
+					penetrationCount++;
+				}
+			}
+			for (int s = 0; s < numberOfSleeping; s++) {
+				Ball sleeper = balls[sleepingBalls[s]];
+				if (ball.resolvePenetration(sleeper)) {
+					penetrationCount++;
+					sleeper.wake(); // Pushed, so no longer at rest
+					sleepChanged = true;
+				}
+			}
+		}
+		for (int a = 0; a < numberOfAwake; a++) {
+			Ball ball = balls[awakeBalls[a]];
+			for (int o = 0; o < obstacles.length; o++) {
+				if (ball.resolvePenetration(obstacles[o])) {
+					penetrationCount++;
+				}
+			}
+			for (int b = 0; b < bodies.length; b++) {
+				if (ball.resolvePenetration(bodies[b])) {
+					penetrationCount++;
+				}
+			}
+		}
+		if (container == null) {
+			for (int b = 0; b < bodies.length; b++) {
+				if (bodies[b].resolvePenetration(box)) {
+					penetrationCount++;
+				}
+			}
+		}
+		for (int a = 0; a < numberOfAwake; a++) {
+			Ball ball = balls[awakeBalls[a]];
+			if ((container != null) ? ball.resolvePenetration(container) : ball.resolvePenetration(box)) {
+				penetrationCount++;
+			}
+		}
+	}
+
+	/**
+	 * Set or reset the boundaries of the desktop screen.
+	 * 
+	 * @param width
+	 *            : width of the screen.
+	 * @param height
+	 *            : height of the screen.
+	 */
+	public void setScreenSize(int width, int height) {
+		box.set(0, 0, width, height);
+	}
+
+	/** Enable or disable the robust mode. */
+	public void setRobustMode(boolean robustMode) {
+		this.robustMode = robustMode;
+	}
+
+	/** Set the external forces acting on the balls, or null for none. */
+	public void setForceField(ForceField forceField) {
+		this.forceField = forceField;
+	}
+
+	/**
+	 * Set the material of all the balls.
+	 * 
+	 * @param restitution
+	 *            : fraction of the normal speed kept after impact, in [0, 1] range.
+	 * @param friction
+	 *            : coefficient of friction against the tangential speed.
+	 */
+	public void setMaterial(float restitution, float friction) {
+		for (int i = 0; i < numberOfBalls; i++) {
+			balls[i].setMaterial(restitution, friction);
+		}
+	}
+
+	/**
+	 * Keep the balls in the given polygonal container instead of the desktop
+	 * screen, or in the desktop screen again if null.
+	 */
+	public void setContainer(PolygonContainer container) {
+		this.container = container;
+	}
+
+	/** Add a static obstacle for the balls to bounce off. */
+	public void addObstacle(Obstacle obstacle) {
+		obstacles = Arrays.copyOf(obstacles, obstacles.length + 1);
+		obstacles[obstacles.length - 1] = obstacle;
+	}
+
+	/** Add a moving body, which bounces off everything else. */
+	public void addBody(Body body) {
+		body.workspace = workspace;
+		bodies = Arrays.copyOf(bodies, bodies.length + 1);
+		bodies[bodies.length - 1] = body;
+	}
+
+	/** Enable or disable putting idle balls to sleep. Disabling wakes them all. */
+	public void setSleepEnabled(boolean sleepEnabled) {
+		this.sleepEnabled = sleepEnabled;
+		if (!sleepEnabled) {
+			for (int i = 0; i < numberOfBalls; i++) {
+				balls[i].wake();
+			}
+			sleepChanged = true;
+		}
+	}
+
+	/** Return the number of balls currently awake. */
+	public int getAwakeCount() {
+		if (sleepChanged) {
+			sortBySleep();
+		}
+		return numberOfAwake;
+	}
+
+	/** Return the number of balls. */
+	public int getBallCount() {
+		return numberOfBalls;
+	}
+
+	/** Return the x-position of the center of ball i. */
+	public float getBallX(int i) {
+		return balls[i].x;
+	}
+
+	/** Return the y-position of the center of ball i. */
+	public float getBallY(int i) {
+		return balls[i].y;
+	}
+
+	/** Return the radius of ball i. */
+	public float getBallRadius(int i) {
+		return balls[i].radius;
+	}
+
+	/** Return the speed of ball i per time-step in x. */
+	public float getSpeedX(int i) {
+		return balls[i].speedX;
+	}
+
+	/** Return the speed of ball i per time-step in y. */
+	public float getSpeedY(int i) {
+		return balls[i].speedY;
+	}
+
+	/** Return the number of time-steps executed so far. */
+	public long getStepCount() {
+		return stepCount;
+	}
+
+	/** Return the number of penetrations resolved in robust mode. */
+	public long getPenetrationCount() {
+		return penetrationCount;
+	}
+
+	/** Return the number of time-steps that hit the sub-step cap in robust mode. */
+	public long getSubStepCapCount() {
+		return subStepCapCount;
+	}
+}
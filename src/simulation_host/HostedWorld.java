@@ -0,0 +1,107 @@
+package simulation_host;
+
+import java.util.concurrent.TimeUnit;
+
+import screen_saver.ScreenSaverWorld;
+
+/**
+ * A world run by the simulation host, with its own tick rate and tick budget.
+ * Each run() is one slice: it catches up on the ticks that are due, up to the
+ * budget, and then hands the world back to the host. A world is only ever in
+ * one slice at a time, so the world itself needs no locking.
+ *
+ * @version 1.0
+ */
+class HostedWorld implements Runnable {
+	final ScreenSaverWorld world;
+	private final SimulationHost host;
+	final long tickIntervalNanos; // Time between ticks
+	final int maxTicksPerSlice; // Tick budget of a slice
+	private long startNanos; // Time of tick 0
+	private volatile long ticksDone; // Ticks run so far
+	private volatile long lag; // Ticks behind schedule after the last slice
+	private volatile long maxLag; // Largest lag so far
+	// Hands this world to the pool when the timer fires. Created once, to avoid
+	// allocating one per tick.
+	final Runnable submit = new Runnable() {
+		public void run() {
+			host.execute(HostedWorld.this);
+		}
+	};
+
+	/**
+	 * Constructor.
+	 *
+	 * @param world
+	 *            : the world to run.
+	 * @param host
+	 *            : the host running it.
+	 * @param ticksPerSecond
+	 *            : tick rate.
+	 * @param maxTicksPerSlice
+	 *            : most ticks run in one slice when catching up.
+	 */
+	HostedWorld(ScreenSaverWorld world, SimulationHost host, float ticksPerSecond, int maxTicksPerSlice) {
+		assert (ticksPerSecond > 0) : "Non-positive tick rate!";
+		assert (maxTicksPerSlice > 0) : "Non-positive tick budget!";
+		this.world = world;
+		this.host = host;
+		this.tickIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / ticksPerSecond);
+		this.maxTicksPerSlice = maxTicksPerSlice;
+	}
+
+	/** Start the clock of this world. */
+	void start(long nowNanos) {
+		startNanos = nowNanos;
+	}
+
+	/** Run one slice: the ticks due by now, up to the tick budget. */
+	public void run() {
+		if (!host.isRunning()) {
+			return;
+		}
+		long due = ticksDueBy(System.nanoTime());
+		long done = ticksDone;
+		int ticks = (int) Math.min(due - done, maxTicksPerSlice);
+		for (int i = 0; i < ticks; i++) {
+			world.screenSaverUpdate();
+		}
+		done += ticks;
+		ticksDone = done;
+		host.countTicks(ticks);
+
+		long behind = due - done;
+		lag = behind;
+		if (behind > maxLag) {
+			maxLag = behind;
+		}
+		if (behind > 0) {
+			// Out of budget: queue behind the other worlds for another slice.
+			host.execute(this);
+		} else {
+			// Up to date: sleep until the next tick is due.
+			long delay = startNanos + done * tickIntervalNanos - System.nanoTime();
+			host.schedule(this, Math.max(0, delay));
+		}
+	}
+
+	/** Return the number of ticks that should have run by the given time. */
+	private long ticksDueBy(long nowNanos) {
+		return (nowNanos - startNanos) / tickIntervalNanos + 1;
+	}
+
+	/** Return the number of ticks run so far. */
+	long getTicksDone() {
+		return ticksDone;
+	}
+
+	/** Return the number of ticks behind schedule after the last slice. */
+	long getLag() {
+		return lag;
+	}
+
+	/** Return the largest lag so far, in ticks. */
+	long getMaxLag() {
+		return maxLag;
+	}
+}
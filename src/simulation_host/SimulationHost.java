@@ -0,0 +1,188 @@
+package simulation_host;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import screen_saver.ScreenSaverWorld;
+
+/**
+ * Runs many independent headless worlds in one virtual machine, on a small
+ * work-stealing pool instead of one thread per world.
+ *
+ * Each world has its own tick rate, and a tick budget: the most ticks it may
+ * run in one slice when it has fallen behind. A world that is up to date waits
+ * on a single timer thread until its next tick is due. A world that has used up
+ * its budget goes to the back of the queue, so that all the worlds that are
+ * due get a slice before any of them gets another. The pool runs its queues
+ * first in, first out for that reason.
+ *
+ * The host counts the ticks run by all the worlds, for the throughput, and
+ * the ticks each world is behind schedule, for its lag.
+ *
+ * @version 1.0
+ */
+public class SimulationHost {
+	private ForkJoinPool pool;
+	private ScheduledExecutorService timer;
+	private List<HostedWorld> worlds = new ArrayList<HostedWorld>();
+	private volatile boolean running = false;
+	private long startNanos; // Time the host started
+	private LongAdder totalTicks = new LongAdder();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param parallelism
+	 *            : number of threads stepping the worlds.
+	 */
+	public SimulationHost(int parallelism) {
+		pool = new ForkJoinPool(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+		timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "simulation-host-timer");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Add a world to run. Worlds added after start() start right away.
+	 *
+	 * @param world
+	 *            : the world, not shared with any other host or thread.
+	 * @param ticksPerSecond
+	 *            : tick rate of the world.
+	 * @param maxTicksPerSlice
+	 *            : tick budget, the most ticks run in one slice when catching
+	 *            up.
+	 * @return the id of the world, for the metrics.
+	 */
+	public synchronized int addWorld(ScreenSaverWorld world, float ticksPerSecond, int maxTicksPerSlice) {
+		HostedWorld hosted = new HostedWorld(world, this, ticksPerSecond, maxTicksPerSlice);
+		worlds.add(hosted);
+		if (running) {
+			hosted.start(System.nanoTime());
+			execute(hosted);
+		}
+		return worlds.size() - 1;
+	}
+
+	/** Start running all the worlds. */
+	public synchronized void start() {
+		assert !running : "Already running!";
+		running = true;
+		startNanos = System.nanoTime();
+		for (HostedWorld hosted : worlds) {
+			hosted.start(startNanos);
+			execute(hosted);
+		}
+	}
+
+	/**
+	 * Stop running the worlds, and wait for the slices in progress to finish.
+	 * They see that the host is stopping, and do not queue another slice.
+	 *
+	 * @throws InterruptedException
+	 *             if interrupted while waiting.
+	 */
+	public void stop() throws InterruptedException {
+		running = false;
+		timer.shutdownNow();
+		pool.shutdown();
+		pool.awaitTermination(1, TimeUnit.MINUTES);
+	}
+
+	/** Return true until stop() is called. */
+	boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * Queue a slice of the given world on the pool. A slice that ends while stop()
+	 * shuts the pool down may find it rejecting work, and then just stops.
+	 */
+	void execute(HostedWorld hosted) {
+		if (running) {
+			try {
+				pool.execute(hosted);
+			} catch (RejectedExecutionException e) {
+				if (running) {
+					throw e;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Queue a slice of the given world on the pool after the given delay. As for
+	 * execute(), a timer shut down by stop() in the meantime is not an error.
+	 */
+	void schedule(HostedWorld hosted, long delayNanos) {
+		if (running) {
+			try {
+				timer.schedule(hosted.submit, delayNanos, TimeUnit.NANOSECONDS);
+			} catch (RejectedExecutionException e) {
+				if (running) {
+					throw e;
+				}
+			}
+		}
+	}
+
+	/** Add to the count of ticks run by all the worlds. */
+	void countTicks(int ticks) {
+		totalTicks.add(ticks);
+	}
+
+	/** Return the number of worlds. */
+	public synchronized int getWorldCount() {
+		return worlds.size();
+	}
+
+	/** Return the number of ticks run by all the worlds so far. */
+	public long getTotalTicks() {
+		return totalTicks.sum();
+	}
+
+	/** Return the ticks run by all the worlds per second, since start(). */
+	public double getThroughput() {
+		double seconds = (System.nanoTime() - startNanos) / 1e9;
+		return (seconds > 0) ? getTotalTicks() / seconds : 0;
+	}
+
+	/** Return the number of ticks the given world has run so far. */
+	public synchronized long getTicksDone(int world) {
+		return worlds.get(world).getTicksDone();
+	}
+
+	/** Return the lag of the given world after its last slice, in milliseconds. */
+	public synchronized double getLagMillis(int world) {
+		HostedWorld hosted = worlds.get(world);
+		return hosted.getLag() * hosted.tickIntervalNanos / 1e6;
+	}
+
+	/** Return the largest lag of the given world so far, in milliseconds. */
+	public synchronized double getMaxLagMillis(int world) {
+		HostedWorld hosted = worlds.get(world);
+		return hosted.getMaxLag() * hosted.tickIntervalNanos / 1e6;
+	}
+
+	/** Return the number of worlds behind schedule after their last slice. */
+	public synchronized int getLaggingWorldCount() {
+		int lagging = 0;
+		for (HostedWorld hosted : worlds) {
+			if (hosted.getLag() > 0) {
+				lagging++;
+			}
+		}
+		return lagging;
+	}
+}
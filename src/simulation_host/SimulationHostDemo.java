@@ -0,0 +1,61 @@
+package simulation_host;
+
+import java.util.Arrays;
+
+import collisionphysics.ForceField;
+import screen_saver.ScreenSaverWorld;
+
+/**
+ * Run thousands of screen saver worlds on one simulation host, and report the
+ * throughput and the lag of the worlds once a second.
+ * 
+ * Usage: java simulation_host.SimulationHostDemo [worlds] [seconds] [threads]
+ *
+ * @version 1.0
+ */
+public class SimulationHostDemo {
+	private static final float TICKS_PER_SECOND = 30; // As the screen saver
+	private static final int MAX_TICKS_PER_SLICE = 4; // Tick budget per slice
+
+	public static void main(String[] args) throws InterruptedException {
+		int numberOfWorlds = (args.length > 0) ? Integer.parseInt(args[0]) : 2000;
+		int seconds = (args.length > 1) ? Integer.parseInt(args[1]) : 10;
+		int threads = (args.length > 2) ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+		SimulationHost host = new SimulationHost(threads);
+		for (int i = 0; i < numberOfWorlds; i++) {
+			// A mix of free bouncing, gravity and settling worlds
+			ScreenSaverWorld world = new ScreenSaverWorld();
+			if (i % 3 != 0) {
+				world.setForceField(new ForceField(0, 0.1f, 0.001f));
+			}
+			if (i % 3 == 2) {
+				world.setMaterial(0.8f, 0.3f);
+				world.setSleepEnabled(true);
+			}
+			host.addWorld(world, TICKS_PER_SECOND, MAX_TICKS_PER_SLICE);
+		}
+		System.out.println(numberOfWorlds + " worlds at " + TICKS_PER_SECOND + " ticks/s on " + threads
+				+ " threads, target " + numberOfWorlds * TICKS_PER_SECOND + " ticks/s");
+
+		host.start();
+		double[] lags = new double[numberOfWorlds];
+		for (int second = 1; second <= seconds; second++) {
+			Thread.sleep(1000);
+			for (int i = 0; i < numberOfWorlds; i++) {
+				lags[i] = host.getLagMillis(i);
+			}
+			Arrays.sort(lags);
+			System.out.printf("%2d s: %.0f ticks/s, lag p50 %.1f ms, p99 %.1f ms, max %.1f ms, %d worlds behind%n",
+					second, host.getThroughput(), lags[numberOfWorlds / 2], lags[numberOfWorlds * 99 / 100],
+					lags[numberOfWorlds - 1], host.getLaggingWorldCount());
+		}
+		host.stop();
+
+		double worstMaxLag = 0;
+		for (int i = 0; i < numberOfWorlds; i++) {
+			worstMaxLag = Math.max(worstMaxLag, host.getMaxLagMillis(i));
+		}
+		System.out.printf("Total %d ticks, worst lag of any world %.1f ms%n", host.getTotalTicks(), worstMaxLag);
+	}
+}
@@ -0,0 +1,51 @@
+package state_streaming;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+
+/**
+ * What the state server keeps per client: the connection and its buffers, the
+ * viewport, the last frame the client acknowledged, and the balls sent in each
+ * of the last frames, to encode the next frame against.
+ *
+ * @version 1.0
+ */
+class ClientSession {
+	final SocketChannel channel;
+	final ByteBuffer input = ByteBuffer.allocate(4 * FrameFormat.VIEWPORT_BYTES);
+	final ByteBuffer output; // Frame not yet written, if any
+	// Viewport, everything until the client sends one
+	float minX = -Float.MAX_VALUE, minY = -Float.MAX_VALUE;
+	float maxX = Float.MAX_VALUE, maxY = Float.MAX_VALUE;
+	int viewportSequence;
+	int ackedFrame = FrameFormat.NO_BASE; // Last frame the client decoded
+	int lastSentFrame = FrameFormat.NO_BASE; // Last frame encoded for the client
+	// Balls sent in frame sentFrame[s], for the slot s = frame % HISTORY
+	final int[] sentFrame = new int[FrameFormat.HISTORY];
+	final boolean[][] visible;
+	final int[][] x, y, radius;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param channel
+	 *            : the non-blocking connection to the client.
+	 * @param numberOfBalls
+	 *            : number of balls in the world.
+	 */
+	ClientSession(SocketChannel channel, int numberOfBalls) {
+		this.channel = channel;
+		output = ByteBuffer.allocate(FrameFormat.maxFrameBytes(numberOfBalls));
+		Arrays.fill(sentFrame, FrameFormat.NO_BASE);
+		visible = new boolean[FrameFormat.HISTORY][numberOfBalls];
+		x = new int[FrameFormat.HISTORY][numberOfBalls];
+		y = new int[FrameFormat.HISTORY][numberOfBalls];
+		radius = new int[FrameFormat.HISTORY][numberOfBalls];
+	}
+
+	/** Return true if part of the last frame is still waiting to be written. */
+	boolean hasPendingOutput() {
+		return output.position() > 0;
+	}
+}
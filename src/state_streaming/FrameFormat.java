@@ -0,0 +1,101 @@
+package state_streaming;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The wire format shared by the state server and its clients. All numbers are
+ * big-endian.
+ *
+ * The server sends one frame per time-step: an int length of the rest of the
+ * frame, the int frame number, the int number of the base frame (or NO_BASE for
+ * a key frame), then as varints the viewport sequence the frame was cut for and
+ * the number of balls in the world. Then come the balls that left the viewport
+ * since the base frame, as a count and ascending ids, and the balls that
+ * entered or moved, as a count and ascending ids each followed by its position.
+ * The ids are sent as the difference from the previous id. A ball that was in
+ * the base frame gets the change of its quantized position, a ball that was not
+ * gets its quantized position and radius. Small signed numbers are zigzag
+ * encoded so that they take one byte.
+ *
+ * The client sends MESSAGE_ACK with the int number of each frame it decoded,
+ * and MESSAGE_VIEWPORT with an int sequence number and the float minX, minY,
+ * maxX and maxY of its viewport.
+ *
+ * @version 1.0
+ */
+final class FrameFormat {
+	static final float QUANTUM = 8; // Quantized steps per pixel
+	static final int HISTORY = 32; // Frames that may serve as a base
+	static final int NO_BASE = -1; // Base frame number of a key frame
+	static final int HEADER_BYTES = 12; // Length, frame number and base
+	static final int MAX_VARINT_BYTES = 5;
+	static final byte MESSAGE_ACK = 1;
+	static final byte MESSAGE_VIEWPORT = 2;
+	static final int ACK_BYTES = 5;
+	static final int VIEWPORT_BYTES = 21;
+
+	private FrameFormat() {
+	}
+
+	/** Return the most bytes a frame of the given number of balls takes. */
+	static int maxFrameBytes(int numberOfBalls) {
+		// Header, two counts and two varints, and per ball either an id or an
+		// id with three numbers.
+		return HEADER_BYTES + 4 * MAX_VARINT_BYTES + numberOfBalls * 4 * MAX_VARINT_BYTES;
+	}
+
+	/** Return the given coordinate in quantized steps. */
+	static int quantize(float value) {
+		return Math.round(value * QUANTUM);
+	}
+
+	/** Return the coordinate of the given quantized steps. */
+	static float dequantize(int steps) {
+		return steps / QUANTUM;
+	}
+
+	/**
+	 * Return true if the quantized ball overlaps the viewport, which is how the
+	 * server decides which balls a client gets.
+	 */
+	static boolean overlaps(int x, int y, int radius, float minX, float minY, float maxX, float maxY) {
+		float ballX = dequantize(x);
+		float ballY = dequantize(y);
+		float ballRadius = dequantize(radius);
+		return ballX + ballRadius >= minX && ballX - ballRadius <= maxX && ballY + ballRadius >= minY
+				&& ballY - ballRadius <= maxY;
+	}
+
+	/** Put a non-negative int in 7-bit groups, lowest first. */
+	static void putVarint(ByteBuffer buffer, int value) {
+		while ((value & ~0x7F) != 0) {
+			buffer.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+
+	/** Get an int put by putVarint(). */
+	static int getVarint(ByteBuffer buffer) {
+		int value = 0;
+		int shift = 0;
+		byte group;
+		do {
+			group = buffer.get();
+			value |= (group & 0x7F) << shift;
+			shift += 7;
+		} while (group < 0);
+		return value;
+	}
+
+	/** Put an int of either sign, so that small magnitudes take one byte. */
+	static void putSigned(ByteBuffer buffer, int value) {
+		putVarint(buffer, (value << 1) ^ (value >> 31));
+	}
+
+	/** Get an int put by putSigned(). */
+	static int getSigned(ByteBuffer buffer) {
+		int value = getVarint(buffer);
+		return (value >>> 1) ^ -(value & 1);
+	}
+}
@@ -0,0 +1,220 @@
+package state_streaming;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+
+/**
+ * A client of the state server, which decodes the frames it receives and
+ * acknowledges each one. Keeps the balls of its last frames, since the server
+ * encodes each frame against one of them.
+ *
+ * Not thread-safe: call receive() from one thread, which also reads the balls.
+ *
+ * @version 1.0
+ */
+public class StateClient {
+	private SocketChannel channel;
+	private ByteBuffer input = ByteBuffer.allocate(1 << 16);
+	private ByteBuffer output = ByteBuffer.allocate(64 * FrameFormat.VIEWPORT_BYTES);
+	private int viewportSequence; // Last viewport sent
+	// Balls decoded in frame frames[s], for the slot s = frame % HISTORY
+	private int[] frames = new int[FrameFormat.HISTORY];
+	private boolean[][] visible = new boolean[FrameFormat.HISTORY][0];
+	private int[][] x = new int[FrameFormat.HISTORY][0];
+	private int[][] y = new int[FrameFormat.HISTORY][0];
+	private int[][] radius = new int[FrameFormat.HISTORY][0];
+	private int current = -1; // Slot of the last frame decoded
+	private int frameViewportSequence; // Viewport the last frame was cut for
+	private int numberOfBalls; // Balls in the world
+	private long bytesReceived;
+	private long framesReceived;
+	private long keyFramesReceived;
+
+	/** Constructor. Call connect() to start receiving. */
+	public StateClient() {
+		Arrays.fill(frames, FrameFormat.NO_BASE);
+	}
+
+	/**
+	 * Connect to a state server.
+	 *
+	 * @param address
+	 *            : address the server listens on.
+	 * @throws IOException
+	 *             if the connection fails.
+	 */
+	public void connect(InetSocketAddress address) throws IOException {
+		channel = SocketChannel.open(address);
+		channel.configureBlocking(false);
+		channel.socket().setTcpNoDelay(true);
+	}
+
+	/** Close the connection. */
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Ask for the balls overlapping the given rectangle only. Frames cut for this
+	 * viewport report its sequence number in getViewportSequence().
+	 *
+	 * @return the sequence number of this viewport.
+	 */
+	public int setViewport(float minX, float minY, float maxX, float maxY) throws IOException {
+		viewportSequence++;
+		output.put(FrameFormat.MESSAGE_VIEWPORT);
+		output.putInt(viewportSequence);
+		output.putFloat(minX);
+		output.putFloat(minY);
+		output.putFloat(maxX);
+		output.putFloat(maxY);
+		flush();
+		return viewportSequence;
+	}
+
+	/**
+	 * Decode the frames that have arrived, without waiting for more.
+	 *
+	 * @return the number of frames decoded.
+	 * @throws IOException
+	 *             if the connection fails or the server closed it.
+	 */
+	public int receive() throws IOException {
+		int read = channel.read(input);
+		if (read < 0) {
+			throw new IOException("Connection closed by the server");
+		}
+		bytesReceived += read;
+		input.flip();
+		int decoded = 0;
+		while (input.remaining() >= 4 && input.remaining() >= 4 + input.getInt(input.position())) {
+			input.getInt();
+			decodeFrame();
+			decoded++;
+		}
+		input.compact();
+		flush();
+		return decoded;
+	}
+
+	/** Helper method to write the messages queued so far, as far as possible. */
+	private void flush() throws IOException {
+		output.flip();
+		channel.write(output);
+		output.compact();
+	}
+
+	/** Helper method to decode the frame at the input, and acknowledge it. */
+	private void decodeFrame() throws IOException {
+		int frame = input.getInt();
+		int base = input.getInt();
+		frameViewportSequence = FrameFormat.getVarint(input);
+		numberOfBalls = FrameFormat.getVarint(input);
+		if (visible[0].length < numberOfBalls) {
+			for (int s = 0; s < FrameFormat.HISTORY; s++) {
+				visible[s] = Arrays.copyOf(visible[s], numberOfBalls);
+				x[s] = Arrays.copyOf(x[s], numberOfBalls);
+				y[s] = Arrays.copyOf(y[s], numberOfBalls);
+				radius[s] = Arrays.copyOf(radius[s], numberOfBalls);
+			}
+		}
+
+		// Start from the base frame, or from nothing for a key frame.
+		int slot = frame % FrameFormat.HISTORY;
+		if (base == FrameFormat.NO_BASE) {
+			Arrays.fill(visible[slot], false);
+			keyFramesReceived++;
+		} else {
+			int baseSlot = base % FrameFormat.HISTORY;
+			if (frames[baseSlot] != base) {
+				throw new IOException("Frame " + frame + " refers to unknown base frame " + base);
+			}
+			System.arraycopy(visible[baseSlot], 0, visible[slot], 0, numberOfBalls);
+			System.arraycopy(x[baseSlot], 0, x[slot], 0, numberOfBalls);
+			System.arraycopy(y[baseSlot], 0, y[slot], 0, numberOfBalls);
+			System.arraycopy(radius[baseSlot], 0, radius[slot], 0, numberOfBalls);
+		}
+
+		int numberRemoved = FrameFormat.getVarint(input);
+		int id = 0;
+		for (int i = 0; i < numberRemoved; i++) {
+			id += FrameFormat.getVarint(input);
+			visible[slot][id] = false;
+		}
+		int numberChanged = FrameFormat.getVarint(input);
+		id = 0;
+		for (int i = 0; i < numberChanged; i++) {
+			id += FrameFormat.getVarint(input);
+			if (base != FrameFormat.NO_BASE && visible[base % FrameFormat.HISTORY][id]) {
+				x[slot][id] += FrameFormat.getSigned(input);
+				y[slot][id] += FrameFormat.getSigned(input);
+			} else {
+				visible[slot][id] = true;
+				x[slot][id] = FrameFormat.getSigned(input);
+				y[slot][id] = FrameFormat.getSigned(input);
+				radius[slot][id] = FrameFormat.getVarint(input);
+			}
+		}
+		frames[slot] = frame;
+		current = slot;
+		framesReceived++;
+
+		if (output.remaining() >= FrameFormat.ACK_BYTES) {
+			output.put(FrameFormat.MESSAGE_ACK);
+			output.putInt(frame);
+		}
+	}
+
+	/** Return the number of the last frame decoded, or NO_BASE if none yet. */
+	public int getFrameNumber() {
+		return (current >= 0) ? frames[current] : FrameFormat.NO_BASE;
+	}
+
+	/** Return the sequence number of the viewport the last frame was cut for. */
+	public int getViewportSequence() {
+		return frameViewportSequence;
+	}
+
+	/** Return the number of balls in the world, in view or not. */
+	public int getBallCount() {
+		return numberOfBalls;
+	}
+
+	/** Return true if ball i is in the last frame decoded. */
+	public boolean isVisible(int i) {
+		return current >= 0 && visible[current][i];
+	}
+
+	/** Return the x-position of the center of ball i in the last frame decoded. */
+	public float getBallX(int i) {
+		return FrameFormat.dequantize(x[current][i]);
+	}
+
+	/** Return the y-position of the center of ball i in the last frame decoded. */
+	public float getBallY(int i) {
+		return FrameFormat.dequantize(y[current][i]);
+	}
+
+	/** Return the radius of ball i in the last frame decoded. */
+	public float getBallRadius(int i) {
+		return FrameFormat.dequantize(radius[current][i]);
+	}
+
+	/** Return the bytes received so far. */
+	public long getBytesReceived() {
+		return bytesReceived;
+	}
+
+	/** Return the number of frames decoded so far. */
+	public long getFramesReceived() {
+		return framesReceived;
+	}
+
+	/** Return the number of those frames that were key frames. */
+	public long getKeyFramesReceived() {
+		return keyFramesReceived;
+	}
+}
@@ -0,0 +1,337 @@
+package state_streaming;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import screen_saver.ScreenSaverWorld;
+
+/**
+ * Streams the balls of a world to clients on the network, one frame per
+ * time-step, over non-blocking channels. See FrameFormat for the wire format.
+ *
+ * Each frame is encoded per client against the last frame that client
+ * acknowledged, with positions quantized to a fraction of a pixel, so that a
+ * ball that moves a little takes a few bytes and a ball that stays put takes
+ * none. A client only gets the balls in its viewport. A client that has not
+ * taken the last frame yet, or that has not acknowledged any of the frames that
+ * may still serve as a base, skips the next one. Since frames are encoded
+ * against acknowledged frames only, it still decodes the one after.
+ *
+ * Not thread-safe: call publishFrame() and poll() from the thread that steps
+ * the world.
+ *
+ * @version 1.0
+ */
+public class StateServer {
+	private ScreenSaverWorld world;
+	private int numberOfBalls;
+	private Selector selector;
+	private ServerSocketChannel serverChannel;
+	private List<ClientSession> sessions = new ArrayList<ClientSession>();
+	private int frameNumber = FrameFormat.NO_BASE; // Last frame published
+	// Quantized balls of the last frame
+	private int[] ballX, ballY, ballRadius;
+	private long bytesSent; // Frame bytes written to all clients
+	private long framesSent; // Frames encoded for all clients
+	private long keyFramesSent; // Frames encoded without a base
+	private long framesSkipped; // Frames skipped for slow clients
+
+	/**
+	 * Constructor. Call open() to start listening.
+	 *
+	 * @param world
+	 *            : the world to stream.
+	 */
+	public StateServer(ScreenSaverWorld world) {
+		this.world = world;
+		numberOfBalls = world.getBallCount();
+		ballX = new int[numberOfBalls];
+		ballY = new int[numberOfBalls];
+		ballRadius = new int[numberOfBalls];
+	}
+
+	/**
+	 * Start listening for clients.
+	 *
+	 * @param address
+	 *            : address to listen on. Port 0 picks a free port.
+	 * @throws IOException
+	 *             if the address cannot be bound.
+	 */
+	public void open(InetSocketAddress address) throws IOException {
+		selector = Selector.open();
+		serverChannel = ServerSocketChannel.open();
+		serverChannel.configureBlocking(false);
+		serverChannel.bind(address);
+		serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+	}
+
+	/** Return the port listened on. */
+	public int getPort() {
+		return serverChannel.socket().getLocalPort();
+	}
+
+	/** Close all the connections and stop listening. */
+	public void close() throws IOException {
+		for (ClientSession session : sessions) {
+			session.channel.close();
+		}
+		sessions.clear();
+		serverChannel.close();
+		selector.close();
+	}
+
+	/**
+	 * Take the balls of the world as the next frame, and send it to every client
+	 * that has taken the last one. A client that went away is disconnected,
+	 * without holding up the others.
+	 */
+	public void publishFrame() throws IOException {
+		frameNumber++;
+		for (int i = 0; i < numberOfBalls; i++) {
+			ballX[i] = FrameFormat.quantize(world.getBallX(i));
+			ballY[i] = FrameFormat.quantize(world.getBallY(i));
+			ballRadius[i] = FrameFormat.quantize(world.getBallRadius(i));
+		}
+		for (int s = sessions.size() - 1; s >= 0; s--) {
+			ClientSession session = sessions.get(s);
+			if (session.hasPendingOutput()
+					|| session.lastSentFrame - session.ackedFrame >= FrameFormat.HISTORY - 1) {
+				framesSkipped++;
+				continue;
+			}
+			try {
+				encodeFrame(session);
+				flush(session);
+			} catch (IOException e) {
+				disconnect(session); // The client went away
+			}
+		}
+	}
+
+	/**
+	 * Accept new clients, read their acknowledgements and viewports, and write
+	 * what is left of their frames.
+	 *
+	 * @param timeoutMillis
+	 *            : most time to wait for any of these, or 0 not to wait.
+	 */
+	public void poll(long timeoutMillis) throws IOException {
+		if (timeoutMillis > 0) {
+			selector.select(timeoutMillis);
+		} else {
+			selector.selectNow();
+		}
+		Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+		while (keys.hasNext()) {
+			SelectionKey key = keys.next();
+			keys.remove();
+			if (!key.isValid()) {
+				continue;
+			}
+			if (key.isAcceptable()) {
+				accept();
+				continue;
+			}
+			ClientSession session = (ClientSession) key.attachment();
+			try {
+				if (key.isReadable()) {
+					read(session);
+				}
+				if (key.isValid() && key.isWritable()) {
+					flush(session);
+				}
+			} catch (IOException e) {
+				disconnect(session); // The client went away
+			}
+		}
+	}
+
+	/** Helper method to accept a waiting client, if any. */
+	private void accept() throws IOException {
+		SocketChannel channel = serverChannel.accept();
+		if (channel == null) {
+			return;
+		}
+		channel.configureBlocking(false);
+		channel.socket().setTcpNoDelay(true);
+		ClientSession session = new ClientSession(channel, numberOfBalls);
+		channel.register(selector, SelectionKey.OP_READ, session);
+		sessions.add(session);
+	}
+
+	/** Helper method to close the connection to a client. */
+	private void disconnect(ClientSession session) throws IOException {
+		sessions.remove(session);
+		session.channel.close();
+	}
+
+	/** Helper method to read and apply the messages of a client. */
+	private void read(ClientSession session) throws IOException {
+		ByteBuffer input = session.input;
+		if (session.channel.read(input) < 0) {
+			disconnect(session);
+			return;
+		}
+		input.flip();
+		while (input.remaining() > 0) {
+			byte type = input.get(input.position());
+			if (type == FrameFormat.MESSAGE_ACK) {
+				if (input.remaining() < FrameFormat.ACK_BYTES) {
+					break;
+				}
+				input.get();
+				session.ackedFrame = Math.max(session.ackedFrame, input.getInt());
+			} else if (type == FrameFormat.MESSAGE_VIEWPORT) {
+				if (input.remaining() < FrameFormat.VIEWPORT_BYTES) {
+					break;
+				}
+				input.get();
+				session.viewportSequence = input.getInt();
+				session.minX = input.getFloat();
+				session.minY = input.getFloat();
+				session.maxX = input.getFloat();
+				session.maxY = input.getFloat();
+			} else {
+				throw new IOException("Unknown message type " + type);
+			}
+		}
+		input.compact();
+	}
+
+	/**
+	 * Helper method to write as much of the pending frame of a client as the
+	 * connection takes, and to wait for the connection to take more if needed.
+	 */
+	private void flush(ClientSession session) throws IOException {
+		ByteBuffer output = session.output;
+		output.flip();
+		bytesSent += session.channel.write(output);
+		output.compact();
+		SelectionKey key = session.channel.keyFor(selector);
+		int interest = SelectionKey.OP_READ | (session.hasPendingOutput() ? SelectionKey.OP_WRITE : 0);
+		if (key.interestOps() != interest) {
+			key.interestOps(interest);
+		}
+	}
+
+	/**
+	 * Helper method to encode the last frame for a client, against the last
+	 * frame it acknowledged if that is still in its history.
+	 */
+	private void encodeFrame(ClientSession session) {
+		int base = session.ackedFrame;
+		if (base == FrameFormat.NO_BASE || frameNumber - base >= FrameFormat.HISTORY
+				|| session.sentFrame[base % FrameFormat.HISTORY] != base) {
+			base = FrameFormat.NO_BASE;
+			keyFramesSent++;
+		}
+		int slot = frameNumber % FrameFormat.HISTORY;
+		boolean[] visible = session.visible[slot];
+		int[] x = session.x[slot];
+		int[] y = session.y[slot];
+		int[] radius = session.radius[slot];
+		boolean[] baseVisible = null;
+		int[] baseX = null, baseY = null;
+		if (base != FrameFormat.NO_BASE) {
+			int baseSlot = base % FrameFormat.HISTORY;
+			baseVisible = session.visible[baseSlot];
+			baseX = session.x[baseSlot];
+			baseY = session.y[baseSlot];
+		}
+
+		// Cut the frame for the viewport, and count what changed.
+		int numberRemoved = 0, numberChanged = 0;
+		for (int i = 0; i < numberOfBalls; i++) {
+			visible[i] = FrameFormat.overlaps(ballX[i], ballY[i], ballRadius[i], session.minX, session.minY,
+					session.maxX, session.maxY);
+			x[i] = ballX[i];
+			y[i] = ballY[i];
+			radius[i] = ballRadius[i];
+			boolean wasVisible = (baseVisible != null) && baseVisible[i];
+			if (wasVisible && !visible[i]) {
+				numberRemoved++;
+			} else if (visible[i] && (!wasVisible || x[i] != baseX[i] || y[i] != baseY[i])) {
+				numberChanged++;
+			}
+		}
+		session.sentFrame[slot] = frameNumber;
+		session.lastSentFrame = frameNumber;
+
+		ByteBuffer output = session.output;
+		int start = output.position();
+		output.putInt(0); // Length, filled in below
+		output.putInt(frameNumber);
+		output.putInt(base);
+		FrameFormat.putVarint(output, session.viewportSequence);
+		FrameFormat.putVarint(output, numberOfBalls);
+		FrameFormat.putVarint(output, numberRemoved);
+		int previous = 0;
+		for (int i = 0; i < numberOfBalls && numberRemoved > 0; i++) {
+			if (baseVisible != null && baseVisible[i] && !visible[i]) {
+				FrameFormat.putVarint(output, i - previous);
+				previous = i;
+			}
+		}
+		FrameFormat.putVarint(output, numberChanged);
+		previous = 0;
+		for (int i = 0; i < numberOfBalls; i++) {
+			if (!visible[i]) {
+				continue;
+			}
+			boolean wasVisible = (baseVisible != null) && baseVisible[i];
+			if (!wasVisible) {
+				FrameFormat.putVarint(output, i - previous);
+				FrameFormat.putSigned(output, x[i]);
+				FrameFormat.putSigned(output, y[i]);
+				FrameFormat.putVarint(output, radius[i]);
+				previous = i;
+			} else if (x[i] != baseX[i] || y[i] != baseY[i]) {
+				FrameFormat.putVarint(output, i - previous);
+				FrameFormat.putSigned(output, x[i] - baseX[i]);
+				FrameFormat.putSigned(output, y[i] - baseY[i]);
+				previous = i;
+			}
+		}
+		output.putInt(start, output.position() - start - 4);
+		framesSent++;
+	}
+
+	/** Return the number of the last frame published. */
+	public int getFrameNumber() {
+		return frameNumber;
+	}
+
+	/** Return the number of clients connected. */
+	public int getClientCount() {
+		return sessions.size();
+	}
+
+	/** Return the frame bytes written to all the clients so far. */
+	public long getBytesSent() {
+		return bytesSent;
+	}
+
+	/** Return the number of frames encoded for all the clients so far. */
+	public long getFramesSent() {
+		return framesSent;
+	}
+
+	/** Return the number of those frames encoded without a base frame. */
+	public long getKeyFramesSent() {
+		return keyFramesSent;
+	}
+
+	/** Return the number of frames skipped for clients that fell behind. */
+	public long getFramesSkipped() {
+		return framesSkipped;
+	}
+}
@@ -0,0 +1,156 @@
+package state_streaming;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
+import collisionphysics.ForceField;
+import screen_saver.ScreenSaverWorld;
+
+/**
+ * Stream a screen saver world to clients over loopback and check what they
+ * decode against the world, or serve it on the network for remote viewers.
+ *
+ * Usage: java state_streaming.StateStreamingDemo [frames]
+ * checks [frames] frames with a client that sees everything and one whose
+ * viewport pans across the screen. Exits with status 1 if a client decodes a
+ * ball that is off, missing or out of view.
+ *
+ * Usage: java state_streaming.StateStreamingDemo -serve [port]
+ * steps the world in real time and serves it on the given port until killed.
+ *
+ * @version 1.0
+ */
+public class StateStreamingDemo {
+	private static final int UPDATE_RATE = 30; // As the screen saver
+	private static final int DEFAULT_FRAMES = 600;
+	private static final int DEFAULT_PORT = 7070;
+	private static final int VIEWPORT_SIZE = 200; // Side of the panning viewport
+	private static final int PAN_FRAMES = 10; // Frames between moves of the viewport
+	private static final long DELIVERY_TIMEOUT_MILLIS = 2000; // Per frame
+	// Largest error of a decoded position: half a quantized step, plus round-off
+	private static final float MAX_ERROR = 0.5f / FrameFormat.QUANTUM + 1e-3f;
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		ScreenSaverWorld world = new ScreenSaverWorld();
+		world.setForceField(new ForceField(0, 0.1f, 0.001f));
+		if (args.length > 0 && args[0].equals("-serve")) {
+			serve(world, (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_PORT);
+		} else {
+			int frames = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_FRAMES;
+			System.exit(check(world, frames) ? 0 : 1);
+		}
+	}
+
+	/** Step the world in real time and serve it on the given port. */
+	private static void serve(ScreenSaverWorld world, int port) throws IOException, InterruptedException {
+		StateServer server = new StateServer(world);
+		server.open(new InetSocketAddress(port));
+		System.out.println("Serving on port " + server.getPort());
+		long frameNanos = 1000000000L / UPDATE_RATE;
+		long nextFrame = System.nanoTime();
+		while (true) {
+			world.screenSaverUpdate();
+			server.publishFrame();
+			nextFrame += frameNanos;
+			long waitMillis;
+			while ((waitMillis = (nextFrame - System.nanoTime()) / 1000000) > 0) {
+				server.poll(waitMillis);
+			}
+			if (server.getFrameNumber() % UPDATE_RATE == 0) {
+				System.out.println(server.getClientCount() + " clients, " + server.getBytesSent() + " bytes in "
+						+ server.getFramesSent() + " frames, " + server.getKeyFramesSent() + " key frames, "
+						+ server.getFramesSkipped() + " skipped");
+			}
+		}
+	}
+
+	/**
+	 * Stream the given number of frames to two loopback clients, waiting for each
+	 * frame to arrive, and check what the clients decode.
+	 *
+	 * @return true if every ball decoded matched the world.
+	 */
+	private static boolean check(ScreenSaverWorld world, int frames) throws IOException {
+		StateServer server = new StateServer(world);
+		server.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+		InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort());
+		StateClient fullView = new StateClient();
+		fullView.connect(address);
+		StateClient panningView = new StateClient();
+		panningView.connect(address);
+		while (server.getClientCount() < 2) {
+			server.poll(10);
+		}
+
+		int mismatches = 0;
+		int checkedFrames = 0;
+		float[] viewport = new float[4];
+		int viewportSequence = 0;
+		for (int frame = 0; frame < frames; frame++) {
+			if (frame % PAN_FRAMES == 0) {
+				// Pan along a diagonal, so that balls enter and leave the view
+				float offset = (frame / PAN_FRAMES * 20) % (640 - VIEWPORT_SIZE);
+				viewport[0] = offset;
+				viewport[1] = offset * 280 / 440;
+				viewport[2] = viewport[0] + VIEWPORT_SIZE;
+				viewport[3] = viewport[1] + VIEWPORT_SIZE;
+				viewportSequence = panningView.setViewport(viewport[0], viewport[1], viewport[2], viewport[3]);
+			}
+			world.screenSaverUpdate();
+			server.publishFrame();
+
+			long deadline = System.currentTimeMillis() + DELIVERY_TIMEOUT_MILLIS;
+			while (fullView.getFrameNumber() != server.getFrameNumber()
+					|| panningView.getFrameNumber() != server.getFrameNumber()) {
+				if (System.currentTimeMillis() > deadline) {
+					System.out.println("FAIL: frame " + server.getFrameNumber() + " not delivered");
+					return false;
+				}
+				server.poll(1);
+				fullView.receive();
+				panningView.receive();
+			}
+
+			mismatches += compare(world, fullView, null);
+			if (panningView.getViewportSequence() == viewportSequence) {
+				mismatches += compare(world, panningView, viewport);
+				checkedFrames++;
+			}
+		}
+
+		int numberOfClients = 2;
+		System.out.printf("%d frames to %d clients: %.1f bytes per frame, %d key frames, %d skipped%n", frames,
+				numberOfClients, (double) server.getBytesSent() / server.getFramesSent(), server.getKeyFramesSent(),
+				server.getFramesSkipped());
+		System.out.printf("Full view: %.1f bytes per frame; panning view: %.1f bytes per frame, %d frames checked%n",
+				(double) fullView.getBytesReceived() / fullView.getFramesReceived(),
+				(double) panningView.getBytesReceived() / panningView.getFramesReceived(), checkedFrames);
+		fullView.close();
+		panningView.close();
+		server.close();
+		System.out.println((mismatches == 0) ? "PASS" : ("FAIL: " + mismatches + " mismatched balls"));
+		return mismatches == 0;
+	}
+
+	/**
+	 * Return the number of balls the client decoded wrong: off by more than the
+	 * quantization, missing from its viewport, or there when out of it.
+	 */
+	private static int compare(ScreenSaverWorld world, StateClient client, float[] viewport) {
+		int mismatches = 0;
+		for (int i = 0; i < world.getBallCount(); i++) {
+			boolean inView = (viewport == null) || FrameFormat.overlaps(FrameFormat.quantize(world.getBallX(i)),
+					FrameFormat.quantize(world.getBallY(i)), FrameFormat.quantize(world.getBallRadius(i)),
+					viewport[0], viewport[1], viewport[2], viewport[3]);
+			if (inView != client.isVisible(i)) {
+				mismatches++;
+			} else if (inView && (Math.abs(client.getBallX(i) - world.getBallX(i)) > MAX_ERROR
+					|| Math.abs(client.getBallY(i) - world.getBallY(i)) > MAX_ERROR
+					|| Math.abs(client.getBallRadius(i) - world.getBallRadius(i)) > MAX_ERROR)) {
+				mismatches++;
+			}
+		}
+		return mismatches;
+	}
+}